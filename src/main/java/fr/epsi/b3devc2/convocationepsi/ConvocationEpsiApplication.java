@@ -2,8 +2,10 @@ package fr.epsi.b3devc2.convocationepsi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ConvocationEpsiApplication {
 
     public static void main(String[] args) {
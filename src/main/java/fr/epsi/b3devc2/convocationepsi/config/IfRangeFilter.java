@@ -0,0 +1,60 @@
+package fr.epsi.b3devc2.convocationepsi.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/**
+ * Prise en charge de If-Range pour les corps de type Resource : Spring découpe la réponse
+ * selon l'en-tête Range sans consulter If-Range. Le contrôleur qui constate que If-Range ne
+ * correspond plus à la ressource appelle {@link #ignoreRange} ; l'en-tête Range est alors
+ * masqué et la ressource est servie en entier (RFC 9110, section 13.1.5).
+ */
+@Component
+public class IfRangeFilter extends OncePerRequestFilter {
+
+    private static final String IGNORE_RANGE = IfRangeFilter.class.getName() + ".IGNORE_RANGE";
+
+    /**
+     * Demande que la plage de la requête courante soit ignorée
+     */
+    public static void ignoreRange(WebRequest request) {
+        request.setAttribute(IGNORE_RANGE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(HttpHeaders.RANGE) == null || request.getHeader(HttpHeaders.IF_RANGE) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(new HttpServletRequestWrapper(request) {
+            @Override
+            public String getHeader(String name) {
+                return isIgnored(name) ? null : super.getHeader(name);
+            }
+
+            @Override
+            public Enumeration<String> getHeaders(String name) {
+                return isIgnored(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+            }
+
+            private boolean isIgnored(String name) {
+                return HttpHeaders.RANGE.equalsIgnoreCase(name) && Boolean.TRUE.equals(getAttribute(IGNORE_RANGE));
+            }
+        }, response);
+    }
+}
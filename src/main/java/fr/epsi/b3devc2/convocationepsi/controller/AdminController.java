@@ -1,7 +1,13 @@
 package fr.epsi.b3devc2.convocationepsi.controller;
 
+import fr.epsi.b3devc2.convocationepsi.dto.MailThrottleStatsDto;
+import fr.epsi.b3devc2.convocationepsi.dto.PdfCacheStatsDto;
+import fr.epsi.b3devc2.convocationepsi.dto.StorageStatsDto;
 import fr.epsi.b3devc2.convocationepsi.model.*;
 import fr.epsi.b3devc2.convocationepsi.repository.*;
+import fr.epsi.b3devc2.convocationepsi.service.EmailOutboxService;
+import fr.epsi.b3devc2.convocationepsi.service.PdfResultCache;
+import fr.epsi.b3devc2.convocationepsi.storage.SessionStorage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,6 +25,24 @@ public class AdminController {
     private final ClasseRepository classeRepo;
     private final DureeEpreuveRepository dureeRepo;
     private final TypeExamenRepository typeExamenRepo;
+    private final SessionStorage sessionStorage;
+    private final EmailOutboxService emailOutboxService;
+    private final PdfResultCache pdfResultCache;
+
+    // === Stockage des sessions ===
+    @GetMapping("/storage/stats")
+    public StorageStatsDto getStorageStats() { return sessionStorage.getStats(); }
+
+    // === Envoi des emails ===
+    @GetMapping("/mail/stats")
+    public MailThrottleStatsDto getMailStats() { return emailOutboxService.getThrottleStats(); }
+
+    // === Cache des PDF générés ===
+    @GetMapping("/pdf-cache/stats")
+    public PdfCacheStatsDto getPdfCacheStats() { return pdfResultCache.getStats(); }
+
+    @DeleteMapping("/pdf-cache")
+    public void clearPdfCache() { pdfResultCache.clear(); }
 
     // === Ville ===
     @GetMapping("/villes")
@@ -1,19 +1,38 @@
 package fr.epsi.b3devc2.convocationepsi.controller;
 
+import fr.epsi.b3devc2.convocationepsi.config.IfRangeFilter;
+import fr.epsi.b3devc2.convocationepsi.dto.BatchImportResponseDto;
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.DeliveryReportDto;
+import fr.epsi.b3devc2.convocationepsi.dto.DeliveryStatusDto;
 import fr.epsi.b3devc2.convocationepsi.dto.GenerateConvocationRequestDto;
-import fr.epsi.b3devc2.convocationepsi.dto.GenerateResponseDto;
+import fr.epsi.b3devc2.convocationepsi.dto.GenerationJobDto;
 import fr.epsi.b3devc2.convocationepsi.dto.ImportResponseDto;
+import fr.epsi.b3devc2.convocationepsi.dto.ReimportResponseDto;
 import fr.epsi.b3devc2.convocationepsi.dto.SendEmailRequestDto;
 import fr.epsi.b3devc2.convocationepsi.service.ConvocationService;
-import fr.epsi.b3devc2.convocationepsi.service.EmailService;
+import fr.epsi.b3devc2.convocationepsi.service.DocumentGeneratorService;
+import fr.epsi.b3devc2.convocationepsi.service.EmailOutboxService;
+import fr.epsi.b3devc2.convocationepsi.service.GenerationJobService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api")
@@ -23,7 +42,9 @@ import org.springframework.web.multipart.MultipartFile;
 public class ConvocationController {
 
     private final ConvocationService convocationService;
-    private final EmailService emailService;
+    private final EmailOutboxService emailOutboxService;
+    private final GenerationJobService generationJobService;
+    private final DocumentGeneratorService documentGeneratorService;
 
     @PostMapping("/import")
     public ResponseEntity<ImportResponseDto> importCandidats(
@@ -40,8 +61,34 @@ public class ConvocationController {
         }
     }
 
+    @PostMapping(value = "/import/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<BatchImportResponseDto> importCandidatsBatch(
+            @RequestParam("files") List<MultipartFile> files) {
+        try {
+            BatchImportResponseDto response = convocationService.importCandidats(files);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Erreur lors de l'importation groupée: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new BatchImportResponseDto(null, null, 0, 0, List.of(),
+                            List.of("Erreur: " + e.getMessage()),
+                            "Échec de l'importation"));
+        }
+    }
+
+    @PostMapping("/import/{sessionId}")
+    public ResponseEntity<ReimportResponseDto> reimportCandidats(
+            @PathVariable String sessionId, @RequestParam("file") MultipartFile file) {
+        if (generationJobService.isRunning(sessionId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ReimportResponseDto(null, sessionId, 0, 0, 0, 0, 0, List.of(),
+                            List.of("Une génération est en cours pour cette session"), "Échec de la réimportation"));
+        }
+        return ResponseEntity.ok(convocationService.reimportCandidats(sessionId, file));
+    }
+
     @PostMapping(value = "/generate", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<GenerateResponseDto> generateConvocations(
+    public ResponseEntity<GenerationJobDto> generateConvocations(
             @RequestPart("data") GenerateConvocationRequestDto request,
             @RequestPart("templateFile") MultipartFile templateFile,
             @RequestPart(value = "signatureImage", required = false) MultipartFile signatureImage) {
@@ -49,29 +96,88 @@ public class ConvocationController {
             request.setTemplateFile(templateFile);
             request.setSignatureImage(signatureImage);
 
-            GenerateResponseDto response = convocationService.generateConvocations(request);
-            return ResponseEntity.ok(response);
+            // La génération se poursuit en arrière-plan : suivi via /jobs/{jobId}
+            GenerationJobDto job = generationJobService.submit(request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create(job.getStatusUrl()))
+                    .body(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(GenerationJobDto.builder()
+                            .sessionId(request.getSessionId())
+                            .message("Erreur : " + e.getMessage())
+                            .errors(java.util.List.of("Erreur : " + e.getMessage()))
+                            .build());
         } catch (Exception e) {
             log.error("Erreur lors de la génération : {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new GenerateResponseDto(null, 0, null, "Erreur : " + e.getMessage()));
+                    .body(GenerationJobDto.builder()
+                            .sessionId(request.getSessionId())
+                            .message("Erreur : " + e.getMessage())
+                            .errors(java.util.List.of("Erreur : " + e.getMessage()))
+                            .build());
         }
     }
 
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<GenerationJobDto> getJob(@PathVariable String jobId) {
+        GenerationJobDto job = generationJobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+        return ResponseEntity.ok(job);
+    }
 
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String jobId) {
+        SseEmitter emitter = generationJobService.subscribe(jobId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+        return ResponseEntity.ok(emitter);
+    }
 
+    /**
+     * Télécharge l'archive d'une session, lue en flux depuis le fichier de spool.
+     * Les requêtes Range (reprise de téléchargement) sont prises en charge par Spring pour
+     * les corps de type Resource ; l'ETag identifie l'archive pour If-None-Match et If-Range
+     * (voir {@link IfRangeFilter}).
+     */
     @GetMapping("/download/{sessionId}")
-    public ResponseEntity<byte[]> downloadFile(@PathVariable String sessionId) {
+    public ResponseEntity<Resource> downloadFile(@PathVariable String sessionId,
+                                                 @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+                                                 WebRequest webRequest) {
+        // L'archive n'est servie qu'une fois la génération terminée
+        if (generationJobService.isRunning(sessionId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
+        }
         try {
-            byte[] fileData = convocationService.getGeneratedFile(sessionId);
+            Path archive = convocationService.getGeneratedArchive(sessionId);
+            long length = Files.size(archive);
+            long lastModified = Files.getLastModifiedTime(archive).toMillis();
+            String etag = "\"" + Integer.toHexString(archive.getFileName().toString().hashCode())
+                    + "-" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+            if (webRequest.checkNotModified(etag, lastModified)) {
+                return null;
+            }
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDispositionFormData("attachment", "convocations_" + sessionId + ".zip");
+            headers.setETag(etag);
+            headers.setLastModified(lastModified);
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+            // If-Range ne correspondant plus à l'archive (régénérée) : la plage demandée est
+            // ignorée et l'archive complète est servie
+            if (ifRange != null && !ifRange.equals(etag)) {
+                IfRangeFilter.ignoreRange(webRequest);
+            }
 
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(fileData);
+                    .body(new FileSystemResource(archive));
 
         } catch (Exception e) {
             log.error("Erreur lors du téléchargement: {}", e.getMessage());
@@ -79,16 +185,62 @@ public class ConvocationController {
         }
     }
 
+    @GetMapping("/download/{sessionId}/{candidatId}")
+    public ResponseEntity<byte[]> downloadConvocation(@PathVariable String sessionId, @PathVariable String candidatId) {
+        if (generationJobService.isRunning(sessionId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
+        }
+        try {
+            CandidatDto candidat = convocationService.getCandidat(sessionId, candidatId);
+            byte[] pdf = convocationService.getGeneratedConvocation(sessionId, candidatId);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_PDF);
+            headers.setContentDisposition(ContentDisposition.attachment()
+                    .filename(documentGeneratorService.generateFileName(candidat, "pdf"), StandardCharsets.UTF_8)
+                    .build());
+
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(pdf);
+
+        } catch (Exception e) {
+            log.error("Erreur lors du téléchargement: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+    }
+
+    /**
+     * Met en file les convocations de la session : l'envoi se poursuit en arrière-plan, suivi via /deliveries/{sessionId}
+     */
     @PostMapping("/send-emails")
-    public ResponseEntity<String> sendEmails(@RequestBody SendEmailRequestDto request) {
+    public ResponseEntity<?> sendEmails(@RequestBody SendEmailRequestDto request) {
         try {
-            emailService.sendConvocationsByEmail(request);
-            return ResponseEntity.ok("Emails envoyés avec succès");
+            DeliveryReportDto report = emailOutboxService.sendSession(request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create(report.getReportUrl()))
+                    .body(report);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Erreur lors de l'envoi : " + e.getMessage());
         }
     }
 
+    @PostMapping("/send-emails/{candidatId}")
+    public ResponseEntity<?> resendEmail(@PathVariable String candidatId, @RequestBody SendEmailRequestDto request) {
+        try {
+            DeliveryStatusDto status = emailOutboxService.sendCandidat(request, candidatId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create(EmailOutboxService.reportUrl(request.getSessionId())))
+                    .body(status);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Erreur lors de l'envoi : " + e.getMessage());
+        }
+    }
 
-}
\ No newline at end of file
+    @GetMapping("/deliveries/{sessionId}")
+    public ResponseEntity<DeliveryReportDto> getDeliveries(@PathVariable String sessionId) {
+        return ResponseEntity.ok(emailOutboxService.getReport(sessionId));
+    }
+}
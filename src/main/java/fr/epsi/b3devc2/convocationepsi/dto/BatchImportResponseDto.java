@@ -0,0 +1,21 @@
+package fr.epsi.b3devc2.convocationepsi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchImportResponseDto {
+    private List<CandidatDto> candidats;
+    private String sessionId;
+    private int candidatsCount;
+    private int duplicatesCount;
+    // Bilan par fichier et par feuille
+    private List<ImportSourceReportDto> sources;
+    private List<String> errors;
+    private String message;
+}
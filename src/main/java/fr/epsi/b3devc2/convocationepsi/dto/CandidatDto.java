@@ -1,6 +1,7 @@
 package fr.epsi.b3devc2.convocationepsi.dto;
 
 
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -11,7 +12,10 @@ import java.time.LocalTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Builder(toBuilder = true)
 public class CandidatDto {
+    // Identifiant stable attribué à l'import, clé de la file d'envoi et des endpoints par candidat
+    private String id;
     private String groupe;
     private String civilite;
     private String nom;
@@ -21,4 +25,6 @@ public class CandidatDto {
     private LocalTime heurePassage;
     private String salle;
     private String numeroJury;
+    // Nom de l'entrée du candidat dans l'archive de la session, renseigné à la génération
+    private String fichierConvocation;
 }
\ No newline at end of file
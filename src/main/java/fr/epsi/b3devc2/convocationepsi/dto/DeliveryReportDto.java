@@ -0,0 +1,22 @@
+package fr.epsi.b3devc2.convocationepsi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryReportDto {
+    private String sessionId;
+    private int total;
+    private int queued;
+    private int sending;
+    private int sent;
+    private int failed;
+    private List<DeliveryStatusDto> deliveries;
+    // Suivi des envois, qui se poursuivent en arrière-plan
+    private String reportUrl;
+}
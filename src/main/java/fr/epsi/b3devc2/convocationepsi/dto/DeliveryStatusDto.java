@@ -0,0 +1,23 @@
+package fr.epsi.b3devc2.convocationepsi.dto;
+
+import fr.epsi.b3devc2.convocationepsi.model.EmailStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryStatusDto {
+    private String candidatId;
+    private String nom;
+    private String prenom;
+    private String email;
+    private EmailStatus status;
+    private int attempts;
+    private String lastError;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime sentAt;
+}
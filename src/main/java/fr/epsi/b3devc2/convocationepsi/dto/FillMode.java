@@ -0,0 +1,11 @@
+package fr.epsi.b3devc2.convocationepsi.dto;
+
+/**
+ * Mode de remplissage du modèle Word
+ */
+public enum FillMode {
+    /** Modèle objet Apache POI (XWPFDocument) */
+    XWPF,
+    /** Réécriture en flux StAX des parties XML, sans modèle objet */
+    STREAMING
+}
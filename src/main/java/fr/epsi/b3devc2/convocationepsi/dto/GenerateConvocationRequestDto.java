@@ -51,4 +51,13 @@ public class GenerateConvocationRequestDto {
 
     private MultipartFile signatureImage;
 
+    // Mode de remplissage du modèle (XWPF par défaut)
+    private FillMode fillMode;
+
+    // Mode de production des PDF (conversion par document par défaut)
+    private RenderMode renderMode;
+
+    // Ne régénère que les candidats ajoutés ou modifiés depuis la dernière génération
+    private Boolean incremental;
+
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+import java.util.List;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -12,4 +14,5 @@ public class GenerateResponseDto {
     private int filesGenerated;
     private String downloadUrl;
     private String message;
+    private List<String> errors;
 }
\ No newline at end of file
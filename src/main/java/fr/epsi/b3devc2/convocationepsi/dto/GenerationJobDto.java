@@ -0,0 +1,33 @@
+package fr.epsi.b3devc2.convocationepsi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GenerationJobDto {
+    private String jobId;
+    private String sessionId;
+    private JobStatus status;
+    private int total;
+    private int done;
+    private int failed;
+    // Candidats traités par seconde depuis le démarrage
+    private double throughput;
+    // Temps restant estimé en secondes (null tant qu'il n'est pas calculable)
+    private Long etaSeconds;
+    private LocalDateTime submittedAt;
+    private LocalDateTime finishedAt;
+    private String statusUrl;
+    private String eventsUrl;
+    private String downloadUrl;
+    private String message;
+    private List<String> errors;
+}
@@ -0,0 +1,19 @@
+package fr.epsi.b3devc2.convocationepsi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportSourceReportDto {
+    private String fileName;
+    // Null si le fichier n'a pas pu être lu
+    private String sheetName;
+    private int candidatsCount;
+    private int duplicatesCount;
+    private List<String> errors;
+}
@@ -0,0 +1,11 @@
+package fr.epsi.b3devc2.convocationepsi.dto;
+
+/**
+ * État d'une génération asynchrone
+ */
+public enum JobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
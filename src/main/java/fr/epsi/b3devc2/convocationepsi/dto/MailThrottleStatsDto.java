@@ -0,0 +1,26 @@
+package fr.epsi.b3devc2.convocationepsi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailThrottleStatsDto {
+    // Budgets configurés et débit courant (réduit après un refus du serveur)
+    private int perMinuteLimit;
+    private int perDayLimit;
+    private double currentPerMinute;
+    private int availableThisMinute;
+    private int availableToday;
+    private Instant pausedUntil;
+    private long sent;
+    private long throttled;
+    // Profondeur de file : en attente d'un jeton, dans le pool d'envoi, dans la file persistante
+    private int waitingForToken;
+    private int pendingInPool;
+    private long queuedInOutbox;
+}
@@ -0,0 +1,20 @@
+package fr.epsi.b3devc2.convocationepsi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PdfCacheStatsDto {
+    private boolean enabled;
+    private int entries;
+    // Octets occupés sur disque et budget configuré
+    private long sizeBytes;
+    private long maxBytes;
+    private long hits;
+    private long misses;
+    private long stores;
+    private long evictions;
+}
@@ -0,0 +1,25 @@
+package fr.epsi.b3devc2.convocationepsi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReimportResponseDto {
+    private List<CandidatDto> candidats;
+    private String sessionId;
+    private int candidatsCount;
+    // Différence avec la liste précédente de la session
+    private int added;
+    private int modified;
+    private int removed;
+    private int unchanged;
+    // Identifiants des candidats à régénérer (ajoutés ou modifiés)
+    private List<String> changedIds;
+    private List<String> errors;
+    private String message;
+}
@@ -0,0 +1,13 @@
+package fr.epsi.b3devc2.convocationepsi.dto;
+
+/**
+ * Mode de production des PDF
+ */
+public enum RenderMode {
+    /** Conversion DOCX vers PDF pour chaque candidat */
+    PER_DOCUMENT,
+    /** Incrustation des valeurs sur un PDF de base converti une seule fois */
+    OVERLAY,
+    /** Conversion d'un document Word regroupant plusieurs candidats, découpé ensuite en un PDF par candidat */
+    COMBINED
+}
@@ -0,0 +1,23 @@
+package fr.epsi.b3devc2.convocationepsi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageStatsDto {
+    private String type;
+    private int sessions;
+    // Octets retenus par le stockage et budget configuré (0 si non borné)
+    private long weightBytes;
+    private long maxBytes;
+    // Octets des archives sur disque et budget disque configuré (0 si non borné)
+    private long diskBytes;
+    private long maxDiskBytes;
+    private long hits;
+    private long misses;
+    private long evictionsBySize;
+    private long evictionsByTtl;
+}
@@ -0,0 +1,62 @@
+package fr.epsi.b3devc2.convocationepsi.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Email de convocation à envoyer à un candidat, journalisé avec son état et ses tentatives
+ */
+@Entity
+@Table(name = "email_outbox",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"session_id", "candidat_id"}),
+        indexes = @Index(columnList = "status, next_attempt_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "session_id", nullable = false, length = 64)
+    private String sessionId;
+
+    @Column(name = "candidat_id", nullable = false, length = 64)
+    private String candidatId;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    private String nom;
+
+    private String prenom;
+
+    private String examenLabel;
+
+    // Adresses en copie, séparées par des virgules
+    @Column(length = 1000)
+    private String ccEmails;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private EmailStatus status;
+
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime sentAt;
+}
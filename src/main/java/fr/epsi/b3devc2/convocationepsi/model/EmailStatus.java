@@ -0,0 +1,11 @@
+package fr.epsi.b3devc2.convocationepsi.model;
+
+/**
+ * État d'un email de convocation dans la file d'envoi
+ */
+public enum EmailStatus {
+    QUEUED,
+    SENDING,
+    SENT,
+    FAILED
+}
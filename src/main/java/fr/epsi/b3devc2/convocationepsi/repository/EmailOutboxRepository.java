@@ -0,0 +1,23 @@
+package fr.epsi.b3devc2.convocationepsi.repository;
+
+
+import fr.epsi.b3devc2.convocationepsi.model.EmailOutbox;
+import fr.epsi.b3devc2.convocationepsi.model.EmailStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Journal interne : non exposé par Spring Data REST
+@RepositoryRestResource(exported = false)
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    List<EmailOutbox> findBySessionIdOrderByIdAsc(String sessionId);
+
+    List<EmailOutbox> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(EmailStatus status, LocalDateTime now);
+
+    List<EmailOutbox> findByStatus(EmailStatus status);
+
+    long countByStatus(EmailStatus status);
+}
@@ -0,0 +1,240 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envoi d'emails en masse : un petit pool de connexions SMTP authentifiées est ouvert une fois
+ * et réutilisé, les messages étant envoyés en parallèle dans la limite de ce pool. Chaque
+ * message est construit au moment de son envoi, pour ne pas garder toutes les pièces jointes
+ * en mémoire. Les paramètres de connexion sont ceux du JavaMailSenderImpl fourni, ce qui
+ * permet de viser un serveur SMTP local. Chaque envoi attend un jeton du MailRateLimiter,
+ * qui respecte les quotas du relais.
+ */
+@Component
+@Slf4j
+public class BulkMailSender {
+
+    private final JavaMailSenderImpl mailSender;
+    private final MailRateLimiter rateLimiter;
+    private final int poolSize;
+    private final ExecutorService executor;
+    // Connexions ouvertes et disponibles ; au plus poolSize existent (une par worker)
+    private final BlockingQueue<Transport> idleTransports = new LinkedBlockingQueue<>();
+    // Messages soumis au pool et pas encore traités
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public BulkMailSender(JavaMailSenderImpl mailSender, MailRateLimiter rateLimiter,
+                          @Value("${convocation.mail.pool-size:4}") int poolSize) {
+        this.mailSender = mailSender;
+        this.rateLimiter = rateLimiter;
+        this.poolSize = Math.max(1, poolSize);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "convocation-mail-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        Transport transport;
+        while ((transport = idleTransports.poll()) != null) {
+            closeQuietly(transport);
+        }
+    }
+
+    /**
+     * Envoie un message par élément et retourne le résultat de chacun, dans l'ordre de la liste
+     */
+    public <T> BulkMailReport<T> send(List<T> items, MessageBuilder<T> builder) {
+        long start = System.nanoTime();
+        List<Future<Delivery<T>>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            pending.incrementAndGet();
+            futures.add(executor.submit(() -> {
+                try {
+                    return deliver(item, builder);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            }));
+        }
+
+        List<Delivery<T>> deliveries = new ArrayList<>(items.size());
+        try {
+            for (Future<Delivery<T>> future : futures) {
+                deliveries.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Envoi des emails interrompu", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Erreur inattendue lors de l'envoi des emails", e.getCause());
+        }
+
+        BulkMailReport<T> report = new BulkMailReport<>(deliveries, (System.nanoTime() - start) / 1_000_000);
+        log.info("Envoi groupé terminé: {} envoyé(s), {} échec(s) en {} ms (latence moyenne {} ms, max {} ms)",
+                report.getSent(), report.getFailed(), report.getElapsedMs(),
+                report.getAverageLatencyMs(), report.getMaxLatencyMs());
+        return report;
+    }
+
+    /**
+     * Nombre de messages soumis au pool et pas encore envoyés
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    private <T> Delivery<T> deliver(T item, MessageBuilder<T> builder) {
+        try {
+            rateLimiter.acquire();
+        } catch (MailQuotaExceededException e) {
+            return Delivery.failure(item, 0, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Delivery.failure(item, 0, e);
+        }
+
+        long start = System.nanoTime();
+        Transport transport = null;
+        try {
+            MimeMessage message = builder.build(item);
+            if (message.getSentDate() == null) {
+                message.setSentDate(new Date());
+            }
+            message.saveChanges();
+
+            transport = borrow();
+            transport.sendMessage(message, message.getAllRecipients());
+            release(transport);
+            rateLimiter.onSuccess();
+            return Delivery.success(item, elapsedMs(start));
+
+        } catch (SendFailedException e) {
+            // Destinataire refusé : la connexion reste utilisable
+            release(transport);
+            rateLimiter.onFailure(e);
+            return Delivery.failure(item, elapsedMs(start), e);
+        } catch (Exception e) {
+            // Connexion dans un état inconnu : elle est fermée et sera recréée
+            closeQuietly(transport);
+            rateLimiter.onFailure(e);
+            return Delivery.failure(item, elapsedMs(start), e);
+        }
+    }
+
+    private Transport borrow() throws MessagingException {
+        Transport transport = idleTransports.poll();
+        if (transport == null) {
+            transport = mailSender.getSession().getTransport(protocol());
+        }
+        if (!transport.isConnected()) {
+            transport.connect(mailSender.getHost(), mailSender.getPort(),
+                    mailSender.getUsername(), mailSender.getPassword());
+        }
+        return transport;
+    }
+
+    /**
+     * Protocole résolu comme le fait JavaMailSenderImpl lorsqu'il n'est pas configuré
+     */
+    private String protocol() {
+        String protocol = mailSender.getProtocol();
+        if (protocol == null) {
+            protocol = mailSender.getSession().getProperty("mail.transport.protocol");
+        }
+        return protocol != null ? protocol : JavaMailSenderImpl.DEFAULT_PROTOCOL;
+    }
+
+    private void release(Transport transport) {
+        if (transport != null) {
+            idleTransports.offer(transport);
+        }
+    }
+
+    private static void closeQuietly(Transport transport) {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Erreur lors de la fermeture de la connexion SMTP: {}", e.getMessage());
+        }
+    }
+
+    private static long elapsedMs(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Construction du message d'un élément, exécutée par le worker qui l'envoie
+     */
+    @FunctionalInterface
+    public interface MessageBuilder<T> {
+        MimeMessage build(T item) throws Exception;
+    }
+
+    /**
+     * Résultat de l'envoi d'un message, avec sa latence (construction comprise)
+     */
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Delivery<T> {
+        private final T item;
+        private final boolean success;
+        private final long latencyMs;
+        private final Exception error;
+
+        static <T> Delivery<T> success(T item, long latencyMs) {
+            return new Delivery<>(item, true, latencyMs, null);
+        }
+
+        static <T> Delivery<T> failure(T item, long latencyMs, Exception error) {
+            return new Delivery<>(item, false, latencyMs, error);
+        }
+    }
+
+    /**
+     * Bilan d'un envoi groupé
+     */
+    @Getter
+    public static final class BulkMailReport<T> {
+        private final List<Delivery<T>> deliveries;
+        private final long elapsedMs;
+        private final int sent;
+        private final int failed;
+        private final long averageLatencyMs;
+        private final long maxLatencyMs;
+
+        BulkMailReport(List<Delivery<T>> deliveries, long elapsedMs) {
+            this.deliveries = deliveries;
+            this.elapsedMs = elapsedMs;
+            this.sent = (int) deliveries.stream().filter(Delivery::isSuccess).count();
+            this.failed = deliveries.size() - sent;
+            this.averageLatencyMs = (long) deliveries.stream().mapToLong(Delivery::getLatencyMs).average().orElse(0);
+            this.maxLatencyMs = deliveries.stream().mapToLong(Delivery::getLatencyMs).max().orElse(0);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.service.XlsxSheetReader.SheetCell;
+import lombok.extern.slf4j.Slf4j;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Correspondance colonne -> champ du candidat, compilée une fois à partir de la ligne d'en-tête.
+ * Les intitulés sont comparés sans casse, accents ni ponctuation, et plusieurs libellés sont
+ * reconnus pour chaque champ : les colonnes peuvent donc être réordonnées ou renommées. Un champ
+ * dont l'intitulé n'est pas trouvé reprend sa position historique dans le modèle de fichier.
+ */
+@Slf4j
+final class CandidatColumnMapping {
+
+    /**
+     * Champs lus, dans l'ordre historique des colonnes du fichier
+     */
+    enum Field {
+        GROUPE("Groupe", "classe", "promo", "promotion"),
+        CIVILITE("Civilité", "titre", "genre"),
+        NOM("Nom", "nom de famille", "nom candidat", "last name", "lastname"),
+        PRENOM("Prénom", "first name", "firstname"),
+        EMAIL("Email", "e-mail", "mail", "courriel", "adresse mail", "adresse email"),
+        DATE("Date", "date de passage", "date passage", "jour"),
+        HEURE("Heure", "horaire", "heure de passage", "heure passage"),
+        SALLE("Salle", "room"),
+        NUMERO_JURY("Numéro Jury", "jury", "num jury", "n jury", "no jury", "numero de jury");
+
+        final String label;
+        final String[] aliases;
+
+        Field(String label, String... aliases) {
+            this.label = label;
+            this.aliases = aliases;
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    // Intitulé normalisé -> champ, construit une seule fois
+    private static final Map<String, Field> HEADERS = new HashMap<>();
+
+    static {
+        for (Field field : FIELDS) {
+            HEADERS.put(normalize(field.label), field);
+            for (String alias : field.aliases) {
+                HEADERS.put(normalize(alias), field);
+            }
+        }
+    }
+
+    // Index de colonne de chaque champ, indexé par ordinal
+    private final int[] columns;
+    // Nom, prénom et email ont été trouvés par leur intitulé
+    private final boolean requiredHeadersFound;
+
+    private CandidatColumnMapping(int[] columns, boolean requiredHeadersFound) {
+        this.columns = columns;
+        this.requiredHeadersFound = requiredHeadersFound;
+    }
+
+    /**
+     * Compile la correspondance à partir des cellules de l'en-tête
+     */
+    static CandidatColumnMapping compile(SheetCell[] header, Function<SheetCell, String> text) {
+        int[] columns = new int[FIELDS.length];
+        Arrays.fill(columns, -1);
+
+        for (int i = 0; i < header.length; i++) {
+            String title = text.apply(header[i]);
+            if (title.isEmpty()) {
+                continue;
+            }
+            Field field = HEADERS.get(normalize(title));
+            if (field != null && columns[field.ordinal()] < 0) {
+                columns[field.ordinal()] = i;
+            } else if (field == null && i < FIELDS.length) {
+                log.warn("En-tête colonne {}: '{}' non reconnu", i + 1, title);
+            }
+        }
+
+        boolean requiredHeadersFound = columns[Field.NOM.ordinal()] >= 0
+                && columns[Field.PRENOM.ordinal()] >= 0
+                && columns[Field.EMAIL.ordinal()] >= 0;
+
+        boolean[] used = new boolean[Math.max(header.length, FIELDS.length)];
+        for (int column : columns) {
+            if (column >= 0) {
+                used[column] = true;
+            }
+        }
+        for (Field field : FIELDS) {
+            int fallback = field.ordinal();
+            if (columns[fallback] < 0) {
+                // On continue sans erreur pour plus de flexibilité
+                columns[fallback] = used[fallback] ? -1 : fallback;
+                log.warn("En-tête '{}' introuvable, {}", field.label,
+                        columns[fallback] >= 0 ? "colonne " + (fallback + 1) + " utilisée" : "champ ignoré");
+            }
+        }
+
+        CandidatColumnMapping mapping = new CandidatColumnMapping(columns, requiredHeadersFound);
+        log.info("Colonnes du fichier: {}", mapping);
+        return mapping;
+    }
+
+    /**
+     * Indique si l'en-tête ressemble à une liste de candidats (nom, prénom et email reconnus)
+     */
+    boolean hasRequiredHeaders() {
+        return requiredHeadersFound;
+    }
+
+    /**
+     * Cellule d'un champ dans une ligne (vide si le champ n'a pas de colonne)
+     */
+    SheetCell cell(SheetCell[] row, Field field) {
+        int column = columns[field.ordinal()];
+        return column >= 0 && column < row.length ? row[column] : SheetCell.BLANK;
+    }
+
+    /**
+     * Une ligne est vide si aucune des colonnes lues n'a de valeur
+     */
+    boolean isEmpty(SheetCell[] row, Function<SheetCell, String> text) {
+        for (Field field : FIELDS) {
+            if (!text.apply(cell(row, field)).isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (Field field : FIELDS) {
+            if (result.length() > 0) {
+                result.append(", ");
+            }
+            int column = columns[field.ordinal()];
+            result.append(field.label).append('=').append(column >= 0 ? String.valueOf(column + 1) : "-");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Minuscules, sans accents, sans ponctuation ni espaces ("Numéro Jury" -> "numerojury")
+     */
+    private static String normalize(String title) {
+        String decomposed = Normalizer.normalize(title.trim().toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder result = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,124 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.multipdf.Splitter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mode de rendu combiné : les convocations d'un groupe de candidats sont assemblées dans un
+ * seul document Word (une section par candidat), converti une seule fois en PDF puis découpé
+ * en un PDF par candidat. Le coût fixe de la chaîne FO/FOP n'est ainsi payé qu'une fois par groupe.
+ * <p>
+ * Le découpage suppose que chaque convocation occupe le même nombre de pages : il est vérifié
+ * sur le PDF obtenu, et le rendu retourne null (conversion par document) en cas de doute.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CombinedPdfRenderer {
+
+    // Placeholders dont la valeur contient le nom du candidat, utilisé pour contrôler le découpage
+    private static final Set<String> NAME_PLACEHOLDERS = Set.of("{{NOM}}", "{{NOM_PRENOM}}", "{{PRENOM_NOM}}");
+
+    private final DocumentGeneratorService wordService;
+    private final StreamingDocxFiller streamingDocxFiller;
+    private final DocxToPdfConverter pdfConverter;
+
+    /**
+     * Indique si le modèle peut être assemblé : les en-têtes et pieds de page étant partagés
+     * entre les sections, ils ne doivent contenir aucun placeholder
+     */
+    public boolean supports(ConvocationBatch batch) {
+        return batch.getTemplate().getLocations().stream()
+                .noneMatch(location -> location.getZone() == PrecompiledTemplate.Zone.HEADER
+                        || location.getZone() == PrecompiledTemplate.Zone.FOOTER);
+    }
+
+    /**
+     * Produit les PDF des candidats, dans l'ordre de la liste, ou null si le document combiné
+     * ne peut pas être découpé de façon sûre
+     */
+    public List<byte[]> render(ConvocationBatch batch, List<CandidatDto> candidats) throws Exception {
+        List<Map<String, String>> variablesList = new ArrayList<>(candidats.size());
+        for (CandidatDto candidat : candidats) {
+            variablesList.add(wordService.createVariableMapping(candidat, batch));
+        }
+
+        byte[] signaturePng = batch.getSignature() != null ? batch.getSignature().getPngBytes() : null;
+        byte[] combinedDocx = streamingDocxFiller.fillCombined(batch.getTemplate(), variablesList, signaturePng);
+        byte[] combinedPdf = pdfConverter.convertDocxToPdf(combinedDocx);
+
+        try (PDDocument document = PDDocument.load(combinedPdf)) {
+            int totalPages = document.getNumberOfPages();
+            if (totalPages == 0 || totalPages % candidats.size() != 0) {
+                log.info("Document combiné de {} page(s) pour {} candidat(s) : découpage impossible",
+                        totalPages, candidats.size());
+                return null;
+            }
+            int pagesPerCandidat = totalPages / candidats.size();
+
+            if (!boundariesMatch(document, pagesPerCandidat, variablesList, batch.getTemplate().getPlaceholders())) {
+                log.info("Les limites de pages du document combiné ne correspondent pas aux candidats");
+                return null;
+            }
+
+            Splitter splitter = new Splitter();
+            splitter.setSplitAtPage(pagesPerCandidat);
+            List<PDDocument> parts = splitter.split(document);
+            List<byte[]> pdfs = new ArrayList<>(parts.size());
+            try {
+                for (PDDocument part : parts) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream(combinedPdf.length / candidats.size() + 4096);
+                    part.save(out);
+                    pdfs.add(out.toByteArray());
+                }
+            } finally {
+                for (PDDocument part : parts) {
+                    part.close();
+                }
+            }
+            return pdfs;
+        }
+    }
+
+    /**
+     * Vérifie que chaque tranche de pages contient le nom du candidat correspondant
+     * (contrôle ignoré si le modèle n'affiche pas le nom)
+     */
+    private boolean boundariesMatch(PDDocument document, int pagesPerCandidat,
+                                    List<Map<String, String>> variablesList, Set<String> placeholders)
+            throws IOException {
+        if (placeholders.stream().noneMatch(NAME_PLACEHOLDERS::contains)) {
+            return true;
+        }
+
+        PDFTextStripper stripper = new PDFTextStripper();
+        for (int i = 0; i < variablesList.size(); i++) {
+            String nom = normalize(variablesList.get(i).get("{{NOM}}"));
+            if (nom.isEmpty()) {
+                continue;
+            }
+            stripper.setStartPage(i * pagesPerCandidat + 1);
+            stripper.setEndPage((i + 1) * pagesPerCandidat);
+            if (!normalize(stripper.getText(document)).contains(nom)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,41 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.storage.SessionStorage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Accès à la convocation générée d'un candidat : lecture directe de son entrée dans l'archive
+ * de la session grâce à l'index du répertoire central du ZIP. Seul le nom d'entrée est conservé
+ * avec le candidat, les PDF ne sont jamais gardés en mémoire.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConvocationArtifactService {
+
+    private final SessionStorage sessionStorage;
+    private final ZipService zipService;
+
+    /**
+     * Retourne le PDF du candidat, ou null s'il n'a pas été généré
+     */
+    public byte[] find(String sessionId, CandidatDto candidat) {
+        String entryName = candidat.getFichierConvocation();
+        Path archive = entryName != null ? sessionStorage.getArchive(sessionId) : null;
+        if (archive == null) {
+            return null;
+        }
+        try {
+            return zipService.extractEntry(archive, entryName);
+        } catch (IOException e) {
+            log.error("Impossible de lire {} dans l'archive de la session {}: {}", entryName, sessionId, e.getMessage());
+            return null;
+        }
+    }
+}
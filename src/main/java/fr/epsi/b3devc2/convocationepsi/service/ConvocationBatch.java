@@ -0,0 +1,35 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.FillMode;
+import fr.epsi.b3devc2.convocationepsi.dto.GenerateConvocationRequestDto;
+import fr.epsi.b3devc2.convocationepsi.dto.RenderMode;
+import fr.epsi.b3devc2.convocationepsi.model.*;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Données partagées par toutes les convocations d'une même génération
+ */
+@Getter
+@Builder
+public class ConvocationBatch {
+    private final GenerateConvocationRequestDto request;
+    // Candidats à générer, et liste complète de la session (identique hors génération incrémentale)
+    private final List<CandidatDto> candidats;
+    private final List<CandidatDto> sessionCandidats;
+    // Archive dont les convocations à jour sont reprises telles quelles (null : génération complète)
+    private final Path baseArchive;
+    private final PrecompiledTemplate template;
+    private final Ville ville;
+    private final TypeExamen typeExamen;
+    private final Certification certification;
+    private final Adresse adresse;
+    private final DureeEpreuve dureeEpreuve;
+    private final FillMode fillMode;
+    private final RenderMode renderMode;
+    private final PreparedSignature signature;
+}
@@ -4,22 +4,37 @@ package fr.epsi.b3devc2.convocationepsi.service;
 import fr.epsi.b3devc2.convocationepsi.dto.*;
 import fr.epsi.b3devc2.convocationepsi.model.*;
 import fr.epsi.b3devc2.convocationepsi.repository.*;
-import fr.epsi.b3devc2.convocationepsi.storage.InMemorySessionStorage;
+import fr.epsi.b3devc2.convocationepsi.storage.SessionStorage;
+import fr.epsi.b3devc2.convocationepsi.util.HashUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 @Service
@@ -31,10 +46,19 @@ public class ConvocationService {
     private final ExcelParserService excelService;
     private final DocumentGeneratorService wordService;
     private final ZipService zipService;
-    private final EmailService emailService;
+    private final GenerationEngine generationEngine;
+    private final TemplateCacheService templateCacheService;
+    private final SignatureImageService signatureImageService;
+    private final DocxToPdfConverter pdfConverter;
+    private final PdfOverlayRenderer overlayRenderer;
+    private final ConvocationArtifactService artifactService;
+    private final CombinedPdfRenderer combinedRenderer;
+    private final PdfResultCache pdfCache;
+    private final ImportCacheService importCache;
+    private final EmailOutboxService emailOutboxService;
 
 
-    private final InMemorySessionStorage sessionStorage;
+    private final SessionStorage sessionStorage;
 
     // Repositories
     private final VilleRepository villeRepository;
@@ -43,6 +67,15 @@ public class ConvocationService {
     private final AdresseRepository adresseRepository;
     private final DureeEpreuveRepository dureeEpreuveRepository;
 
+    @Value("${convocation.generation.fill-mode:XWPF}")
+    private FillMode defaultFillMode;
+
+    @Value("${convocation.generation.render-mode:PER_DOCUMENT}")
+    private RenderMode defaultRenderMode;
+
+    @Value("${convocation.combined.chunk-size:20}")
+    private int combinedChunkSize;
+
     private static final Pattern EMAIL_PATTERN =
             Pattern.compile("^[A-Za-z0-9+_.-]+@([A-Za-z0-9.-]+\\.[A-Za-z]{2,})$");
 
@@ -65,15 +98,28 @@ public class ConvocationService {
                 throw new IllegalArgumentException("Le fichier doit être au format Excel (.xlsx)");
             }
 
-            // Lecture du fichier Excel
-            List<CandidatDto> candidats = excelService.readCandidatsFromExcel(file);
-
-            if (candidats.isEmpty()) {
-                throw new IllegalArgumentException("Aucun candidat trouvé dans le fichier");
+            // Lecture et validation du fichier Excel, une seule fois par contenu sur la durée du cache
+            String sha256;
+            try (InputStream in = file.getInputStream()) {
+                sha256 = HashUtils.sha256Hex(in);
             }
+            ImportCacheService.ParsedImport parsed = importCache.getOrParse(sha256, () -> {
+                List<CandidatDto> read = excelService.readCandidatsFromExcel(file);
 
-            // Validation des données
-            validateCandidats(candidats, errors);
+                if (read.isEmpty()) {
+                    throw new IllegalArgumentException("Aucun candidat trouvé dans le fichier");
+                }
+
+                // Validation des données
+                List<String> validationErrors = new ArrayList<>();
+                validateCandidats(read, validationErrors);
+                return new ImportCacheService.ParsedImport(read, validationErrors);
+            });
+            List<CandidatDto> candidats = parsed.getCandidats();
+            errors.addAll(parsed.getErrors());
+
+            // Identifiant stable de chaque candidat, clé de la file d'envoi et des endpoints par candidat
+            assignIds(candidats);
 
             // Stockage en mémoire
             sessionStorage.storeCandidats(sessionId, candidats);
@@ -103,9 +149,188 @@ public class ConvocationService {
     }
 
     /**
-     * Génère les convocations pour tous les candidats d'une session
+     * Réimporte un fichier Excel dans une session existante. Les nouvelles lignes sont comparées
+     * aux candidats stockés par email et par empreinte de leur contenu : un candidat inchangé garde
+     * sa convocation, un candidat modifié garde son identifiant mais perd sa convocation, qui sera
+     * produite par la prochaine génération incrémentale, et un candidat absent du fichier est retiré.
+     */
+    public ReimportResponseDto reimportCandidats(String sessionId, MultipartFile file) {
+        log.info("Réimportation des candidats de la session {} depuis le fichier: {}", sessionId, file.getOriginalFilename());
+
+        List<String> errors = new ArrayList<>();
+        try {
+            List<CandidatDto> previous = sessionStorage.getCandidats(sessionId);
+            if (previous == null) {
+                throw new IllegalArgumentException("Session introuvable ou expirée");
+            }
+
+            if (file.isEmpty()) {
+                throw new IllegalArgumentException("Le fichier est vide");
+            }
+
+            if (!isExcelFile(file)) {
+                throw new IllegalArgumentException("Le fichier doit être au format Excel (.xlsx)");
+            }
+
+            List<CandidatDto> candidats = excelService.readCandidatsFromExcel(file);
+            if (candidats.isEmpty()) {
+                throw new IllegalArgumentException("Aucun candidat trouvé dans le fichier");
+            }
+            validateCandidats(candidats, errors);
+
+            // Candidats précédents par email, dans l'ordre du fichier (un email peut apparaître plusieurs fois)
+            Map<String, Deque<CandidatDto>> previousByKey = new HashMap<>();
+            for (CandidatDto candidat : previous) {
+                previousByKey.computeIfAbsent(candidatKey(candidat), k -> new ArrayDeque<>()).add(candidat);
+            }
+
+            List<CandidatDto> merged = new ArrayList<>(candidats.size());
+            List<String> changedIds = new ArrayList<>();
+            int added = 0;
+            int modified = 0;
+            for (CandidatDto candidat : candidats) {
+                Deque<CandidatDto> matches = previousByKey.get(candidatKey(candidat));
+                CandidatDto old = matches != null ? matches.poll() : null;
+                if (old == null) {
+                    candidat.setId(UUID.randomUUID().toString());
+                    added++;
+                } else if (contentHash(old).equals(contentHash(candidat))) {
+                    // Inchangé : l'objet stocké est conservé avec sa convocation
+                    merged.add(old);
+                    continue;
+                } else {
+                    // Le nouvel objet n'a pas de convocation : il sera régénéré
+                    candidat.setId(old.getId() != null ? old.getId() : UUID.randomUUID().toString());
+                    modified++;
+                }
+                merged.add(candidat);
+                changedIds.add(candidat.getId());
+            }
+
+            // Candidats qui ne figurent plus dans le fichier
+            int removed = 0;
+            for (Deque<CandidatDto> remaining : previousByKey.values()) {
+                removed += remaining.size();
+            }
+
+            sessionStorage.storeCandidats(sessionId, merged);
+            // Les convocations ajoutées ou modifiées devront être (ré)envoyées
+            emailOutboxService.resetCandidats(sessionId, changedIds);
+
+            int unchanged = merged.size() - added - modified;
+            log.info("Réimportation de la session {}: {} ajouté(s), {} modifié(s), {} retiré(s), {} inchangé(s)",
+                    sessionId, added, modified, removed, unchanged);
+
+            return new ReimportResponseDto(merged, sessionId, merged.size(), added, modified, removed, unchanged,
+                    changedIds, errors, "Réimportation réussie");
+
+        } catch (Exception e) {
+            log.error("Erreur lors de la réimportation: {}", e.getMessage());
+            errors.add("Erreur d'importation: " + e.getMessage());
+            return new ReimportResponseDto(null, sessionId, 0, 0, 0, 0, 0, List.of(), errors,
+                    "Échec de la réimportation");
+        }
+    }
+
+    /**
+     * Clé stable d'un candidat d'une importation à l'autre
+     */
+    private static String candidatKey(CandidatDto candidat) {
+        return candidat.getEmail() != null ? candidat.getEmail().trim().toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * Empreinte des données d'un candidat qui figurent sur sa convocation
+     */
+    private static String contentHash(CandidatDto candidat) {
+        String content = String.join("\u001f",
+                String.valueOf(candidat.getGroupe()), String.valueOf(candidat.getCivilite()),
+                String.valueOf(candidat.getNom()), String.valueOf(candidat.getPrenom()),
+                String.valueOf(candidat.getEmail()), String.valueOf(candidat.getDatePassage()),
+                String.valueOf(candidat.getHeurePassage()), String.valueOf(candidat.getSalle()),
+                String.valueOf(candidat.getNumeroJury()));
+        return HashUtils.sha256Hex(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Importe en une fois plusieurs fichiers Excel, toutes feuilles comprises, dans une même session.
+     * Les fichiers sont lus en parallèle ; les candidats sont fusionnés dans l'ordre des fichiers
+     * et des feuilles, et un candidat dont l'email a déjà été importé est écarté comme doublon.
      */
-    public GenerateResponseDto generateConvocations(GenerateConvocationRequestDto request) {
+    public BatchImportResponseDto importCandidats(List<MultipartFile> files) {
+        log.info("Début de l'importation groupée de {} fichier(s)", files.size());
+
+        List<String> errors = new ArrayList<>();
+        List<MultipartFile> readable = new ArrayList<>();
+        for (MultipartFile file : files) {
+            if (file.isEmpty()) {
+                errors.add(file.getOriginalFilename() + ": le fichier est vide");
+            } else if (!isExcelFile(file)) {
+                errors.add(file.getOriginalFilename() + ": le fichier doit être au format Excel (.xlsx)");
+            } else {
+                readable.add(file);
+            }
+        }
+
+        List<CandidatDto> candidats = new ArrayList<>();
+        List<ImportSourceReportDto> sources = new ArrayList<>();
+        // Email normalisé -> origine du premier candidat importé avec cet email
+        Map<String, String> origins = new HashMap<>();
+        int duplicates = 0;
+
+        for (ExcelParserService.SheetImport sheet : excelService.readAllSheets(readable)) {
+            String source = sheet.getSheetName() != null
+                    ? sheet.getFileName() + " / " + sheet.getSheetName()
+                    : sheet.getFileName();
+            List<String> sourceErrors = new ArrayList<>(sheet.getErrors());
+            int imported = 0;
+            int sourceDuplicates = 0;
+
+            for (ExcelParserService.SheetRow row : sheet.getRows()) {
+                CandidatDto candidat = row.getCandidat();
+                String key = candidat.getEmail().trim().toLowerCase(Locale.ROOT);
+                String origin = origins.putIfAbsent(key, source + ", ligne " + row.getRowNumber());
+                if (origin != null) {
+                    sourceErrors.add("Ligne " + row.getRowNumber() + ": doublon de " + candidat.getEmail()
+                            + " (déjà importé depuis " + origin + ")");
+                    sourceDuplicates++;
+                    continue;
+                }
+                validateCandidat(candidat, row.getRowNumber(), sourceErrors);
+                candidats.add(candidat);
+                imported++;
+            }
+
+            duplicates += sourceDuplicates;
+            sources.add(new ImportSourceReportDto(sheet.getFileName(), sheet.getSheetName(),
+                    imported, sourceDuplicates, sourceErrors));
+        }
+
+        if (candidats.isEmpty()) {
+            errors.add("Erreur d'importation: Aucun candidat trouvé dans les fichiers");
+            return new BatchImportResponseDto(null, null, 0, duplicates, sources, errors,
+                    "Échec de l'importation");
+        }
+
+        // Identifiant stable de chaque candidat, clé de la file d'envoi et des endpoints par candidat
+        assignIds(candidats);
+
+        String sessionId = sessionStorage.generateSessionId();
+        sessionStorage.storeCandidats(sessionId, candidats);
+
+        log.info("Importation groupée réussie: {} candidats ({} doublons écartés) depuis {} source(s), session {}",
+                candidats.size(), duplicates, sources.size(), sessionId);
+
+        return new BatchImportResponseDto(candidats, sessionId, candidats.size(), duplicates, sources, errors,
+                "Importation réussie");
+    }
+
+    /**
+     * Valide la demande et prépare les données partagées du lot : entités de référence,
+     * modèle précompilé et signature. Les fichiers envoyés sont lus ici, tant que la requête
+     * HTTP est encore ouverte.
+     */
+    public ConvocationBatch prepareBatch(GenerateConvocationRequestDto request) {
         log.info("Génération des convocations pour la session: {}", request.getSessionId());
 
         try {
@@ -125,47 +350,122 @@ public class ConvocationService {
             DureeEpreuve dureeEpreuve = dureeEpreuveRepository.findById(request.getDureeEpreuveId())
                     .orElseThrow(() -> new IllegalArgumentException("Durée d'épreuve non trouvée"));
 
-            Map<String, byte[]> generatedFiles = new HashMap<>();
-
-            for (CandidatDto candidat : candidats) {
-                try (InputStream freshStream = request.getTemplateFile().getInputStream()) {
+            // Le modèle est analysé une seule fois (ou repris du cache) puis partagé entre les workers
+            PrecompiledTemplate template = templateCacheService.getOrCompile(request.getTemplateFile().getBytes());
 
-                    // 1. Génère le Word
-                    byte[] wordFile = wordService.generateConvocationForCandidat(
-                            candidat, request, freshStream,
-                            ville, typeExamen, certification, adresse, dureeEpreuve
-                    );
+            // Sessions importées avant l'attribution des identifiants
+            if (assignIds(candidats)) {
+                sessionStorage.storeCandidats(request.getSessionId(), candidats);
+            }
 
-                    // 2. Convertit en PDF
-                    byte[] pdfFile = DocxToPdfConverter.convertDocxToPdf(wordFile);
+            // Génération incrémentale : seuls les candidats sans convocation dans l'archive actuelle
+            // (ajoutés ou modifiés par une réimportation) sont produits
+            List<CandidatDto> toRender = List.copyOf(candidats);
+            Path baseArchive = null;
+            if (Boolean.TRUE.equals(request.getIncremental())) {
+                baseArchive = sessionStorage.getArchive(request.getSessionId());
+                if (baseArchive != null) {
+                    ZipArchiveIndex index = zipService.getIndex(baseArchive);
+                    toRender = candidats.stream()
+                            .filter(c -> c.getFichierConvocation() == null || !index.contains(c.getFichierConvocation()))
+                            .toList();
+                    log.info("Génération incrémentale: {} candidat(s) à générer sur {}", toRender.size(), candidats.size());
+                }
+            }
 
-                    // 3. Nom du fichier PDF
-                    // 3. Nom du fichier PDF
-                    String fileName = wordService.generateFileName(candidat, "pdf");
+            return ConvocationBatch.builder()
+                    .request(request)
+                    .candidats(toRender)
+                    .sessionCandidats(List.copyOf(candidats))
+                    .baseArchive(baseArchive)
+                    .template(template)
+                    .ville(ville)
+                    .typeExamen(typeExamen)
+                    .certification(certification)
+                    .adresse(adresse)
+                    .dureeEpreuve(dureeEpreuve)
+                    .fillMode(request.getFillMode() != null ? request.getFillMode() : defaultFillMode)
+                    .renderMode(request.getRenderMode() != null ? request.getRenderMode() : defaultRenderMode)
+                    // La signature est décodée et réduite une seule fois pour tout le lot
+                    .signature(signatureImageService.prepare(request.getSignatureImage()))
+                    .build();
+
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Erreur lors de la préparation de la génération: {}", e.getMessage());
+            throw new RuntimeException("Erreur lors de la génération: " + e.getMessage(), e);
+        }
+    }
 
-                    generatedFiles.put(fileName, pdfFile);
+    /**
+     * Génère les PDF et l'archive d'un lot préparé. Aucune transaction n'est ouverte pendant
+     * la génération, qui peut être longue et s'exécuter hors du thread de la requête.
+     *
+     * @param listener notifié après chaque candidat, peut être null
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public GenerateResponseDto generate(ConvocationBatch batch, GenerationListener listener) {
+        String sessionId = batch.getRequest().getSessionId();
 
+        try {
+            int filesGenerated;
+            List<String> errors = new ArrayList<>();
+            Path archive;
+
+            // Chaque PDF est écrit dans l'archive dès qu'il est produit, puis libéré
+            try (ZipSpoolWriter zip = zipService.openSpoolArchive(sessionStorage.createArchiveFile(sessionId))) {
+                if (batch.getBaseArchive() != null) {
+                    copyUpToDateEntries(batch, zip);
+                }
 
-                } catch (Exception e) {
-                    log.error("Erreur lors de la génération pour {} {}: {}", candidat.getPrenom(), candidat.getNom(), e.getMessage());
-                    throw new RuntimeException("Erreur lors de la génération pour " +
-                            candidat.getPrenom() + " " + candidat.getNom(), e);
+                renderAll(batch.getCandidats(), batch, outcome -> {
+                    CandidatDto candidat = outcome.getItem();
+                    boolean success = outcome.isSuccess();
+                    if (success) {
+                        try {
+                            // 3. Nom du fichier PDF, seule référence conservée vers la convocation du candidat
+                            candidat.setFichierConvocation(
+                                    zip.addStored(wordService.generateFileName(candidat, "pdf"), outcome.getResult()));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException("Erreur lors de l'écriture de l'archive", e);
+                        }
+                    } else {
+                        log.error("Erreur lors de la génération pour {} {}: {}",
+                                candidat.getPrenom(), candidat.getNom(), outcome.getError().getMessage());
+                        errors.add("Erreur lors de la génération pour " + candidat.getPrenom() + " " +
+                                candidat.getNom() + ": " + outcome.getError().getMessage());
+                    }
+                    if (listener != null) {
+                        listener.onCandidat(candidat, success);
+                    }
+                });
+
+                if (zip.getEntries() == 0) {
+                    throw new IllegalStateException("Aucune convocation n'a pu être générée");
                 }
+                filesGenerated = zip.getEntries();
+                archive = zip.finish();
             }
 
-            // Création du ZIP
-            byte[] zipFile = zipService.createZipArchive(generatedFiles);
-            sessionStorage.storeFile(request.getSessionId(), zipFile);
+            // L'archive est confiée au stockage par référence, avec le nom d'entrée de chaque candidat
+            sessionStorage.storeArchive(sessionId, archive);
+            sessionStorage.storeCandidats(sessionId, batch.getSessionCandidats());
 
-            String downloadUrl = "/api/download/" + request.getSessionId();
+            String downloadUrl = "/api/download/" + sessionId;
 
-            log.info("Génération terminée: {} fichiers générés", generatedFiles.size());
+            log.info("Génération terminée: {} fichiers générés, {} erreur(s)", filesGenerated, errors.size());
 
+            String message = errors.isEmpty() ? "Génération réussie" : "Génération terminée avec " + errors.size() + " erreur(s)";
+            if (batch.getBaseArchive() != null) {
+                message += " (" + batch.getCandidats().size() + " convocation(s) régénérée(s))";
+            }
             return new GenerateResponseDto(
-                    request.getSessionId(),
-                    generatedFiles.size(),
+                    sessionId,
+                    filesGenerated,
                     downloadUrl,
-                    "Génération réussie"
+                    message,
+                    errors
             );
 
         } catch (Exception e) {
@@ -174,40 +474,228 @@ public class ConvocationService {
         }
     }
 
+    /**
+     * Recopie dans la nouvelle archive les convocations des candidats qui ne sont pas régénérés.
+     * Les entrées sont lues directement à leur position dans l'archive précédente.
+     */
+    private void copyUpToDateEntries(ConvocationBatch batch, ZipSpoolWriter zip) throws IOException {
+        Set<String> regenerated = new HashSet<>();
+        batch.getCandidats().forEach(candidat -> regenerated.add(candidat.getId()));
+
+        int copied = 0;
+        for (CandidatDto candidat : batch.getSessionCandidats()) {
+            if (regenerated.contains(candidat.getId())) {
+                continue;
+            }
+            byte[] pdf = zipService.extractEntry(batch.getBaseArchive(), candidat.getFichierConvocation());
+            if (pdf == null) {
+                log.warn("Convocation de {} {} absente de l'archive précédente", candidat.getPrenom(), candidat.getNom());
+                candidat.setFichierConvocation(null);
+                continue;
+            }
+            candidat.setFichierConvocation(zip.addStored(candidat.getFichierConvocation(), pdf));
+            copied++;
+        }
+        log.info("{} convocation(s) à jour reprise(s) de l'archive précédente", copied);
+    }
 
+    /**
+     * Produit les PDF des candidats selon le mode de rendu du lot et les transmet au consommateur
+     * dans l'ordre de la liste. Chaque tâche consulte d'abord le cache PDF depuis son worker : les
+     * convocations déjà produites sont lues en parallèle et restituées à leur place, les autres
+     * sont rendues puis mises en cache.
+     */
+    private void renderAll(List<CandidatDto> candidats, ConvocationBatch batch,
+                           Consumer<GenerationEngine.Outcome<CandidatDto, byte[]>> consumer) {
+        AtomicInteger cacheHits = new AtomicInteger();
+
+        if (batch.getRenderMode() == RenderMode.COMBINED && combinedRenderer.supports(batch)) {
+            // Un groupe de candidats par tâche : une seule conversion PDF par groupe
+            List<List<CandidatDto>> chunks = new ArrayList<>();
+            int chunkSize = Math.max(1, combinedChunkSize);
+            for (int i = 0; i < candidats.size(); i += chunkSize) {
+                chunks.add(candidats.subList(i, Math.min(i + chunkSize, candidats.size())));
+            }
 
+            generationEngine.process(chunks, chunk -> renderChunk(chunk, batch, cacheHits), chunkOutcome -> {
+                List<CandidatDto> chunk = chunkOutcome.getItem();
+                if (chunkOutcome.isSuccess() && chunkOutcome.getResult() != null) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        consumer.accept(GenerationEngine.Outcome.success(chunk.get(i), chunkOutcome.getResult().get(i)));
+                    }
+                } else {
+                    log.info("Rendu combiné impossible pour un groupe de {} candidat(s), conversion par document{}",
+                            chunk.size(), chunkOutcome.isSuccess() ? "" : ": " + chunkOutcome.getError().getMessage());
+                    generationEngine.process(chunk,
+                            candidat -> renderCached(candidat, batch, cacheHits, () -> renderPdf(candidat, batch, null)),
+                            consumer);
+                }
+            });
+        } else {
+            if (batch.getRenderMode() == RenderMode.COMBINED) {
+                log.info("Le modèle contient des placeholders d'en-tête ou de pied de page, conversion par document");
+            }
+            // Le PDF de base n'est préparé que si au moins un candidat est absent du cache
+            LazyOverlay overlay = new LazyOverlay(batch.getRenderMode() == RenderMode.OVERLAY
+                    ? () -> overlayRenderer.prepare(batch) : () -> null);
+            generationEngine.process(candidats,
+                    candidat -> renderCached(candidat, batch, cacheHits, () -> renderPdf(candidat, batch, overlay.get())),
+                    consumer);
+        }
 
+        if (pdfCache.isEnabled()) {
+            log.info("Cache PDF: {} convocation(s) reprise(s), {} générée(s)",
+                    cacheHits.get(), candidats.size() - cacheHits.get());
+        }
+    }
 
     /**
-     * Envoie les convocations par email
+     * PDF d'un candidat : repris du cache s'il y figure, sinon rendu puis mis en cache
      */
-    public void sendConvocationsByEmail(SendEmailRequestDto request) throws IOException {
-        log.info("Envoi des convocations par email pour la session {}", request.getSessionId());
+    private byte[] renderCached(CandidatDto candidat, ConvocationBatch batch, AtomicInteger cacheHits,
+                                Callable<byte[]> render) throws Exception {
+        String key = pdfCacheKey(candidat, batch);
+        byte[] pdf = key != null ? pdfCache.get(key) : null;
+        if (pdf != null) {
+            cacheHits.incrementAndGet();
+            return pdf;
+        }
+        pdf = render.call();
+        if (key != null && pdf != null) {
+            pdfCache.put(key, pdf);
+        }
+        return pdf;
+    }
 
-        List<CandidatDto> candidats = sessionStorage.getCandidats(request.getSessionId());
-        if (candidats == null || candidats.isEmpty()) {
-            throw new IllegalArgumentException("Aucun candidat trouvé pour cette session");
+    /**
+     * Rendu combiné d'un groupe : les convocations en cache sont reprises, les autres sont
+     * rendues en une seule conversion. Retourne null si le rendu combiné est impossible.
+     */
+    private List<byte[]> renderChunk(List<CandidatDto> chunk, ConvocationBatch batch,
+                                     AtomicInteger cacheHits) throws Exception {
+        byte[][] pdfs = new byte[chunk.size()][];
+        String[] keys = new String[chunk.size()];
+        List<CandidatDto> missing = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            keys[i] = pdfCacheKey(chunk.get(i), batch);
+            pdfs[i] = keys[i] != null ? pdfCache.get(keys[i]) : null;
+            if (pdfs[i] == null) {
+                missing.add(chunk.get(i));
+            }
         }
 
-        // Récupération du fichier ZIP
-        byte[] zip = sessionStorage.getFile(request.getSessionId());
-        if (zip == null) {
-            throw new IllegalStateException("Le fichier ZIP n'existe pas pour cette session. Génère les convocations d'abord.");
+        if (!missing.isEmpty()) {
+            List<byte[]> rendered = combinedRenderer.render(batch, missing);
+            if (rendered == null) {
+                return null;
+            }
+            Iterator<byte[]> it = rendered.iterator();
+            for (int i = 0; i < pdfs.length; i++) {
+                if (pdfs[i] == null) {
+                    pdfs[i] = it.next();
+                    if (keys[i] != null && pdfs[i] != null) {
+                        pdfCache.put(keys[i], pdfs[i]);
+                    }
+                }
+            }
         }
+        // Comptées une fois le groupe produit : un repli par document les relira
+        cacheHits.addAndGet(chunk.size() - missing.size());
+        return Arrays.asList(pdfs);
+    }
 
-        // Extraire les fichiers PDF
-        Map<CandidatDto, byte[]> convocations = zipService.extractFilesFromZip(zip, candidats);
+    /**
+     * Clé du cache PDF d'un candidat, ou null si le cache est désactivé ou si ses variables ne
+     * peuvent pas être résolues (l'erreur sera alors remontée par le rendu)
+     */
+    private String pdfCacheKey(CandidatDto candidat, ConvocationBatch batch) {
+        if (!pdfCache.isEnabled()) {
+            return null;
+        }
+        try {
+            return PdfResultCache.key(
+                    batch.getTemplate().getSha256(),
+                    batch.getRenderMode(),
+                    wordService.createVariableMapping(candidat, batch),
+                    batch.getSignature() != null ? batch.getSignature().getSha256() : null);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * PDF de base de l'incrustation, préparé une seule fois par le premier worker qui en a besoin.
+     * Si la préparation échoue, le lot entier passe par la conversion par document.
+     */
+    private static final class LazyOverlay {
+        private final Callable<PdfOverlayRenderer.OverlayTemplate> prepare;
+        private PdfOverlayRenderer.OverlayTemplate overlay;
+        private boolean prepared;
 
-        // Envoi des emails (on reste dans la classe, donc on peut appeler méthode privée)
-        for (Map.Entry<CandidatDto, byte[]> entry : convocations.entrySet()) {
-            emailService.sendConvocationEmail(entry.getKey(), entry.getValue(), request.getExamenLabel(), request.getCcEmails());
+        LazyOverlay(Callable<PdfOverlayRenderer.OverlayTemplate> prepare) {
+            this.prepare = prepare;
+        }
 
+        synchronized PdfOverlayRenderer.OverlayTemplate get() {
+            if (!prepared) {
+                try {
+                    overlay = prepare.call();
+                } catch (Exception e) {
+                    log.warn("Impossible de préparer le PDF de base pour l'incrustation, conversion par document: {}",
+                            e.getMessage());
+                }
+                prepared = true;
+            }
+            return overlay;
         }
     }
 
+    /**
+     * Produit le PDF d'un candidat : par incrustation si possible, sinon par conversion du document Word
+     */
+    private byte[] renderPdf(CandidatDto candidat, ConvocationBatch batch,
+                             PdfOverlayRenderer.OverlayTemplate overlay) throws Exception {
+        if (overlay != null) {
+            byte[] pdf = overlayRenderer.render(overlay, wordService.createVariableMapping(candidat, batch));
+            if (pdf != null) {
+                return pdf;
+            }
+            log.info("Incrustation impossible pour {} {}, conversion du document Word",
+                    candidat.getPrenom(), candidat.getNom());
+        }
 
+        // 1. Génère le Word
+        byte[] wordFile = wordService.generateConvocationForCandidat(candidat, batch);
 
+        // 2. Convertit en PDF
+        return pdfConverter.convertDocxToPdf(wordFile);
+    }
+
+    /**
+     * Récupère la convocation PDF d'un candidat, par son identifiant
+     */
+    public byte[] getGeneratedConvocation(String sessionId, String candidatId) {
+        byte[] pdf = artifactService.find(sessionId, getCandidat(sessionId, candidatId));
+        if (pdf == null) {
+            throw new IllegalArgumentException("Aucune convocation trouvée pour ce candidat");
+        }
+        return pdf;
+    }
 
+    /**
+     * Retrouve un candidat de la session par son identifiant
+     */
+    public CandidatDto getCandidat(String sessionId, String candidatId) {
+        List<CandidatDto> candidats = sessionStorage.getCandidats(sessionId);
+        if (candidats != null) {
+            for (CandidatDto candidat : candidats) {
+                if (candidatId.equals(candidat.getId())) {
+                    return candidat;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Candidat introuvable pour cette session");
+    }
 
     /**
      * Récupère le fichier ZIP généré
@@ -220,6 +708,33 @@ public class ConvocationService {
         return fileData;
     }
 
+    /**
+     * Récupère le chemin de l'archive ZIP générée, pour un téléchargement en flux
+     */
+    public Path getGeneratedArchive(String sessionId) {
+        Path archive = sessionStorage.getArchive(sessionId);
+        if (archive == null) {
+            throw new IllegalArgumentException("Aucun fichier trouvé pour cette session");
+        }
+        return archive;
+    }
+
+    /**
+     * Attribue un identifiant aux candidats qui n'en ont pas encore
+     *
+     * @return true si au moins un identifiant a été attribué
+     */
+    private boolean assignIds(List<CandidatDto> candidats) {
+        boolean assigned = false;
+        for (CandidatDto candidat : candidats) {
+            if (candidat.getId() == null) {
+                candidat.setId(UUID.randomUUID().toString());
+                assigned = true;
+            }
+        }
+        return assigned;
+    }
+
     /**
      * Valide le format du fichier Excel
      */
@@ -233,32 +748,37 @@ public class ConvocationService {
      */
     private void validateCandidats(List<CandidatDto> candidats, List<String> errors) {
         for (int i = 0; i < candidats.size(); i++) {
-            CandidatDto candidat = candidats.get(i);
+            validateCandidat(candidats.get(i), i + 2, errors);
+        }
+    }
 
-            // Validation de l'email
-            if (!isValidEmail(candidat.getEmail())) {
-                errors.add("Ligne " + (i + 2) + ": Email invalide - " + candidat.getEmail());
-            }
+    /**
+     * Valide les données d'un candidat lu à la ligne indiquée
+     */
+    private void validateCandidat(CandidatDto candidat, int line, List<String> errors) {
+        // Validation de l'email
+        if (!isValidEmail(candidat.getEmail())) {
+            errors.add("Ligne " + line + ": Email invalide - " + candidat.getEmail());
+        }
 
-            // Validation du nom
-            if (candidat.getNom() == null || candidat.getNom().trim().isEmpty()) {
-                errors.add("Ligne " + (i + 2) + ": Nom manquant");
-            }
+        // Validation du nom
+        if (candidat.getNom() == null || candidat.getNom().trim().isEmpty()) {
+            errors.add("Ligne " + line + ": Nom manquant");
+        }
 
-            // Validation du prénom
-            if (candidat.getPrenom() == null || candidat.getPrenom().trim().isEmpty()) {
-                errors.add("Ligne " + (i + 2) + ": Prénom manquant");
-            }
+        // Validation du prénom
+        if (candidat.getPrenom() == null || candidat.getPrenom().trim().isEmpty()) {
+            errors.add("Ligne " + line + ": Prénom manquant");
+        }
 
-            // Validation de la date
-            if (candidat.getDatePassage() == null) {
-                errors.add("Ligne " + (i + 2) + ": Date de passage manquante");
-            }
+        // Validation de la date
+        if (candidat.getDatePassage() == null) {
+            errors.add("Ligne " + line + ": Date de passage manquante");
+        }
 
-            // Validation de l'heure
-            if (candidat.getHeurePassage() == null) {
-                errors.add("Ligne " + (i + 2) + ": Heure de passage manquante");
-            }
+        // Validation de l'heure
+        if (candidat.getHeurePassage() == null) {
+            errors.add("Ligne " + line + ": Heure de passage manquante");
         }
     }
 
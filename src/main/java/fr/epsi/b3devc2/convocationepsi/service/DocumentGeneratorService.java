@@ -1,8 +1,10 @@
 package fr.epsi.b3devc2.convocationepsi.service;
 
 import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.FillMode;
 import fr.epsi.b3devc2.convocationepsi.dto.GenerateConvocationRequestDto;
 import fr.epsi.b3devc2.convocationepsi.model.*;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.xwpf.usermodel.*;
 import org.springframework.stereotype.Service;
@@ -20,9 +22,12 @@ import java.util.regex.Pattern;
 
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class DocumentGeneratorService {
 
+    private final StreamingDocxFiller streamingDocxFiller;
+
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
 
@@ -30,43 +35,35 @@ public class DocumentGeneratorService {
     private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{\\{[A-Z_]+\\}\\}");
 
     /**
-     * Génère un document Word pour un candidat
+     * Génère un document Word pour un candidat à partir du modèle précompilé du lot
      */
-    public byte[] generateConvocationForCandidat(
-            CandidatDto candidat,
-            GenerateConvocationRequestDto request,
-            InputStream templateInputStream,
-            Ville ville,
-            TypeExamen typeExamen,
-            Certification certification,
-            Adresse adresse,
-            DureeEpreuve dureeEpreuve) throws IOException {
+    public byte[] generateConvocationForCandidat(CandidatDto candidat, ConvocationBatch batch) throws IOException {
 
         log.info("Génération de convocation pour {} {}", candidat.getPrenom(), candidat.getNom());
 
+        PrecompiledTemplate template = batch.getTemplate();
+
         // Créer le mapping des variables avec validation
-        Map<String, String> variables = createVariableMapping(
-                candidat, request, ville, typeExamen, certification, adresse, dureeEpreuve
-        );
+        Map<String, String> variables = createVariableMapping(candidat, batch);
 
         log.debug("Variables créées: {}", variables);
 
-        // Charger le template et remplacer les variables
-        try (XWPFDocument document = new XWPFDocument(templateInputStream);
+        if (batch.getFillMode() == FillMode.STREAMING) {
+            return generateStreaming(candidat, batch, variables);
+        }
+
+        // Ouvrir le modèle et remplacer les variables aux emplacements déjà repérés
+        try (XWPFDocument document = template.open();
              ByteArrayOutputStream out = new ByteArrayOutputStream()) {
 
-            // Remplacer les variables avec la méthode améliorée
-            replaceAllVariables(document, variables);
+            List<PrecompiledTemplate.LocatedParagraph> paragraphs = PrecompiledTemplate.collectParagraphs(document);
+            for (PrecompiledTemplate.PlaceholderLocation location : template.getLocations()) {
+                replaceVariablesInParagraph(paragraphs.get(location.getOrdinal()).getParagraph(), variables);
+            }
 
             // Insérer la signature si présente
-            if (request.getSignatureImage() != null && !request.getSignatureImage().isEmpty()) {
-                try (InputStream sigStream = request.getSignatureImage().getInputStream()) {
-                    insertSignatureImage(document, "{{SIGN}}", sigStream);
-                    log.info("Signature insérée dans le document pour {} {}", candidat.getPrenom(), candidat.getNom());
-                } catch (Exception e) {
-                    log.error("Erreur lors de l'insertion de la signature pour {} {}: {}",
-                            candidat.getPrenom(), candidat.getNom(), e.getMessage());
-                }
+            if (insertBatchSignature(paragraphs, batch)) {
+                log.info("Signature insérée dans le document pour {} {}", candidat.getPrenom(), candidat.getNom());
             }
 
             document.write(out);
@@ -82,6 +79,70 @@ public class DocumentGeneratorService {
         }
     }
 
+    /**
+     * Produit le modèle avec la seule signature du lot insérée, les placeholders restant intacts
+     */
+    public byte[] generateBaseDocument(ConvocationBatch batch) throws IOException {
+        try (XWPFDocument document = batch.getTemplate().open();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            insertBatchSignature(PrecompiledTemplate.collectParagraphs(document), batch);
+            document.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Insère la signature du lot au premier placeholder {{SIGN}} repéré dans le modèle
+     */
+    private boolean insertBatchSignature(List<PrecompiledTemplate.LocatedParagraph> paragraphs, ConvocationBatch batch) {
+        if (batch.getSignature() == null) {
+            return false;
+        }
+
+        Optional<PrecompiledTemplate.PlaceholderLocation> signLocation = batch.getTemplate().findFirst("{{SIGN}}");
+        if (signLocation.isEmpty()) {
+            log.warn("Placeholder de signature '{}' non trouvé dans le document", "{{SIGN}}");
+            return false;
+        }
+
+        try (InputStream sigStream = batch.getSignature().openStream()) {
+            XWPFParagraph paragraph = paragraphs.get(signLocation.get().getOrdinal()).getParagraph();
+            return insertSignatureInParagraph(paragraph, "{{SIGN}}", sigStream);
+        } catch (Exception e) {
+            log.error("Erreur lors de l'insertion de la signature: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Remplissage en flux StAX, sans construire le modèle objet XWPF
+     */
+    private byte[] generateStreaming(CandidatDto candidat, ConvocationBatch batch, Map<String, String> variables)
+            throws IOException {
+        byte[] signature = batch.getSignature() != null ? batch.getSignature().getPngBytes() : null;
+
+        try {
+            byte[] result = streamingDocxFiller.fill(batch.getTemplate(), variables, signature);
+            log.info("Document généré en flux pour {} {} (taille: {} bytes)",
+                    candidat.getPrenom(), candidat.getNom(), result.length);
+            return result;
+        } catch (Exception e) {
+            log.error("Erreur lors de la génération du document pour {} {}: {}",
+                    candidat.getPrenom(), candidat.getNom(), e.getMessage(), e);
+            throw new IOException("Erreur lors de la génération: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Crée le mapping des variables d'un candidat pour un lot
+     */
+    public Map<String, String> createVariableMapping(CandidatDto candidat, ConvocationBatch batch) {
+        return createVariableMapping(
+                candidat, batch.getRequest(), batch.getVille(), batch.getTypeExamen(),
+                batch.getCertification(), batch.getAdresse(), batch.getDureeEpreuve()
+        );
+    }
+
     /**
      * Crée le mapping des variables pour le remplacement avec validation
      */
@@ -188,52 +249,6 @@ public class DocumentGeneratorService {
      */
 
 
-    /**
-     * Remplace toutes les variables dans le document de manière robuste
-     */
-    private void replaceAllVariables(XWPFDocument document, Map<String, String> variables) {
-        // Remplacer dans les paragraphes principaux
-        replaceVariablesInParagraphs(document.getParagraphs(), variables);
-
-        // Remplacer dans les tableaux
-        for (XWPFTable table : document.getTables()) {
-            replaceVariablesInTable(table, variables);
-        }
-
-        // Remplacer dans les en-têtes
-        for (XWPFHeader header : document.getHeaderList()) {
-            replaceVariablesInParagraphs(header.getParagraphs(), variables);
-            for (XWPFTable table : header.getTables()) {
-                replaceVariablesInTable(table, variables);
-            }
-        }
-
-        // Remplacer dans les pieds de page
-        for (XWPFFooter footer : document.getFooterList()) {
-            replaceVariablesInParagraphs(footer.getParagraphs(), variables);
-            for (XWPFTable table : footer.getTables()) {
-                replaceVariablesInTable(table, variables);
-            }
-        }
-    }
-
-    /**
-     * Remplace les variables dans une liste de paragraphes
-     */
-    private void replaceVariablesInParagraphs(List<XWPFParagraph> paragraphs, Map<String, String> variables) {
-        for (XWPFParagraph paragraph : paragraphs) {
-            replaceVariablesInParagraph(paragraph, variables);
-        }
-    }
-
-
-    // Ajoutez cette liste des variables qui doivent être en gras
-    private static final Set<String> BOLD_VARIABLES = Set.of(
-            "{{HORAIRE}}",
-            "{{SALLE}}",
-            "{{ADRESSE}}"
-    );
-
     /**
      * Version corrigée du remplacement de variables avec gestion appropriée des espaces
      */
@@ -250,30 +265,15 @@ public class DocumentGeneratorService {
             }
         }
 
-        String originalText = fullText.toString();
-        String modifiedText = originalText;
-        boolean hasChanges = false;
-        Map<String, String> appliedVariables = new HashMap<>();
+        // Sauvegarder le formatage du premier run
+        XWPFRun firstRun = runs.get(0);
+        boolean isBold = firstRun.isBold();
 
-        log.debug("Texte paragraphe AVANT: '{}'", originalText);
-
-        // Remplacer toutes les variables et garder une trace de celles remplacées
-        for (Map.Entry<String, String> entry : variables.entrySet()) {
-            if (modifiedText.contains(entry.getKey())) {
-                log.debug("REMPLACEMENT: '{}' -> '{}'", entry.getKey(), entry.getValue());
-                modifiedText = modifiedText.replace(entry.getKey(), entry.getValue());
-                appliedVariables.put(entry.getKey(), entry.getValue());
-                hasChanges = true;
-            }
-        }
+        List<PlaceholderSubstitution.TextSegment> segments =
+                PlaceholderSubstitution.substitute(fullText.toString(), variables, isBold);
 
         // Si des changements ont été effectués, reconstruire le paragraphe
-        if (hasChanges) {
-            log.debug("Texte paragraphe APRÈS: '{}'", modifiedText);
-
-            // Sauvegarder le formatage du premier run
-            XWPFRun firstRun = runs.get(0);
-            boolean isBold = firstRun.isBold();
+        if (segments != null) {
             boolean isItalic = firstRun.isItalic();
             UnderlinePatterns underline = firstRun.getUnderline();
             String fontFamily = firstRun.getFontFamily();
@@ -284,108 +284,13 @@ public class DocumentGeneratorService {
                 paragraph.removeRun(0);
             }
 
-            // Créer le nouveau contenu avec formatage approprié
-            createFormattedRuns(paragraph, modifiedText, appliedVariables, isBold, isItalic, underline, fontFamily, fontSize);
-        }
-    }
-
-    /**
-     * Crée les runs avec le formatage approprié pour les variables en gras
-     */
-    private void createFormattedRuns(XWPFParagraph paragraph, String text, Map<String, String> appliedVariables,
-                                     boolean defaultBold, boolean defaultItalic, UnderlinePatterns defaultUnderline,
-                                     String defaultFont, int defaultSize) {
-
-        // Trouver toutes les positions des valeurs qui doivent être en gras
-        Map<Integer, String> boldPositions = new HashMap<>();
-
-        for (Map.Entry<String, String> entry : appliedVariables.entrySet()) {
-            // Une variable doit être en gras si :
-            // 1. Elle était déjà en gras dans le template (defaultBold = true)
-            // 2. OU elle est dans la liste des variables qui doivent être en gras
-            if (defaultBold || BOLD_VARIABLES.contains(entry.getKey())) {
-                String value = entry.getValue();
-                int index = text.indexOf(value);
-                while (index != -1) {
-                    boldPositions.put(index, value);
-                    index = text.indexOf(value, index + value.length());
-                }
-            }
-        }
-
-        if (boldPositions.isEmpty()) {
-            // Aucune variable en gras, créer un seul run avec le formatage par défaut
-            XWPFRun run = paragraph.createRun();
-            run.setText(text);
-            applyFormatting(run, defaultBold, defaultItalic, defaultUnderline, defaultFont, defaultSize);
-        } else {
             // Créer des runs séparés pour les parties en gras et normales
-            List<TextSegment> segments = createTextSegments(text, boldPositions);
-
-            for (TextSegment segment : segments) {
+            for (PlaceholderSubstitution.TextSegment segment : segments) {
                 XWPFRun run = paragraph.createRun();
                 run.setText(segment.text);
-                // Pour les segments en gras, forcer le gras même si defaultBold est false
-                applyFormatting(run, segment.isBold || defaultBold, defaultItalic, defaultUnderline, defaultFont, defaultSize);
-            }
-        }
-    }
-
-    /**
-     * Classe pour représenter un segment de texte avec son formatage
-     */
-    private static class TextSegment {
-        String text;
-        boolean isBold;
-
-        TextSegment(String text, boolean isBold) {
-            this.text = text;
-            this.isBold = isBold;
-        }
-    }
-
-    /**
-     * Crée les segments de texte avec leur formatage
-     */
-    private List<TextSegment> createTextSegments(String text, Map<Integer, String> boldPositions) {
-        List<TextSegment> segments = new ArrayList<>();
-
-        if (boldPositions.isEmpty()) {
-            segments.add(new TextSegment(text, false));
-            return segments;
-        }
-
-        // Trier les positions
-        List<Integer> sortedPositions = new ArrayList<>(boldPositions.keySet());
-        sortedPositions.sort(Integer::compareTo);
-
-        int currentPos = 0;
-
-        for (int position : sortedPositions) {
-            String boldValue = boldPositions.get(position);
-
-            // Ajouter le texte avant la variable (si il y en a)
-            if (position > currentPos) {
-                String beforeText = text.substring(currentPos, position);
-                if (!beforeText.isEmpty()) {
-                    segments.add(new TextSegment(beforeText, false));
-                }
-            }
-
-            // Ajouter la variable en gras
-            segments.add(new TextSegment(boldValue, true));
-            currentPos = position + boldValue.length();
-        }
-
-        // Ajouter le texte restant (si il y en a)
-        if (currentPos < text.length()) {
-            String remainingText = text.substring(currentPos);
-            if (!remainingText.isEmpty()) {
-                segments.add(new TextSegment(remainingText, false));
+                applyFormatting(run, segment.isBold, isItalic, underline, fontFamily, fontSize);
             }
         }
-
-        return segments;
     }
 
     /**
@@ -410,15 +315,6 @@ public class DocumentGeneratorService {
         }
     }
 
-    /**
-     * Version simplifiée sans la gestion des variables réparties sur plusieurs runs
-     * (car elle est maintenant gérée dans replaceVariablesInParagraph)
-     */
-    private void handleVariablesAcrossRunsWithBold(XWPFParagraph paragraph, Map<String, String> variables) {
-        // Cette méthode n'est plus nécessaire car la logique est intégrée dans replaceVariablesInParagraph
-        // Garder pour compatibilité ou supprimer si pas utilisée ailleurs
-    }
-
     /**
      * Méthode utilitaire pour nettoyer les espaces multiples
      */
@@ -435,88 +331,6 @@ public class DocumentGeneratorService {
         return cleanSpaces(value);
     }
 
-    /**
-     * Vérifie si une variable est contenue entièrement dans un seul run
-     */
-    private boolean isVariableInSingleRun(List<XWPFRun> runs, String variable) {
-        for (XWPFRun run : runs) {
-            String runText = run.getText(0);
-            if (runText != null && runText.contains(variable)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Remplace les variables dans un tableau
-     */
-    private void replaceVariablesInTable(XWPFTable table, Map<String, String> variables) {
-        for (XWPFTableRow row : table.getRows()) {
-            for (XWPFTableCell cell : row.getTableCells()) {
-                replaceVariablesInParagraphs(cell.getParagraphs(), variables);
-                // Gérer les tableaux imbriqués
-                for (XWPFTable nestedTable : cell.getTables()) {
-                    replaceVariablesInTable(nestedTable, variables);
-                }
-            }
-        }
-    }
-
-    /**
-     * Insère une image de signature de manière robuste
-     */
-    public void insertSignatureImage(XWPFDocument doc, String placeholder, InputStream imageStream) throws Exception {
-        boolean signatureInserted = false;
-
-        // Chercher dans tous les paragraphes
-        for (XWPFParagraph paragraph : doc.getParagraphs()) {
-            if (insertSignatureInParagraph(paragraph, placeholder, imageStream)) {
-                signatureInserted = true;
-                break;
-            }
-        }
-
-        // Chercher dans les tableaux si pas encore trouvé
-        if (!signatureInserted) {
-            for (XWPFTable table : doc.getTables()) {
-                if (insertSignatureInTable(table, placeholder, imageStream)) {
-                    signatureInserted = true;
-                    break;
-                }
-            }
-        }
-
-        // Chercher dans les en-têtes et pieds de page si pas encore trouvé
-        if (!signatureInserted) {
-            for (XWPFHeader header : doc.getHeaderList()) {
-                for (XWPFParagraph paragraph : header.getParagraphs()) {
-                    if (insertSignatureInParagraph(paragraph, placeholder, imageStream)) {
-                        signatureInserted = true;
-                        break;
-                    }
-                }
-                if (signatureInserted) break;
-            }
-        }
-
-        if (!signatureInserted) {
-            for (XWPFFooter footer : doc.getFooterList()) {
-                for (XWPFParagraph paragraph : footer.getParagraphs()) {
-                    if (insertSignatureInParagraph(paragraph, placeholder, imageStream)) {
-                        signatureInserted = true;
-                        break;
-                    }
-                }
-                if (signatureInserted) break;
-            }
-        }
-
-        if (!signatureInserted) {
-            log.warn("Placeholder de signature '{}' non trouvé dans le document", placeholder);
-        }
-    }
-
     /**
      * Insère la signature dans un paragraphe
      */
@@ -550,8 +364,8 @@ public class DocumentGeneratorService {
                     imageStream,
                     XWPFDocument.PICTURE_TYPE_PNG,
                     "signature.png",
-                    Units.toEMU(260), // Largeur réduite pour éviter les décalages
-                    Units.toEMU(70)   // Hauteur réduite
+                    Units.toEMU(SignatureImageService.BOX_WIDTH_PT), // Largeur réduite pour éviter les décalages
+                    Units.toEMU(SignatureImageService.BOX_HEIGHT_PT)  // Hauteur réduite
             );
 
             return true;
@@ -560,22 +374,6 @@ public class DocumentGeneratorService {
         return false;
     }
 
-    /**
-     * Insère la signature dans un tableau
-     */
-    private boolean insertSignatureInTable(XWPFTable table, String placeholder, InputStream imageStream) throws Exception {
-        for (XWPFTableRow row : table.getRows()) {
-            for (XWPFTableCell cell : row.getTableCells()) {
-                for (XWPFParagraph paragraph : cell.getParagraphs()) {
-                    if (insertSignatureInParagraph(paragraph, placeholder, imageStream)) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
     /**
      * Génère le nom du fichier pour un candidat
      */
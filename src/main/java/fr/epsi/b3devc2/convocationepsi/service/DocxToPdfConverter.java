@@ -1,29 +1,185 @@
 package fr.epsi.b3devc2.convocationepsi.service;
 
 
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.fop.apps.FopFactory;
 import org.docx4j.Docx4J;
 import org.docx4j.convert.out.FOSettings;
+import org.docx4j.convert.out.fo.renderers.FORendererApacheFOP;
+import org.docx4j.convert.out.fopconf.Fop;
 import org.docx4j.fonts.IdentityPlusMapper;
 import org.docx4j.fonts.Mapper;
 import org.docx4j.fonts.PhysicalFonts;
+import org.docx4j.fonts.fop.util.FopConfigUtil;
 import org.docx4j.openpackaging.packages.WordprocessingMLPackage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Conversion DOCX vers PDF via docx4j. La découverte des polices est faite une seule fois
+ * au démarrage, chaque thread réutilise son propre font mapper, et une conversion de
+ * préchauffage est exécutée avant que l'application n'accepte du trafic.
+ * <p>
+ * docx4j dérive la configuration FOP des polices utilisées par chaque document : une fabrique
+ * unique ne peut donc pas servir à tous les modèles. La fabrique FOP et sa configuration sont
+ * construites une seule fois par jeu de polices, puis partagées entre threads et conversions
+ * (seuls les FOSettings, qui portent le document, et l'agent utilisateur FOP restent propres
+ * à chaque conversion). Celles des modèles fournis sont préparées au démarrage.
+ */
 @Service
 @Slf4j
 public class DocxToPdfConverter {
 
-    public static byte[] convertDocxToPdf(byte[] docxBytes) throws Exception {
-        try (InputStream docxInputStream = new ByteArrayInputStream(docxBytes);
-             ByteArrayOutputStream pdfOutputStream = new ByteArrayOutputStream()) {
-        //Convertir le fichier DOCX en PDF
+    @Value("${convocation.pdf.warmup.enabled:true}")
+    private boolean warmupEnabled;
+
+    @Value("${convocation.pdf.font-regex:}")
+    private String fontRegex;
+
+    @Value("${convocation.pdf.preload-templates:classpath:templates/*.docx}")
+    private String preloadTemplates;
+
+    // Le mapper est modifié à chaque chargement de police : un exemplaire par thread
+    private final ThreadLocal<Mapper> fontMappers = ThreadLocal.withInitial(IdentityPlusMapper::new);
+
+    // Configuration et fabrique FOP par jeu de polices utilisées
+    private final Map<Set<String>, FopSetup> fopSetups = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        discoverFonts();
+        if (warmupEnabled) {
+            prepareBundledTemplates();
+        }
+    }
+
+    private void discoverFonts() {
+        long start = System.currentTimeMillis();
+        try {
+            if (fontRegex != null && !fontRegex.isBlank()) {
+                PhysicalFonts.setRegex(fontRegex);
+            }
+            PhysicalFonts.discoverPhysicalFonts();
+            log.info("Polices physiques découvertes en {} ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Impossible de découvrir les polices physiques: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Construit la configuration FOP des modèles fournis, avant toute génération
+     */
+    private void prepareBundledTemplates() {
+        long start = System.currentTimeMillis();
+        try {
+            for (Resource template : new PathMatchingResourcePatternResolver().getResources(preloadTemplates)) {
+                try (InputStream in = template.getInputStream()) {
+                    WordprocessingMLPackage wordMLPackage = WordprocessingMLPackage.load(in);
+                    wordMLPackage.setFontMapper(fontMappers.get());
+                    fopSetup(wordMLPackage);
+                }
+            }
+            log.info("{} configuration(s) FOP préparée(s) en {} ms", fopSetups.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Impossible de préparer la configuration FOP des modèles: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Préchauffe la chaîne FO/FOP avec un document synthétique (ApplicationStartedEvent
+     * précède le passage de l'application à l'état prêt)
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void warmUp() {
+        if (!warmupEnabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            WordprocessingMLPackage wordMLPackage = WordprocessingMLPackage.createPackage();
+            wordMLPackage.getMainDocumentPart().addStyledParagraphOfText("Title", "Convocation");
+            wordMLPackage.getMainDocumentPart().addParagraphOfText("Préchauffage du convertisseur PDF");
+            convert(wordMLPackage);
+            log.info("Convertisseur PDF préchauffé en {} ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Échec du préchauffage du convertisseur PDF: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Convertit un fichier DOCX en PDF
+     */
+    public byte[] convertDocxToPdf(byte[] docxBytes) throws Exception {
+        try (InputStream docxInputStream = new ByteArrayInputStream(docxBytes)) {
+            //Convertir le fichier DOCX en PDF
             WordprocessingMLPackage wordMLPackage = WordprocessingMLPackage.load(docxInputStream);
-            Docx4J.toPDF(wordMLPackage, pdfOutputStream);
+            return convert(wordMLPackage);
+        }
+    }
+
+    private byte[] convert(WordprocessingMLPackage wordMLPackage) throws Exception {
+        wordMLPackage.setFontMapper(fontMappers.get());
+        FopSetup fopSetup = fopSetup(wordMLPackage);
+
+        // La configuration fournie évite que setOpcPackage ne la recalcule
+        FOSettings foSettings = Docx4J.createFOSettings();
+        foSettings.setFopConfig(fopSetup.getConfig());
+        foSettings.getSettings().put(FORendererApacheFOP.FOP_FACTORY, fopSetup.getFactory());
+        foSettings.setOpcPackage(wordMLPackage);
 
+        try (ByteArrayOutputStream pdfOutputStream = new ByteArrayOutputStream()) {
+            Docx4J.toFO(foSettings, pdfOutputStream, Docx4J.FLAG_NONE);
             return pdfOutputStream.toByteArray();
         }
     }
+
+    /**
+     * Configuration et fabrique FOP correspondant aux polices du document, construites au premier besoin
+     */
+    private FopSetup fopSetup(WordprocessingMLPackage wordMLPackage) throws Exception {
+        Set<String> fonts = new TreeSet<>(wordMLPackage.getMainDocumentPart().fontsInUse());
+        FopSetup setup = fopSetups.get(fonts);
+        if (setup == null) {
+            // Deux threads peuvent construire la même fabrique, une seule est conservée
+            setup = buildFopSetup(wordMLPackage.getFontMapper(), fonts);
+            FopSetup existing = fopSetups.putIfAbsent(fonts, setup);
+            if (existing != null) {
+                setup = existing;
+            }
+        }
+        return setup;
+    }
+
+    private static FopSetup buildFopSetup(Mapper fontMapper, Set<String> fonts) throws Exception {
+        Fop config = FopConfigUtil.createConfigurationObject(fontMapper, fonts);
+        FOSettings settings = new FOSettings();
+        settings.setFopConfig(config);
+        FopFactory factory = FORendererApacheFOP.getFopFactoryBuilder(settings).build();
+        log.debug("Fabrique FOP construite pour les polices {}", fonts);
+        return new FopSetup(config, factory);
+    }
+
+    /**
+     * Configuration FOP (fonts déclarées) et fabrique construite à partir de celle-ci ;
+     * la fabrique est thread-safe
+     */
+    @Getter
+    @AllArgsConstructor
+    private static final class FopSetup {
+        private final Fop config;
+        private final FopFactory factory;
+    }
 }
@@ -0,0 +1,373 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.DeliveryReportDto;
+import fr.epsi.b3devc2.convocationepsi.dto.DeliveryStatusDto;
+import fr.epsi.b3devc2.convocationepsi.dto.MailThrottleStatsDto;
+import fr.epsi.b3devc2.convocationepsi.dto.SendEmailRequestDto;
+import fr.epsi.b3devc2.convocationepsi.model.EmailOutbox;
+import fr.epsi.b3devc2.convocationepsi.model.EmailStatus;
+import fr.epsi.b3devc2.convocationepsi.repository.EmailOutboxRepository;
+import fr.epsi.b3devc2.convocationepsi.storage.SessionStorage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * File d'envoi persistante des convocations : chaque email est journalisé (en attente, en cours,
+ * envoyé, en échec) avant d'être envoyé. Un échec est retenté avec un délai exponentiel jusqu'au
+ * nombre maximal de tentatives, et un nouvel envoi de la session ne traite que les emails
+ * qui ne sont pas encore partis. Les envois sont faits par un thread dédié : une demande
+ * d'envoi ne fait que mettre en file.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutboxService {
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailService emailService;
+    private final BulkMailSender bulkMailSender;
+    private final MailRateLimiter rateLimiter;
+    private final ConvocationArtifactService artifactService;
+    private final SessionStorage sessionStorage;
+
+    @Value("${convocation.mail.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${convocation.mail.outbox.initial-backoff:PT1M}")
+    private Duration initialBackoff;
+
+    @Value("${convocation.mail.outbox.max-backoff:PT1H}")
+    private Duration maxBackoff;
+
+    // Un seul thread d'envoi, avec au plus un passage en attente : les demandes rapprochées sont
+    // regroupées, et ni la requête HTTP ni le planificateur partagé ne sont bloqués pendant l'envoi
+    private ThreadPoolExecutor drainExecutor;
+
+    // Protège le passage "en file" -> "en cours" contre une réinitialisation concurrente
+    private final Object stateLock = new Object();
+
+    @PostConstruct
+    void init() {
+        drainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mail-outbox");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Les emails interrompus restent "en cours" et sont remis en file au redémarrage
+        drainExecutor.shutdownNow();
+    }
+
+    /**
+     * Emails restés "en cours" lors d'un arrêt : remis en file (un doublon est préférable à une perte)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverInterruptedDeliveries() {
+        List<EmailOutbox> interrupted = outboxRepository.findByStatus(EmailStatus.SENDING);
+        if (!interrupted.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            interrupted.forEach(record -> {
+                record.setStatus(EmailStatus.QUEUED);
+                record.setNextAttemptAt(now);
+                record.setUpdatedAt(now);
+            });
+            outboxRepository.saveAll(interrupted);
+            log.info("{} email(s) interrompu(s) remis en file", interrupted.size());
+        }
+    }
+
+    /**
+     * Met en file les convocations de la session qui n'ont pas encore été envoyées ; l'envoi se fait
+     * en arrière-plan, suivi via getReport
+     */
+    public DeliveryReportDto sendSession(SendEmailRequestDto request) {
+        String sessionId = request.getSessionId();
+        List<CandidatDto> candidats = sessionStorage.getCandidats(sessionId);
+
+        if (candidats == null || candidats.isEmpty()) {
+            throw new IllegalArgumentException("Aucun candidat trouvé pour la session");
+        }
+
+        if (sessionStorage.getArchive(sessionId) == null) {
+            throw new IllegalStateException("Aucune convocation générée pour cette session.");
+        }
+
+        enqueue(request, candidats, false);
+        requestDrain();
+        return getReport(sessionId);
+    }
+
+    /**
+     * Remet en file la convocation d'un candidat, même si elle a déjà été envoyée
+     */
+    public DeliveryStatusDto sendCandidat(SendEmailRequestDto request, String candidatId) {
+        List<CandidatDto> candidats = sessionStorage.getCandidats(request.getSessionId());
+        if (candidats == null) {
+            throw new IllegalArgumentException("Aucun candidat trouvé pour la session");
+        }
+        CandidatDto candidat = candidats.stream()
+                .filter(c -> candidatId.equals(c.getId()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Candidat introuvable pour cette session"));
+
+        enqueue(request, List.of(candidat), true);
+        requestDrain();
+        return outboxRepository.findBySessionIdOrderByIdAsc(request.getSessionId()).stream()
+                .filter(record -> record.getCandidatId().equals(candidatId))
+                .findFirst()
+                .map(this::toDto)
+                .orElse(null);
+    }
+
+    /**
+     * Oublie les envois des candidats ajoutés ou modifiés par une réimportation : leur convocation
+     * va être régénérée, et le prochain envoi de la session la leur enverra même si l'ancienne
+     * version était déjà partie. Un email en cours d'envoi n'est pas touché.
+     */
+    public void resetCandidats(String sessionId, Collection<String> candidatIds) {
+        if (candidatIds.isEmpty()) {
+            return;
+        }
+        Set<String> ids = new HashSet<>(candidatIds);
+        synchronized (stateLock) {
+            List<EmailOutbox> stale = outboxRepository.findBySessionIdOrderByIdAsc(sessionId).stream()
+                    .filter(record -> ids.contains(record.getCandidatId()))
+                    .filter(record -> record.getStatus() != EmailStatus.SENDING)
+                    .toList();
+            if (!stale.isEmpty()) {
+                outboxRepository.deleteAll(stale);
+                log.info("{} envoi(s) réinitialisé(s) pour la session {} après réimportation", stale.size(), sessionId);
+            }
+        }
+    }
+
+    /**
+     * Bilan des envois d'une session, candidat par candidat
+     */
+    public DeliveryReportDto getReport(String sessionId) {
+        List<DeliveryStatusDto> deliveries = outboxRepository.findBySessionIdOrderByIdAsc(sessionId).stream()
+                .map(this::toDto)
+                .toList();
+        Map<EmailStatus, Long> counts = deliveries.stream()
+                .collect(Collectors.groupingBy(DeliveryStatusDto::getStatus, Collectors.counting()));
+        return new DeliveryReportDto(sessionId, deliveries.size(),
+                counts.getOrDefault(EmailStatus.QUEUED, 0L).intValue(),
+                counts.getOrDefault(EmailStatus.SENDING, 0L).intValue(),
+                counts.getOrDefault(EmailStatus.SENT, 0L).intValue(),
+                counts.getOrDefault(EmailStatus.FAILED, 0L).intValue(),
+                deliveries, reportUrl(sessionId));
+    }
+
+    /**
+     * Adresse du bilan des envois d'une session
+     */
+    public static String reportUrl(String sessionId) {
+        return "/api/deliveries/" + sessionId;
+    }
+
+    /**
+     * Débit d'envoi courant et profondeur des files d'attente
+     */
+    public MailThrottleStatsDto getThrottleStats() {
+        MailThrottleStatsDto stats = rateLimiter.getStats();
+        stats.setPendingInPool(bulkMailSender.getPendingCount());
+        stats.setQueuedInOutbox(outboxRepository.countByStatus(EmailStatus.QUEUED));
+        return stats;
+    }
+
+    /**
+     * Reprise périodique des emails dont le délai de nouvelle tentative est écoulé
+     */
+    @Scheduled(fixedDelayString = "${convocation.mail.outbox.retry-interval-ms:30000}")
+    public void retryDueDeliveries() {
+        requestDrain();
+    }
+
+    /**
+     * Demande un passage sur la file ; ignorée si un passage est déjà en attente, car il traitera
+     * aussi les emails mis en file entre-temps
+     */
+    private void requestDrain() {
+        drainExecutor.execute(() -> {
+            try {
+                processDue();
+            } catch (RuntimeException e) {
+                log.error("Erreur lors du traitement de la file d'envoi", e);
+            }
+        });
+    }
+
+    /**
+     * Crée ou réactive l'entrée de chaque candidat. Les emails déjà envoyés ne sont réactivés
+     * que sur demande explicite.
+     */
+    private void enqueue(SendEmailRequestDto request, List<CandidatDto> candidats, boolean includeSent) {
+        // Sous le verrou d'état : un passage ne peut pas basculer un email en SENDING entre la
+        // lecture et l'enregistrement, ce qui écraserait son statut par une copie périmée
+        String sessionId = request.getSessionId();
+        List<EmailOutbox> toSave = new ArrayList<>();
+        synchronized (stateLock) {
+            Map<String, EmailOutbox> existing = outboxRepository.findBySessionIdOrderByIdAsc(sessionId).stream()
+                    .collect(Collectors.toMap(EmailOutbox::getCandidatId, Function.identity()));
+            String ccEmails = request.getCcEmails() != null ? String.join(",", request.getCcEmails()) : null;
+            LocalDateTime now = LocalDateTime.now();
+
+            for (CandidatDto candidat : candidats) {
+                EmailOutbox record = existing.get(candidat.getId());
+                if (record == null) {
+                    record = new EmailOutbox();
+                    record.setSessionId(sessionId);
+                    record.setCandidatId(candidat.getId());
+                    record.setCreatedAt(now);
+                } else if (record.getStatus() == EmailStatus.SENDING
+                        || (record.getStatus() == EmailStatus.SENT && !includeSent)) {
+                    continue;
+                }
+                record.setRecipient(candidat.getEmail());
+                record.setNom(candidat.getNom());
+                record.setPrenom(candidat.getPrenom());
+                record.setExamenLabel(request.getExamenLabel());
+                record.setCcEmails(ccEmails);
+                record.setStatus(EmailStatus.QUEUED);
+                record.setAttempts(0);
+                record.setNextAttemptAt(now);
+                record.setLastError(null);
+                record.setUpdatedAt(now);
+                toSave.add(record);
+            }
+            outboxRepository.saveAll(toSave);
+        }
+        log.info("{} email(s) mis en file pour la session {}", toSave.size(), sessionId);
+    }
+
+    /**
+     * Envoie les emails en file dont l'échéance est atteinte ; exécuté par le thread d'envoi
+     */
+    void processDue() {
+        List<EmailOutbox> due;
+        synchronized (stateLock) {
+            due = outboxRepository
+                    .findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(EmailStatus.QUEUED, LocalDateTime.now());
+            if (due.isEmpty()) {
+                return;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            due.forEach(record -> {
+                record.setStatus(EmailStatus.SENDING);
+                record.setAttempts(record.getAttempts() + 1);
+                record.setUpdatedAt(now);
+            });
+            due = outboxRepository.saveAll(due);
+        }
+
+        Map<String, Map<String, CandidatDto>> candidatsBySession = new HashMap<>();
+        BulkMailSender.BulkMailReport<EmailOutbox> report = bulkMailSender.send(due, record -> {
+            CandidatDto candidat = findCandidat(candidatsBySession, record);
+            byte[] pdf = artifactService.find(record.getSessionId(), candidat);
+            if (pdf == null) {
+                throw new IllegalStateException("Aucune convocation générée pour " +
+                        record.getPrenom() + " " + record.getNom());
+            }
+            List<String> cc = record.getCcEmails() != null && !record.getCcEmails().isBlank()
+                    ? List.of(record.getCcEmails().split(",")) : null;
+            return emailService.createConvocationMessage(candidat, pdf, record.getExamenLabel(), cc);
+        });
+
+        for (BulkMailSender.Delivery<EmailOutbox> delivery : report.getDeliveries()) {
+            complete(delivery);
+        }
+        outboxRepository.saveAll(due);
+    }
+
+    private void complete(BulkMailSender.Delivery<EmailOutbox> delivery) {
+        EmailOutbox record = delivery.getItem();
+        LocalDateTime now = LocalDateTime.now();
+        record.setUpdatedAt(now);
+
+        if (delivery.isSuccess()) {
+            record.setStatus(EmailStatus.SENT);
+            record.setSentAt(now);
+            record.setLastError(null);
+            log.info("Email envoyé à {} en {} ms", record.getRecipient(), delivery.getLatencyMs());
+            return;
+        }
+
+        if (delivery.getError() instanceof MailQuotaExceededException quota) {
+            // Reporté faute de budget d'envoi : la tentative n'est pas comptée
+            record.setStatus(EmailStatus.QUEUED);
+            record.setAttempts(record.getAttempts() - 1);
+            record.setNextAttemptAt(LocalDateTime.ofInstant(quota.getRetryAt(), ZoneId.systemDefault()));
+            log.debug("Envoi à {} reporté au {}", record.getRecipient(), record.getNextAttemptAt());
+            return;
+        }
+
+        String error = delivery.getError().getMessage();
+        record.setLastError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        if (record.getAttempts() >= maxAttempts) {
+            record.setStatus(EmailStatus.FAILED);
+            log.error("Échec définitif de l’envoi à {} après {} tentative(s): {}",
+                    record.getRecipient(), record.getAttempts(), error);
+        } else {
+            Duration delay = backoff(record.getAttempts());
+            record.setStatus(EmailStatus.QUEUED);
+            record.setNextAttemptAt(now.plus(delay));
+            log.warn("Erreur lors de l’envoi à {} (tentative {}), nouvel essai dans {} s: {}",
+                    record.getRecipient(), record.getAttempts(), delay.toSeconds(), error);
+        }
+    }
+
+    /**
+     * Délai avant la tentative suivante : doublé à chaque échec, borné
+     */
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private CandidatDto findCandidat(Map<String, Map<String, CandidatDto>> cache, EmailOutbox record) {
+        Map<String, CandidatDto> candidats;
+        synchronized (cache) {
+            candidats = cache.computeIfAbsent(record.getSessionId(), id -> {
+                List<CandidatDto> list = sessionStorage.getCandidats(id);
+                return list == null ? Map.of() : list.stream()
+                        .filter(c -> c.getId() != null)
+                        .collect(Collectors.toMap(CandidatDto::getId, Function.identity(), (a, b) -> a));
+            });
+        }
+        CandidatDto candidat = candidats.get(record.getCandidatId());
+        if (candidat == null) {
+            throw new IllegalStateException("Session ou candidat introuvable (session expirée ?)");
+        }
+        return candidat;
+    }
+
+    private DeliveryStatusDto toDto(EmailOutbox record) {
+        return new DeliveryStatusDto(record.getCandidatId(), record.getNom(), record.getPrenom(),
+                record.getRecipient(), record.getStatus(), record.getAttempts(), record.getLastError(),
+                record.getStatus() == EmailStatus.QUEUED ? record.getNextAttemptAt() : null, record.getSentAt());
+    }
+}
@@ -1,129 +1,366 @@
 package fr.epsi.b3devc2.convocationepsi.service;
 
 import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.service.CandidatColumnMapping.Field;
+import fr.epsi.b3devc2.convocationepsi.service.XlsxSheetReader.SheetCell;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Import des candidats depuis un classeur xlsx. La première feuille est lue en flux (SAX) :
+ * le fichier est recopié sur disque puis ouvert en lecture seule, et chaque ligne est convertie
+ * en candidat dès qu'elle est lue, sans construire le modèle objet du classeur. Les colonnes
+ * sont repérées par leur intitulé (voir CandidatColumnMapping) et les formats de date et
+ * d'heure sont compilés une seule fois.
+ */
 @Service
 @Slf4j
 public class ExcelParserService {
-    
+
+    // Nombre maximal de colonnes lues par ligne (les colonnes peuvent être réordonnées)
+    private static final int MAX_COLUMNS = 64;
+
+    private static final DateTimeFormatter[] DATE_FORMATTERS = {
+            DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+            DateTimeFormatter.ofPattern("d/M/yyyy"),
+            DateTimeFormatter.ofPattern("dd-MM-yyyy"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd"),
+            DateTimeFormatter.ofPattern("dd/MM/yy"),
+            DateTimeFormatter.ofPattern("d/M/yy")
+    };
+
+    private static final DateTimeFormatter[] TIME_FORMATTERS = {
+            DateTimeFormatter.ofPattern("HH:mm"),
+            DateTimeFormatter.ofPattern("H:mm"),
+            DateTimeFormatter.ofPattern("HH:mm:ss"),
+            DateTimeFormatter.ofPattern("H:mm:ss")
+    };
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    @Value("${convocation.import.parallelism:4}")
+    private int parallelism;
+
+    // Lecture des fichiers d'un import groupé, un fichier par thread
+    private ExecutorService importExecutor;
+
+    @PostConstruct
+    void startExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        importExecutor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "convocation-import-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdownExecutor() {
+        importExecutor.shutdownNow();
+    }
+
     /**
      * Lit le fichier Excel et extrait les candidats
      */
     public List<CandidatDto> readCandidatsFromExcel(MultipartFile file) throws IOException {
+        List<CandidatDto> candidats = new ArrayList<>();
+        readCandidatsFromExcel(file, candidats::add);
+        return candidats;
+    }
+
+    /**
+     * Lit le fichier Excel et transmet chaque candidat dès que sa ligne est lue
+     */
+    public void readCandidatsFromExcel(MultipartFile file, Consumer<CandidatDto> consumer) throws IOException {
         log.info("Lecture du fichier Excel: {}", file.getOriginalFilename());
 
-        List<CandidatDto> candidats = new ArrayList<>();
+        Path spool = spool(file);
+        try {
+            int count = readCandidats(spool, consumer);
+            log.info("Lecture terminée: {} candidats extraits", count);
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
 
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
+    /**
+     * Lit toutes les feuilles de plusieurs fichiers, un fichier par thread. Les résultats sont
+     * retournés dans l'ordre des fichiers puis des feuilles ; une erreur de ligne ou de feuille
+     * est consignée dans le résultat de la feuille sans interrompre la lecture des autres.
+     */
+    public List<SheetImport> readAllSheets(List<MultipartFile> files) {
+        List<Future<List<SheetImport>>> futures = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            futures.add(importExecutor.submit(() -> readAllSheets(file)));
+        }
 
-            // Vérifier si la feuille contient des données
-            if (sheet.getLastRowNum() < 1) {
-                throw new IllegalArgumentException("Le fichier Excel ne contient pas de données");
+        List<SheetImport> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.addAll(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.error("Erreur lors de la lecture de {}: {}", files.get(i).getOriginalFilename(), cause.getMessage());
+                    SheetImport failed = new SheetImport(files.get(i).getOriginalFilename(), null);
+                    failed.errors.add("Fichier illisible: " + cause.getMessage());
+                    results.add(failed);
+                }
             }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Lecture des fichiers interrompue", e);
+        }
+        return results;
+    }
 
-            // Lire l'en-tête pour valider le format
-            Row headerRow = sheet.getRow(0);
-            validateHeader(headerRow);
+    /**
+     * Lit toutes les feuilles d'un fichier ; les feuilles vides sont ignorées
+     */
+    private List<SheetImport> readAllSheets(MultipartFile file) throws IOException {
+        String fileName = file.getOriginalFilename();
+        log.info("Lecture de toutes les feuilles du fichier Excel: {}", fileName);
+
+        List<SheetImport> results = new ArrayList<>();
+        Path spool = spool(file);
+        try {
+            XlsxSheetReader.readSheets(spool.toFile(), MAX_COLUMNS, sheetName -> {
+                SheetImport result = new SheetImport(fileName, sheetName);
+                results.add(result);
+                return new LenientSheetReader(result);
+            });
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+
+        results.removeIf(SheetImport::isEmpty);
+        log.info("Lecture de {} terminée: {} feuille(s), {} candidats", fileName, results.size(),
+                results.stream().mapToInt(r -> r.rows.size()).sum());
+        return results;
+    }
+
+    /**
+     * Copie le fichier reçu sur disque : le paquet OPC est ouvert depuis un fichier pour ne pas
+     * charger toute l'archive en mémoire
+     */
+    private Path spool(MultipartFile file) throws IOException {
+        Path spool = Files.createTempFile("import_", ".xlsx");
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, spool, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+        return spool;
+    }
+
+    private int readCandidats(Path file, Consumer<CandidatDto> consumer) throws IOException {
+        int[] count = new int[1];
+        int[] lastRow = {-1};
+        CandidatColumnMapping[] mapping = new CandidatColumnMapping[1];
+
+        XlsxSheetReader.read(file.toFile(), MAX_COLUMNS, (rowIndex, cells) -> {
+            lastRow[0] = Math.max(lastRow[0], rowIndex);
+
+            // Lire l'en-tête pour en déduire la position de chaque colonne
+            if (rowIndex == 0) {
+                mapping[0] = compileHeader(cells);
+                return;
+            }
+            if (mapping[0] == null) {
+                throw new IllegalArgumentException("L'en-tête du fichier Excel est manquant");
+            }
 
             // Lire les lignes de données
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row != null && !isEmptyRow(row)) {
-                    try {
-                        CandidatDto candidat = readCandidatFromRow(row, i + 1);
-                        candidats.add(candidat);
-                    } catch (Exception e) {
-                        log.error("Erreur lors de la lecture de la ligne {}: {}", i + 1, e.getMessage());
-                        throw new IllegalArgumentException("Erreur ligne " + (i + 1) + ": " + e.getMessage());
-                    }
+            if (!mapping[0].isEmpty(cells, this::getCellValueAsString)) {
+                try {
+                    consumer.accept(readCandidatFromRow(mapping[0], cells, rowIndex + 1));
+                    count[0]++;
+                } catch (Exception e) {
+                    log.error("Erreur lors de la lecture de la ligne {}: {}", rowIndex + 1, e.getMessage());
+                    throw new IllegalArgumentException("Erreur ligne " + (rowIndex + 1) + ": " + e.getMessage());
                 }
             }
-        }
+        });
 
-        log.info("Lecture terminée: {} candidats extraits", candidats.size());
-        return candidats;
+        // Vérifier si la feuille contient des données
+        if (lastRow[0] < 1) {
+            throw new IllegalArgumentException("Le fichier Excel ne contient pas de données");
+        }
+        return count[0];
     }
 
     /**
-     * Valide l'en-tête du fichier Excel
+     * Lecture d'une feuille en mode import groupé : les lignes en erreur sont consignées et
+     * ignorées, et une feuille dont l'en-tête ne désigne pas de candidats est écartée
      */
-    private void validateHeader(Row headerRow) {
-        if (headerRow == null) {
-            throw new IllegalArgumentException("L'en-tête du fichier Excel est manquant");
+    private final class LenientSheetReader implements XlsxSheetReader.RowHandler {
+        private final SheetImport result;
+        private CandidatColumnMapping mapping;
+        private boolean skipped;
+        private int lastRow = -1;
+
+        LenientSheetReader(SheetImport result) {
+            this.result = result;
+        }
+
+        @Override
+        public void row(int rowIndex, SheetCell[] cells) {
+            lastRow = Math.max(lastRow, rowIndex);
+            if (skipped) {
+                return;
+            }
+
+            if (rowIndex == 0) {
+                mapping = CandidatColumnMapping.compile(cells, ExcelParserService.this::getCellValueAsString);
+                if (!mapping.hasRequiredHeaders()) {
+                    skip("en-têtes Nom, Prénom et Email introuvables");
+                }
+                return;
+            }
+            if (mapping == null) {
+                skip("l'en-tête de la feuille est manquant");
+                return;
+            }
+
+            if (!mapping.isEmpty(cells, ExcelParserService.this::getCellValueAsString)) {
+                try {
+                    result.rows.add(new SheetRow(rowIndex + 1, readCandidatFromRow(mapping, cells, rowIndex + 1)));
+                } catch (Exception e) {
+                    result.errors.add(e.getMessage());
+                }
+            }
         }
 
-        String[] expectedHeaders = {
-                "Groupe", "Civilité", "Nom", "Prénom", "Email",
-                "Date", "Heure", "Salle", "Numéro Jury"
-        };
-
-        for (int i = 0; i < expectedHeaders.length; i++) {
-            Cell cell = headerRow.getCell(i);
-            if (cell == null || !expectedHeaders[i].equalsIgnoreCase(getCellValueAsString(cell).trim())) {
-                log.warn("En-tête colonne {}: attendu '{}', trouvé '{}'",
-                        i + 1, expectedHeaders[i],
-                        cell != null ? getCellValueAsString(cell).trim() : "null");
-                // On continue sans erreur pour plus de flexibilité
+        @Override
+        public void end() {
+            if (lastRow < 0) {
+                result.empty = true;
+            } else if (lastRow == 0 && !skipped) {
+                result.errors.add("La feuille ne contient pas de données");
             }
         }
+
+        private void skip(String reason) {
+            skipped = true;
+            result.errors.add("Feuille ignorée : " + reason);
+            log.warn("Feuille '{}' de {} ignorée: {}", result.sheetName, result.fileName, reason);
+        }
+    }
+
+    /**
+     * Résultat de la lecture d'une feuille : candidats avec leur ligne d'origine et erreurs
+     */
+    @Getter
+    public static final class SheetImport {
+        private final String fileName;
+        private final String sheetName;
+        private final List<SheetRow> rows = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+        @Getter(AccessLevel.NONE)
+        private boolean empty;
+
+        SheetImport(String fileName, String sheetName) {
+            this.fileName = fileName;
+            this.sheetName = sheetName;
+        }
+
+        boolean isEmpty() {
+            return empty && rows.isEmpty() && errors.isEmpty();
+        }
+    }
+
+    /**
+     * Candidat lu et numéro de sa ligne dans la feuille
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static final class SheetRow {
+        private final int rowNumber;
+        private final CandidatDto candidat;
+    }
+
+    /**
+     * Compile la correspondance colonne -> champ de l'en-tête du fichier Excel. Sans en-têtes
+     * Nom, Prénom et Email reconnus, les colonnes sont lues à leur position historique.
+     */
+    private CandidatColumnMapping compileHeader(SheetCell[] headerRow) {
+        CandidatColumnMapping mapping = CandidatColumnMapping.compile(headerRow, this::getCellValueAsString);
+        if (!mapping.hasRequiredHeaders()) {
+            log.warn("En-têtes Nom, Prénom et Email introuvables, lecture des colonnes à leur position par défaut");
+        }
+        return mapping;
     }
 
     /**
      * Lit un candidat depuis une ligne Excel
      */
-    private CandidatDto readCandidatFromRow(Row row, int rowNumber) {
+    private CandidatDto readCandidatFromRow(CandidatColumnMapping mapping, SheetCell[] row, int rowNumber) {
         CandidatDto candidat = new CandidatDto();
 
         try {
             // Groupe
-            candidat.setGroupe(getCellValueAsString(row.getCell(0)));
+            candidat.setGroupe(getCellValueAsString(mapping.cell(row, Field.GROUPE)));
 
             // Civilité
-            candidat.setCivilite(getCellValueAsString(row.getCell(1)));
+            candidat.setCivilite(getCellValueAsString(mapping.cell(row, Field.CIVILITE)));
 
             // Nom
-            candidat.setNom(getCellValueAsString(row.getCell(2)));
+            candidat.setNom(getCellValueAsString(mapping.cell(row, Field.NOM)));
             if (candidat.getNom().trim().isEmpty()) {
                 throw new IllegalArgumentException("Le nom est obligatoire");
             }
 
             // Prénom
-            candidat.setPrenom(getCellValueAsString(row.getCell(3)));
+            candidat.setPrenom(getCellValueAsString(mapping.cell(row, Field.PRENOM)));
             if (candidat.getPrenom().trim().isEmpty()) {
                 throw new IllegalArgumentException("Le prénom est obligatoire");
             }
 
             // Email
-            candidat.setEmail(getCellValueAsString(row.getCell(4)));
+            candidat.setEmail(getCellValueAsString(mapping.cell(row, Field.EMAIL)));
             if (candidat.getEmail().trim().isEmpty()) {
                 throw new IllegalArgumentException("L'email est obligatoire");
             }
 
             // Date - Gestion flexible des formats de date
-            candidat.setDatePassage(parseDateFromCell(row.getCell(5)));
+            candidat.setDatePassage(parseDateFromCell(mapping.cell(row, Field.DATE)));
 
             // Heure - Gestion flexible des formats d'heure
-            candidat.setHeurePassage(parseTimeFromCell(row.getCell(6)));
+            candidat.setHeurePassage(parseTimeFromCell(mapping.cell(row, Field.HEURE)));
 
             // Salle
-            candidat.setSalle(getCellValueAsString(row.getCell(7)));
+            candidat.setSalle(getCellValueAsString(mapping.cell(row, Field.SALLE)));
 
             // Numéro Jury
-            candidat.setNumeroJury(getCellValueAsString(row.getCell(8)));
+            candidat.setNumeroJury(getCellValueAsString(mapping.cell(row, Field.NUMERO_JURY)));
 
             return candidat;
 
@@ -136,26 +373,26 @@ public class ExcelParserService {
     /**
      * Parse une date depuis une cellule Excel (gère les formats numériques et texte)
      */
-    private LocalDate parseDateFromCell(Cell cell) {
-        if (cell == null) {
+    private LocalDate parseDateFromCell(SheetCell cell) {
+        if (cell.type == SheetCell.Type.BLANK) {
             return LocalDate.now(); // Date par défaut
         }
 
         try {
-            switch (cell.getCellType()) {
+            switch (cell.formula ? SheetCell.Type.ERROR : cell.type) {
                 case NUMERIC:
-                    if (DateUtil.isCellDateFormatted(cell)) {
+                    if (cell.dateFormatted) {
                         // Cellule formatée comme date
-                        return cell.getLocalDateTimeCellValue().toLocalDate();
+                        return cell.localDateTime().toLocalDate();
                     } else {
                         // Nombre qui pourrait être une date Excel
-                        double numericValue = cell.getNumericCellValue();
+                        double numericValue = cell.number;
                         return DateUtil.getJavaDate(numericValue).toInstant()
                                 .atZone(java.time.ZoneId.systemDefault()).toLocalDate();
                     }
 
                 case STRING:
-                    String dateStr = cell.getStringCellValue().trim();
+                    String dateStr = cell.text.trim();
                     if (dateStr.isEmpty()) {
                         return LocalDate.now();
                     }
@@ -164,7 +401,7 @@ public class ExcelParserService {
                     return tryParseDateString(dateStr);
 
                 default:
-                    log.warn("Type de cellule non supporté pour la date: {}", cell.getCellType());
+                    log.warn("Type de cellule non supporté pour la date: {}", cell.formula ? "FORMULA" : cell.type);
                     return LocalDate.now();
             }
         } catch (Exception e) {
@@ -177,16 +414,7 @@ public class ExcelParserService {
      * Essaie de parser une chaîne de date avec différents formats
      */
     private LocalDate tryParseDateString(String dateStr) {
-        DateTimeFormatter[] formatters = {
-                DateTimeFormatter.ofPattern("dd/MM/yyyy"),
-                DateTimeFormatter.ofPattern("d/M/yyyy"),
-                DateTimeFormatter.ofPattern("dd-MM-yyyy"),
-                DateTimeFormatter.ofPattern("yyyy-MM-dd"),
-                DateTimeFormatter.ofPattern("dd/MM/yy"),
-                DateTimeFormatter.ofPattern("d/M/yy")
-        };
-
-        for (DateTimeFormatter formatter : formatters) {
+        for (DateTimeFormatter formatter : DATE_FORMATTERS) {
             try {
                 return LocalDate.parse(dateStr, formatter);
             } catch (DateTimeParseException ignored) {
@@ -201,20 +429,20 @@ public class ExcelParserService {
     /**
      * Parse une heure depuis une cellule Excel
      */
-    private LocalTime parseTimeFromCell(Cell cell) {
-        if (cell == null) {
+    private LocalTime parseTimeFromCell(SheetCell cell) {
+        if (cell.type == SheetCell.Type.BLANK) {
             return LocalTime.of(9, 0); // Heure par défaut
         }
 
         try {
-            switch (cell.getCellType()) {
+            switch (cell.formula ? SheetCell.Type.ERROR : cell.type) {
                 case NUMERIC:
-                    if (DateUtil.isCellDateFormatted(cell)) {
+                    if (cell.dateFormatted) {
                         // Cellule formatée comme heure
-                        return cell.getLocalDateTimeCellValue().toLocalTime();
+                        return cell.localDateTime().toLocalTime();
                     } else {
                         // Nombre décimal représentant une fraction de jour
-                        double timeValue = cell.getNumericCellValue();
+                        double timeValue = cell.number;
                         // Convertir la fraction en heures et minutes
                         int totalMinutes = (int) (timeValue * 24 * 60);
                         int hours = totalMinutes / 60;
@@ -223,7 +451,7 @@ public class ExcelParserService {
                     }
 
                 case STRING:
-                    String timeStr = cell.getStringCellValue().trim();
+                    String timeStr = cell.text.trim();
                     if (timeStr.isEmpty()) {
                         return LocalTime.of(9, 0);
                     }
@@ -231,7 +459,7 @@ public class ExcelParserService {
                     return tryParseTimeString(timeStr);
 
                 default:
-                    log.warn("Type de cellule non supporté pour l'heure: {}", cell.getCellType());
+                    log.warn("Type de cellule non supporté pour l'heure: {}", cell.formula ? "FORMULA" : cell.type);
                     return LocalTime.of(9, 0);
             }
         } catch (Exception e) {
@@ -244,14 +472,7 @@ public class ExcelParserService {
      * Essaie de parser une chaîne d'heure avec différents formats
      */
     private LocalTime tryParseTimeString(String timeStr) {
-        DateTimeFormatter[] formatters = {
-                DateTimeFormatter.ofPattern("HH:mm"),
-                DateTimeFormatter.ofPattern("H:mm"),
-                DateTimeFormatter.ofPattern("HH:mm:ss"),
-                DateTimeFormatter.ofPattern("H:mm:ss")
-        };
-
-        for (DateTimeFormatter formatter : formatters) {
+        for (DateTimeFormatter formatter : TIME_FORMATTERS) {
             try {
                 return LocalTime.parse(timeStr, formatter);
             } catch (DateTimeParseException ignored) {
@@ -266,22 +487,32 @@ public class ExcelParserService {
     /**
      * Extrait la valeur d'une cellule comme chaîne de caractères
      */
-    private String getCellValueAsString(Cell cell) {
-        if (cell == null) {
-            return "";
-        }
-
+    private String getCellValueAsString(SheetCell cell) {
         try {
-            switch (cell.getCellType()) {
+            if (cell.formula) {
+                // Résultat de la formule enregistré dans le fichier
+                switch (cell.type) {
+                    case STRING:
+                        return cell.text.trim();
+                    case NUMERIC:
+                        return String.valueOf((long) cell.number);
+                    case BOOLEAN:
+                        return cell.text;
+                    default:
+                        return "";
+                }
+            }
+
+            switch (cell.type) {
                 case STRING:
-                    return cell.getStringCellValue().trim();
+                    return cell.text.trim();
 
                 case NUMERIC:
-                    if (DateUtil.isCellDateFormatted(cell)) {
-                        return cell.getLocalDateTimeCellValue().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"));
+                    if (cell.dateFormatted) {
+                        return cell.localDateTime().format(DATE_TIME_FORMATTER);
                     } else {
                         // Vérifier si c'est un entier
-                        double numValue = cell.getNumericCellValue();
+                        double numValue = cell.number;
                         if (numValue == Math.floor(numValue)) {
                             return String.valueOf((long) numValue);
                         } else {
@@ -290,27 +521,7 @@ public class ExcelParserService {
                     }
 
                 case BOOLEAN:
-                    return String.valueOf(cell.getBooleanCellValue());
-
-                case FORMULA:
-                    // Évaluer la formule
-                    try {
-                        FormulaEvaluator evaluator = cell.getSheet().getWorkbook().getCreationHelper().createFormulaEvaluator();
-                        CellValue cellValue = evaluator.evaluate(cell);
-                        switch (cellValue.getCellType()) {
-                            case STRING:
-                                return cellValue.getStringValue().trim();
-                            case NUMERIC:
-                                return String.valueOf((long) cellValue.getNumberValue());
-                            case BOOLEAN:
-                                return String.valueOf(cellValue.getBooleanValue());
-                            default:
-                                return "";
-                        }
-                    } catch (Exception e) {
-                        log.warn("Erreur lors de l'évaluation de la formule: {}", e.getMessage());
-                        return "";
-                    }
+                    return cell.text;
 
                 case BLANK:
                     return "";
@@ -323,21 +534,4 @@ public class ExcelParserService {
             return "";
         }
     }
-
-    /**
-     * Vérifie si une ligne est vide
-     */
-    private boolean isEmptyRow(Row row) {
-        if (row == null) {
-            return true;
-        }
-
-        for (int i = 0; i < Math.min(row.getLastCellNum(), 9); i++) {
-            Cell cell = row.getCell(i);
-            if (cell != null && !getCellValueAsString(cell).isEmpty()) {
-                return false;
-            }
-        }
-        return true;
-    }
-}
\ No newline at end of file
+}
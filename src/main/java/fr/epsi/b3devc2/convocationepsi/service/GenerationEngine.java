@@ -0,0 +1,163 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Moteur de génération parallèle : exécute une tâche par élément sur un pool borné
+ * et restitue les résultats dans l'ordre d'entrée, un échec n'interrompant pas les autres.
+ */
+@Component
+@Slf4j
+public class GenerationEngine {
+
+    @Value("${convocation.generation.threads:0}")
+    private int configuredThreads;
+
+    @Value("${convocation.generation.memory-per-worker-mb:96}")
+    private long memoryPerWorkerMb;
+
+    @Value("${convocation.generation.window-factor:2}")
+    private int windowFactor;
+
+    private ExecutorService executor;
+
+    @Getter
+    private int poolSize;
+
+    @PostConstruct
+    void init() {
+        poolSize = computePoolSize();
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "convocation-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Moteur de génération initialisé avec {} worker(s)", poolSize);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Traite tous les éléments en parallèle et transmet chaque résultat au consommateur,
+     * dans l'ordre de la liste, dès que les éléments qui le précèdent sont terminés.
+     * Le nombre de tâches en vol est borné pour limiter la mémoire retenue par les résultats.
+     */
+    public <S, T> void process(List<S> items, Task<S, T> task, Consumer<Outcome<S, T>> consumer) {
+        int window = Math.max(1, poolSize * Math.max(1, windowFactor));
+        List<Future<T>> futures = new ArrayList<>(items.size());
+        int submitted = 0;
+        boolean completed = false;
+
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                while (submitted < items.size() && submitted < i + window) {
+                    S item = items.get(submitted);
+                    futures.add(executor.submit(() -> task.apply(item)));
+                    submitted++;
+                }
+
+                Future<T> future = futures.get(i);
+                futures.set(i, null);
+                consumer.accept(await(items.get(i), future));
+            }
+            completed = true;
+        } finally {
+            // Interruption ou erreur du consommateur : les tâches en vol ne seront jamais lues.
+            // Les plus récentes (encore en file) sont annulées d'abord, pour qu'un worker libéré
+            // par l'interruption d'une tâche en cours ne les démarre pas.
+            if (!completed) {
+                for (int i = futures.size() - 1; i >= 0; i--) {
+                    Future<T> future = futures.get(i);
+                    if (future != null) {
+                        future.cancel(true);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Traite tous les éléments en parallèle et retourne les résultats dans l'ordre d'entrée
+     */
+    public <S, T> List<Outcome<S, T>> processAll(List<S> items, Task<S, T> task) {
+        List<Outcome<S, T>> outcomes = new ArrayList<>(items.size());
+        process(items, task, outcomes::add);
+        return outcomes;
+    }
+
+    private <S, T> Outcome<S, T> await(S item, Future<T> future) {
+        try {
+            return Outcome.success(item, future.get());
+        } catch (ExecutionException e) {
+            return Outcome.failure(item, e.getCause() != null ? e.getCause() : e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Génération interrompue", e);
+        }
+    }
+
+    /**
+     * Taille du pool : valeur configurée, sinon le nombre de cœurs borné par la mémoire disponible
+     */
+    private int computePoolSize() {
+        if (configuredThreads > 0) {
+            return configuredThreads;
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        long maxHeapMb = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+        long byMemory = Math.max(1, maxHeapMb / Math.max(1, memoryPerWorkerMb));
+        return (int) Math.max(1, Math.min(cores, byMemory));
+    }
+
+    /**
+     * Tâche unitaire exécutée pour un élément
+     */
+    @FunctionalInterface
+    public interface Task<S, T> {
+        T apply(S item) throws Exception;
+    }
+
+    /**
+     * Résultat d'une tâche : soit une valeur, soit l'erreur qui l'a fait échouer
+     */
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Outcome<S, T> {
+        private final S item;
+        private final T result;
+        private final Throwable error;
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public static <S, T> Outcome<S, T> success(S item, T result) {
+            return new Outcome<>(item, result, null);
+        }
+
+        public static <S, T> Outcome<S, T> failure(S item, Throwable error) {
+            return new Outcome<>(item, null, error);
+        }
+    }
+}
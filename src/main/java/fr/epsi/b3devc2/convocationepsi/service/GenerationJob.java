@@ -0,0 +1,110 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.GenerationJobDto;
+import fr.epsi.b3devc2.convocationepsi.dto.JobStatus;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Génération asynchrone en cours ou terminée : compteurs mis à jour par le thread du job
+ * et lus par les requêtes de suivi
+ */
+@Getter
+public class GenerationJob {
+
+    private final String jobId;
+    private final String sessionId;
+    private final int total;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private volatile JobStatus status = JobStatus.PENDING;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+    private volatile LocalDateTime finishedAt;
+    private volatile String message = "Génération en attente";
+    private volatile List<String> errors = List.of();
+
+    GenerationJob(String jobId, String sessionId, int total) {
+        this.jobId = jobId;
+        this.sessionId = sessionId;
+        this.total = total;
+    }
+
+    void start() {
+        startedNanos = System.nanoTime();
+        status = JobStatus.RUNNING;
+        message = "Génération en cours";
+    }
+
+    void record(boolean success) {
+        if (success) {
+            done.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+    }
+
+    void complete(String message, List<String> errors) {
+        finish(JobStatus.COMPLETED, message, errors);
+    }
+
+    void fail(String message) {
+        finish(JobStatus.FAILED, message, List.of(message));
+    }
+
+    private void finish(JobStatus status, String message, List<String> errors) {
+        this.finishedNanos = System.nanoTime();
+        this.finishedAt = LocalDateTime.now();
+        this.message = message;
+        this.errors = List.copyOf(errors);
+        this.status = status;
+    }
+
+    public boolean isFinished() {
+        return status == JobStatus.COMPLETED || status == JobStatus.FAILED;
+    }
+
+    /**
+     * Photographie de l'état du job, avec débit et temps restant estimé
+     */
+    public GenerationJobDto toDto() {
+        JobStatus currentStatus = status;
+        int processed = done.get() + failed.get();
+
+        double throughput = 0;
+        Long etaSeconds = null;
+        if (currentStatus != JobStatus.PENDING) {
+            long end = isFinished() ? finishedNanos : System.nanoTime();
+            double elapsedSeconds = (end - startedNanos) / 1_000_000_000d;
+            if (elapsedSeconds > 0 && processed > 0) {
+                throughput = processed / elapsedSeconds;
+                etaSeconds = currentStatus == JobStatus.RUNNING
+                        ? Math.round((total - processed) / throughput) : 0L;
+            }
+        }
+
+        return GenerationJobDto.builder()
+                .jobId(jobId)
+                .sessionId(sessionId)
+                .status(currentStatus)
+                .total(total)
+                .done(done.get())
+                .failed(failed.get())
+                .throughput(Math.round(throughput * 100) / 100d)
+                .etaSeconds(etaSeconds)
+                .submittedAt(submittedAt)
+                .finishedAt(finishedAt)
+                .statusUrl("/api/jobs/" + jobId)
+                .eventsUrl("/api/jobs/" + jobId + "/events")
+                .downloadUrl(currentStatus == JobStatus.COMPLETED ? "/api/download/" + sessionId : null)
+                .message(message)
+                .errors(errors)
+                .build();
+    }
+}
@@ -0,0 +1,237 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.GenerateConvocationRequestDto;
+import fr.epsi.b3devc2.convocationepsi.dto.GenerateResponseDto;
+import fr.epsi.b3devc2.convocationepsi.dto.GenerationJobDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Générations asynchrones : la demande est validée et préparée dans le thread HTTP, puis la
+ * génération s'exécute en arrière-plan. L'avancement est consultable par identifiant de job
+ * ou diffusé en Server-Sent Events.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GenerationJobService {
+
+    private final ConvocationService convocationService;
+
+    @Value("${convocation.jobs.max-concurrent:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${convocation.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${convocation.jobs.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Value("${convocation.jobs.progress-interval-ms:500}")
+    private long progressIntervalMs;
+
+    private final Map<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+    // Dernier job soumis pour chaque session
+    private final Map<String, GenerationJob> jobsBySession = new ConcurrentHashMap<>();
+    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> lastProgressEvent = new ConcurrentHashMap<>();
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, maxConcurrentJobs), runnable -> {
+            Thread thread = new Thread(runnable, "convocation-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Prépare le lot puis lance la génération en arrière-plan
+     */
+    public GenerationJobDto submit(GenerateConvocationRequestDto request) {
+        purgeExpiredJobs();
+
+        // La session est réservée atomiquement avant la préparation : deux demandes simultanées
+        // ne peuvent pas lancer chacune un job
+        String sessionId = request.getSessionId();
+        GenerationJob reservation = new GenerationJob(UUID.randomUUID().toString(), sessionId, 0);
+        GenerationJob[] previous = new GenerationJob[1];
+        jobsBySession.compute(sessionId, (id, current) -> {
+            if (current != null && !current.isFinished()) {
+                throw new IllegalStateException("Une génération est déjà en cours pour cette session");
+            }
+            previous[0] = current;
+            return reservation;
+        });
+
+        ConvocationBatch batch;
+        try {
+            batch = convocationService.prepareBatch(request);
+        } catch (RuntimeException | Error e) {
+            releaseReservation(sessionId, reservation, previous[0]);
+            throw e;
+        }
+
+        GenerationJob job = new GenerationJob(reservation.getJobId(), sessionId, batch.getCandidats().size());
+        jobs.put(job.getJobId(), job);
+        lastProgressEvent.put(job.getJobId(), new AtomicLong());
+        jobsBySession.replace(sessionId, reservation, job);
+
+        executor.submit(() -> run(job, batch));
+        log.info("Job de génération {} soumis pour la session {} ({} candidats)",
+                job.getJobId(), job.getSessionId(), job.getTotal());
+        return job.toDto();
+    }
+
+    /**
+     * Libère la session réservée, en rétablissant le job précédent s'il y en avait un
+     */
+    private void releaseReservation(String sessionId, GenerationJob reservation, GenerationJob previous) {
+        if (previous != null) {
+            jobsBySession.replace(sessionId, reservation, previous);
+        } else {
+            jobsBySession.remove(sessionId, reservation);
+        }
+    }
+
+    private void run(GenerationJob job, ConvocationBatch batch) {
+        job.start();
+        publish(job, false);
+        try {
+            GenerateResponseDto response = convocationService.generate(batch, (candidat, success) -> {
+                job.record(success);
+                publish(job, false);
+            });
+            job.complete(response.getMessage(), response.getErrors());
+        } catch (Exception e) {
+            log.error("Échec du job de génération {}: {}", job.getJobId(), e.getMessage());
+            job.fail(e.getMessage());
+        }
+        publish(job, true);
+    }
+
+    /**
+     * État d'un job, ou null s'il est inconnu ou expiré
+     */
+    public GenerationJobDto getJob(String jobId) {
+        GenerationJob job = jobs.get(jobId);
+        return job != null ? job.toDto() : null;
+    }
+
+    /**
+     * Indique si une génération est en cours (ou en attente) pour la session
+     */
+    public boolean isRunning(String sessionId) {
+        GenerationJob job = jobsBySession.get(sessionId);
+        return job != null && !job.isFinished();
+    }
+
+    /**
+     * Ouvre un flux d'événements pour le job : l'état courant est envoyé immédiatement,
+     * puis à chaque progression et à la fin du job, qui clôt le flux
+     */
+    public SseEmitter subscribe(String jobId) {
+        GenerationJob job = jobs.get(jobId);
+        if (job == null) {
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        List<SseEmitter> jobEmitters = emitters.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+        jobEmitters.add(emitter);
+        emitter.onCompletion(() -> jobEmitters.remove(emitter));
+        emitter.onTimeout(() -> jobEmitters.remove(emitter));
+        emitter.onError(e -> jobEmitters.remove(emitter));
+
+        GenerationJobDto snapshot = job.toDto();
+        if (!send(emitter, snapshot) || job.isFinished()) {
+            // Le job a pu se terminer avant l'enregistrement de l'émetteur
+            jobEmitters.remove(emitter);
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * Diffuse l'état du job aux abonnés, au plus une fois par intervalle sauf en fin de job
+     */
+    private void publish(GenerationJob job, boolean last) {
+        List<SseEmitter> jobEmitters = last ? emitters.remove(job.getJobId()) : emitters.get(job.getJobId());
+        if (jobEmitters == null || jobEmitters.isEmpty()) {
+            return;
+        }
+
+        if (!last) {
+            AtomicLong lastEvent = lastProgressEvent.get(job.getJobId());
+            long now = System.currentTimeMillis();
+            long previous = lastEvent.get();
+            if (now - previous < progressIntervalMs || !lastEvent.compareAndSet(previous, now)) {
+                return;
+            }
+        }
+
+        GenerationJobDto snapshot = job.toDto();
+        for (SseEmitter emitter : jobEmitters) {
+            if (!send(emitter, snapshot)) {
+                jobEmitters.remove(emitter);
+            } else if (last) {
+                emitter.complete();
+            }
+        }
+    }
+
+    private boolean send(SseEmitter emitter, GenerationJobDto snapshot) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(snapshot.getJobId() + "-" + (snapshot.getDone() + snapshot.getFailed()))
+                    .name(snapshot.getStatus().name().toLowerCase())
+                    .data(snapshot));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Abonné SSE déconnecté: {}", e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    /**
+     * Oublie les jobs terminés depuis plus longtemps que la durée de rétention
+     */
+    private void purgeExpiredJobs() {
+        LocalDateTime limit = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> {
+            boolean expired = job.isFinished() && job.getFinishedAt().isBefore(limit);
+            if (expired) {
+                jobsBySession.remove(job.getSessionId(), job);
+                lastProgressEvent.remove(job.getJobId());
+                emitters.remove(job.getJobId());
+            }
+            return expired;
+        });
+    }
+}
@@ -0,0 +1,11 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+
+/**
+ * Suivi de l'avancement d'une génération, notifié dans l'ordre des candidats
+ */
+@FunctionalInterface
+public interface GenerationListener {
+    void onCandidat(CandidatDto candidat, boolean success);
+}
@@ -0,0 +1,135 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Cache LRU des fichiers Excel déjà analysés, indexé par l'empreinte SHA-256 du fichier importé.
+ * Un même fichier importé plusieurs fois pendant la durée de validité, y compris simultanément,
+ * n'est lu qu'une seule fois. Les candidats sont copiés à l'entrée et à la sortie du cache :
+ * chaque session reçoit ses propres objets.
+ */
+@Service
+@Slf4j
+public class ImportCacheService {
+
+    @Value("${convocation.import.cache.max-entries:32}")
+    private int maxEntries;
+
+    @Value("${convocation.import.cache.ttl:PT10M}")
+    private Duration ttl;
+
+    private final Map<String, ParsedImport> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParsedImport> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    // Analyses en cours, partagées par les imports simultanés du même fichier
+    private final Map<String, CompletableFuture<ParsedImport>> inFlight = new HashMap<>();
+
+    /**
+     * Retourne l'analyse du fichier d'empreinte donnée, en l'exécutant si elle est absente ou expirée.
+     * Une analyse en échec n'est pas conservée.
+     */
+    public ParsedImport getOrParse(String sha256, Callable<ParsedImport> parser) throws Exception {
+        CompletableFuture<ParsedImport> future;
+        boolean owner = false;
+        synchronized (cache) {
+            ParsedImport cached = cache.get(sha256);
+            if (cached != null && !cached.isExpired(ttl)) {
+                log.info("Fichier {} déjà analysé, {} candidat(s) repris du cache", sha256, cached.candidats.size());
+                return cached.copy();
+            }
+            cache.remove(sha256);
+            future = inFlight.get(sha256);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                inFlight.put(sha256, future);
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            log.info("Fichier {} en cours d'analyse par un autre import, attente du résultat", sha256);
+            try {
+                return future.get().copy();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+
+        try {
+            // Le cache garde sa propre copie : la liste du parseur n'est jamais partagée
+            ParsedImport parsed = parser.call().copy();
+            synchronized (cache) {
+                cache.put(sha256, parsed);
+                inFlight.remove(sha256);
+            }
+            future.complete(parsed);
+            return parsed.copy();
+        } catch (Exception | Error e) {
+            synchronized (cache) {
+                inFlight.remove(sha256);
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Vide le cache des imports
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Candidats lus et erreurs de validation d'un fichier
+     */
+    @Getter
+    public static final class ParsedImport {
+        private final List<CandidatDto> candidats;
+        private final List<String> errors;
+        @Getter(AccessLevel.NONE)
+        private final long parsedAt;
+
+        public ParsedImport(List<CandidatDto> candidats, List<String> errors) {
+            this(candidats, errors, System.nanoTime());
+        }
+
+        private ParsedImport(List<CandidatDto> candidats, List<String> errors, long parsedAt) {
+            this.candidats = candidats;
+            this.errors = errors;
+            this.parsedAt = parsedAt;
+        }
+
+        private boolean isExpired(Duration ttl) {
+            return System.nanoTime() - parsedAt > ttl.toNanos();
+        }
+
+        private ParsedImport copy() {
+            return new ParsedImport(
+                    new ArrayList<>(candidats.stream().map(c -> c.toBuilder().build()).toList()),
+                    List.copyOf(errors),
+                    parsedAt);
+        }
+    }
+}
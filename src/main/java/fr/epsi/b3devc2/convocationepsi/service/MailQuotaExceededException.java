@@ -0,0 +1,24 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import lombok.Getter;
+
+import java.io.Serial;
+import java.time.Instant;
+
+/**
+ * Levée quand le budget d'envoi ne permet pas d'envoyer un message dans le délai d'attente
+ * autorisé ; le message doit être reporté et non compté comme un échec.
+ */
+@Getter
+public class MailQuotaExceededException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Instant retryAt;
+
+    public MailQuotaExceededException(Instant retryAt) {
+        super("Quota d'envoi atteint, prochain envoi possible à " + retryAt);
+        this.retryAt = retryAt;
+    }
+}
@@ -0,0 +1,181 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.MailThrottleStatsDto;
+import jakarta.mail.MessagingException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Limiteur de débit des envois SMTP : deux seaux à jetons (par minute et par jour) calés sur
+ * les quotas du relais. Le débit par minute est adaptatif : il est divisé par deux et les envois
+ * sont suspendus un moment quand le serveur répond par une erreur temporaire 4xx, puis il remonte
+ * progressivement à chaque envoi réussi. Un envoi qui devrait attendre trop longtemps est
+ * refusé avec la date à laquelle le réessayer, ce qui étale les gros lots dans le temps.
+ */
+@Component
+@Slf4j
+public class MailRateLimiter {
+
+    // Réponse SMTP temporaire (ex: "421 4.7.0", "451 4.7.500 Server busy", "432 4.3.2")
+    private static final Pattern TRANSIENT_REPLY = Pattern.compile("^\\s*4\\d\\d[ -]");
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long DAY_NANOS = TimeUnit.DAYS.toNanos(1);
+    // Attente maximale entre deux vérifications, pour réagir à une suspension ou à une reprise
+    private static final long MAX_SLEEP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int perMinute;
+    private final int perDay;
+    private final double minFactor;
+    private final long throttlePauseNanos;
+    private final long maxWaitNanos;
+
+    // État des seaux, protégé par le verrou de l'instance
+    private double factor = 1.0;
+    private double minuteTokens;
+    private double dayTokens;
+    private long lastRefill = System.nanoTime();
+    private long pausedUntil = lastRefill;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    public MailRateLimiter(@Value("${convocation.mail.rate.per-minute:30}") int perMinute,
+                           @Value("${convocation.mail.rate.per-day:10000}") int perDay,
+                           @Value("${convocation.mail.rate.min-per-minute:1}") int minPerMinute,
+                           @Value("${convocation.mail.rate.throttle-pause:PT30S}") Duration throttlePause,
+                           @Value("${convocation.mail.rate.max-wait:PT2M}") Duration maxWait) {
+        this.perMinute = Math.max(1, perMinute);
+        this.perDay = Math.max(1, perDay);
+        this.minFactor = Math.min(1.0, Math.max(1, minPerMinute) / (double) this.perMinute);
+        this.throttlePauseNanos = throttlePause.toNanos();
+        this.maxWaitNanos = maxWait.toNanos();
+        this.minuteTokens = this.perMinute;
+        this.dayTokens = this.perDay;
+    }
+
+    /**
+     * Attend un jeton d'envoi ; lève MailQuotaExceededException si aucun jeton n'est disponible
+     * dans le délai d'attente maximal
+     */
+    public void acquire() throws InterruptedException {
+        waiting.incrementAndGet();
+        try {
+            long deadline = System.nanoTime() + maxWaitNanos;
+            while (true) {
+                long now = System.nanoTime();
+                long waitNanos;
+                synchronized (this) {
+                    refill(now);
+                    if (now >= pausedUntil && minuteTokens >= 1 && dayTokens >= 1) {
+                        minuteTokens--;
+                        dayTokens--;
+                        return;
+                    }
+                    waitNanos = nanosUntilAvailable(now);
+                }
+                if (now + waitNanos > deadline) {
+                    throw new MailQuotaExceededException(Instant.now().plusNanos(waitNanos));
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.min(waitNanos, MAX_SLEEP_NANOS));
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Envoi accepté : le débit remonte d'un message par minute, jusqu'au budget configuré
+     */
+    public synchronized void onSuccess() {
+        sent.incrementAndGet();
+        factor = Math.min(1.0, factor + 1.0 / perMinute);
+    }
+
+    /**
+     * Envoi refusé : si le serveur signale une limitation (réponse 4xx), le débit est divisé par
+     * deux et les envois sont suspendus. Retourne true si l'erreur était une limitation.
+     */
+    public boolean onFailure(Exception error) {
+        if (!isThrottling(error)) {
+            return false;
+        }
+        throttled.incrementAndGet();
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            factor = Math.max(minFactor, factor / 2);
+            minuteTokens = Math.min(minuteTokens, 0);
+            pausedUntil = Math.max(pausedUntil, now + throttlePauseNanos);
+            log.warn("Limitation signalée par le serveur SMTP, débit réduit à {} message(s)/min: {}",
+                    String.format("%.1f", factor * perMinute), error.getMessage());
+        }
+        return true;
+    }
+
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    public synchronized MailThrottleStatsDto getStats() {
+        long now = System.nanoTime();
+        refill(now);
+        Instant paused = pausedUntil > now ? Instant.now().plusNanos(pausedUntil - now) : null;
+        return new MailThrottleStatsDto(perMinute, perDay, factor * perMinute,
+                (int) Math.max(0, minuteTokens), (int) Math.max(0, dayTokens), paused,
+                sent.get(), throttled.get(), waiting.get(), 0, 0);
+    }
+
+    /**
+     * Recharge les seaux au prorata du temps écoulé ; la capacité du seau par minute suit le débit courant
+     */
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed <= 0) {
+            return;
+        }
+        double minuteCapacity = Math.max(1.0, perMinute * factor);
+        minuteTokens = Math.min(minuteCapacity, minuteTokens + perMinute * factor * elapsed / MINUTE_NANOS);
+        dayTokens = Math.min(perDay, dayTokens + (double) perDay * elapsed / DAY_NANOS);
+        lastRefill = now;
+    }
+
+    private long nanosUntilAvailable(long now) {
+        long wait = Math.max(0, pausedUntil - now);
+        if (minuteTokens < 1) {
+            wait = Math.max(wait, (long) ((1 - minuteTokens) * MINUTE_NANOS / (perMinute * factor)));
+        }
+        if (dayTokens < 1) {
+            wait = Math.max(wait, (long) ((1 - dayTokens) * DAY_NANOS / perDay));
+        }
+        return Math.max(wait, 1);
+    }
+
+    /**
+     * Recherche une réponse SMTP 4xx dans l'erreur et ses causes (y compris les exceptions chaînées de JavaMail)
+     */
+    static boolean isThrottling(Throwable error) {
+        int depth = 0;
+        Throwable current = error;
+        while (current != null && depth++ < 10) {
+            String message = current.getMessage();
+            if (message != null && TRANSIENT_REPLY.matcher(message).find()) {
+                return true;
+            }
+            Throwable next = current.getCause();
+            if (next == null && current instanceof MessagingException messagingException) {
+                next = messagingException.getNextException();
+            }
+            current = next;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,62 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Modèle de texte compilé une fois : le texte est découpé en fragments fixes et en
+ * placeholders {{NOM}}, et chaque rendu se limite à concaténer les fragments et les valeurs.
+ */
+final class MailTemplate {
+
+    // fragments.length == keys.length + 1 : fragment, clé, fragment, ..., fragment
+    private final String[] fragments;
+    private final String[] keys;
+    private final int fixedLength;
+
+    private MailTemplate(String[] fragments, String[] keys) {
+        this.fragments = fragments;
+        this.keys = keys;
+        int length = 0;
+        for (String fragment : fragments) {
+            length += fragment.length();
+        }
+        this.fixedLength = length;
+    }
+
+    /**
+     * Compile un texte ; seuls les placeholders listés sont reconnus, le reste est gardé tel quel
+     */
+    static MailTemplate compile(String text, Collection<String> placeholders) {
+        List<PlaceholderMatcher.Match> matches = new PlaceholderMatcher(placeholders).findAll(text);
+        String[] fragments = new String[matches.size() + 1];
+        String[] keys = new String[matches.size()];
+        int position = 0;
+        for (int i = 0; i < matches.size(); i++) {
+            PlaceholderMatcher.Match match = matches.get(i);
+            fragments[i] = text.substring(position, match.start);
+            keys[i] = match.key;
+            position = match.end;
+        }
+        fragments[matches.size()] = text.substring(position);
+        return new MailTemplate(fragments, keys);
+    }
+
+    /**
+     * Produit le texte avec les valeurs données (chaîne vide pour une valeur absente),
+     * chaque valeur passant par la fonction d'échappement
+     */
+    String render(Map<String, String> values, UnaryOperator<String> escape) {
+        StringBuilder result = new StringBuilder(fixedLength + keys.length * 16);
+        for (int i = 0; i < keys.length; i++) {
+            result.append(fragments[i]);
+            String value = values.get(keys[i]);
+            if (value != null) {
+                result.append(escape.apply(value));
+            }
+        }
+        return result.append(fragments[keys.length]).toString();
+    }
+}
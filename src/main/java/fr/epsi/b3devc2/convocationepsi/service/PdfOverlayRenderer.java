@@ -0,0 +1,752 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.*;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdfwriter.ContentStreamWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType3Font;
+import org.apache.pdfbox.pdmodel.graphics.state.PDTextState;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mode de rendu par incrustation : le modèle (signature comprise) est converti une seule fois
+ * en PDF, la position de chaque ligne contenant un placeholder est relevée, puis les valeurs
+ * de chaque candidat sont dessinées sur une copie de ce PDF de base.
+ * <p>
+ * La fin de chaque ligne concernée, à partir du premier placeholder, est retirée du flux de
+ * contenu du PDF de base puis redessinée avec les polices du modèle : les placeholders ne
+ * subsistent ni à l'écran ni dans le texte extractible. Le modèle n'est pas incrusté si ce
+ * texte n'est pas isolable dans le flux de la page (formulaire XObject, opérateur partagé avec
+ * une autre ligne...). Si le texte d'un candidat dépasse la colonne de texte (il aurait été
+ * renvoyé à la ligne par Word) ou contient un caractère absent de la police embarquée, le rendu
+ * retourne null et l'appelant repasse par la conversion DOCX classique.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PdfOverlayRenderer {
+
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{\\{[A-Z_]+\\}\\}");
+    private static final String SIGNATURE_PLACEHOLDER = "{{SIGN}}";
+
+    // Tolérance en points avant de considérer qu'une ligne déborde
+    private static final float OVERFLOW_TOLERANCE = 1f;
+
+    private final DocumentGeneratorService wordService;
+    private final DocxToPdfConverter pdfConverter;
+
+    @Value("${convocation.overlay.cache.max-entries:8}")
+    private int maxEntries;
+
+    private final Map<String, Optional<OverlayTemplate>> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Optional<OverlayTemplate>> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Retourne le PDF de base du lot et ses emplacements, ou null si le modèle ne se prête pas
+     * à l'incrustation (placeholder introuvable dans le PDF, texte non extractible...). Seul ce
+     * verdict est mis en cache : une erreur de conversion ou de lecture est propagée sans l'être.
+     */
+    public OverlayTemplate prepare(ConvocationBatch batch) throws Exception {
+        String key = batch.getTemplate().getSha256()
+                + (batch.getSignature() != null ? ":" + batch.getSignature().getSha256() : "");
+
+        synchronized (cache) {
+            Optional<OverlayTemplate> cached = cache.get(key);
+            if (cached != null) {
+                return cached.orElse(null);
+            }
+        }
+
+        byte[] basePdf = pdfConverter.convertDocxToPdf(wordService.generateBaseDocument(batch));
+        OverlayTemplate overlay = analyse(basePdf, batch.getTemplate().getPlaceholders());
+
+        synchronized (cache) {
+            cache.put(key, Optional.ofNullable(overlay));
+        }
+        return overlay;
+    }
+
+    /**
+     * Dessine les valeurs d'un candidat sur une copie du PDF de base.
+     * Retourne null si une ligne serait renvoyée à la ligne ou ne peut pas être encodée.
+     */
+    public byte[] render(OverlayTemplate overlay, Map<String, String> variables) throws IOException {
+        try (PDDocument document = PDDocument.load(overlay.getBasePdf())) {
+            Map<Integer, List<LineSlot>> slotsByPage = new TreeMap<>();
+            overlay.getSlots().forEach(slot -> slotsByPage.computeIfAbsent(slot.getPage(), p -> new ArrayList<>()).add(slot));
+
+            for (Map.Entry<Integer, List<LineSlot>> entry : slotsByPage.entrySet()) {
+                PDPage page = document.getPage(entry.getKey());
+                Map<String, PDFont> fonts = new HashMap<>();
+                try (PDPageContentStream content = new PDPageContentStream(
+                        document, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+                    for (LineSlot slot : entry.getValue()) {
+                        if (!drawLine(content, page.getResources(), fonts, slot, variables)) {
+                            return null;
+                        }
+                    }
+                }
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(overlay.getBasePdf().length + 4096);
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private boolean drawLine(PDPageContentStream content, PDResources resources, Map<String, PDFont> fonts,
+                             LineSlot slot, Map<String, String> variables) throws IOException {
+        List<String> texts = new ArrayList<>();
+        List<PDFont> pieceFonts = new ArrayList<>();
+        float width = 0;
+        try {
+            for (Piece piece : slot.getPieces()) {
+                String text = piece.getKey() != null ? variables.getOrDefault(piece.getKey(), piece.getText()) : piece.getText();
+                PDFont font = fonts.get(piece.getFont());
+                if (font == null) {
+                    font = resources.getFont(COSName.getPDFName(piece.getFont()));
+                    if (font == null) {
+                        return false;
+                    }
+                    fonts.put(piece.getFont(), font);
+                }
+                width += font.getStringWidth(text) / 1000f * slot.getFontSize();
+                texts.add(text);
+                pieceFonts.add(font);
+            }
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            log.debug("Caractère absent de la police du modèle, rendu classique: {}", e.getMessage());
+            return false;
+        }
+
+        if (slot.getX() + width > slot.getMaxRight() + OVERFLOW_TOLERANCE) {
+            log.debug("La ligne déborderait de la colonne de texte, rendu classique");
+            return false;
+        }
+
+        // Le texte d'origine est retiré du PDF de base ; le masque couvre les tracés restants (soulignement)
+        float fontSize = slot.getFontSize();
+        content.setNonStrokingColor(Color.WHITE);
+        content.addRect(slot.getX(), slot.getBaseline() - fontSize * 0.25f, slot.getWidth() + 1, fontSize * 1.2f);
+        content.fill();
+
+        content.setNonStrokingColor(Color.BLACK);
+        content.beginText();
+        content.newLineAtOffset(slot.getX(), slot.getBaseline());
+        for (int i = 0; i < texts.size(); i++) {
+            if (!texts.get(i).isEmpty()) {
+                content.setFont(pieceFonts.get(i), fontSize);
+                content.showText(texts.get(i));
+            }
+        }
+        content.endText();
+        return true;
+    }
+
+    /**
+     * Relève les lignes contenant des placeholders dans le PDF de base et retire leur texte
+     * d'origine du flux de contenu
+     */
+    private OverlayTemplate analyse(byte[] basePdf, Set<String> expectedPlaceholders) throws IOException {
+        try (PDDocument document = PDDocument.load(basePdf)) {
+            SlotCollector collector = new SlotCollector();
+            collector.setSortByPosition(true);
+            collector.getText(document);
+
+            if (collector.unsupported != null) {
+                log.info("Incrustation désactivée pour ce modèle: {}", collector.unsupported);
+                return null;
+            }
+
+            Set<String> found = new HashSet<>();
+            for (LineSlot slot : collector.slots) {
+                slot.getPieces().stream().map(Piece::getKey).filter(Objects::nonNull).forEach(found::add);
+            }
+
+            for (String placeholder : expectedPlaceholders) {
+                if (!SIGNATURE_PLACEHOLDER.equals(placeholder) && !found.contains(placeholder)) {
+                    log.info("Placeholder {} introuvable dans le PDF de base, incrustation désactivée pour ce modèle",
+                            placeholder);
+                    return null;
+                }
+            }
+
+            for (Map.Entry<Integer, List<TextCut>> entry : collector.cuts.entrySet()) {
+                removeText(document, document.getPage(entry.getKey()), entry.getValue());
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(basePdf.length);
+            document.save(out);
+
+            log.info("PDF de base préparé pour l'incrustation: {} ligne(s) à remplir", collector.slots.size());
+            return new OverlayTemplate(out.toByteArray(), List.copyOf(collector.slots));
+        }
+    }
+
+    /**
+     * Réécrit le flux de contenu de la page en tronquant les opérateurs d'affichage de texte
+     * au premier glyphe à retirer. Le déplacement des glyphes retirés est conservé par un
+     * ajustement TJ, pour que le texte qui suit éventuellement reste à sa place.
+     */
+    private static void removeText(PDDocument document, PDPage page, List<TextCut> cuts) throws IOException {
+        Map<Integer, TextCut> byOperator = new HashMap<>();
+        cuts.forEach(cut -> byOperator.put(cut.operator, cut));
+
+        PDFStreamParser parser = new PDFStreamParser(page);
+        parser.parse();
+        List<Object> tokens = new ArrayList<>();
+        List<Object> operands = new ArrayList<>();
+        int index = -1;
+        for (Object token : parser.getTokens()) {
+            if (!(token instanceof Operator)) {
+                operands.add(token);
+                continue;
+            }
+            Operator operator = (Operator) token;
+            TextCut cut = byOperator.get(++index);
+            if (cut != null) {
+                COSArray kept = truncate((COSBase) operands.get(operands.size() - 1), cut);
+                operands.clear();
+                operands.add(kept);
+                operator = Operator.getOperator("TJ");
+            }
+            tokens.addAll(operands);
+            tokens.add(operator);
+            operands.clear();
+        }
+        tokens.addAll(operands);
+
+        PDStream stream = new PDStream(document);
+        try (OutputStream out = stream.createOutputStream(COSName.FLATE_DECODE)) {
+            new ContentStreamWriter(out).writeTokens(tokens);
+        }
+        page.setContents(stream);
+    }
+
+    /**
+     * Conserve les glyphes d'un opérande Tj ou TJ situés avant le premier glyphe retiré
+     */
+    private static COSArray truncate(COSBase operand, TextCut cut) throws IOException {
+        COSArray source;
+        if (operand instanceof COSArray array) {
+            source = array;
+        } else {
+            source = new COSArray();
+            source.add(operand);
+        }
+
+        COSArray kept = new COSArray();
+        int glyph = 0;
+        for (COSBase element : source) {
+            if (glyph >= cut.fromGlyph) {
+                break;
+            }
+            if (element instanceof COSString string) {
+                byte[] bytes = string.getBytes();
+                InputStream in = new ByteArrayInputStream(bytes);
+                while (in.available() > 0 && glyph < cut.fromGlyph) {
+                    cut.font.readCode(in);
+                    glyph++;
+                }
+                kept.add(new COSString(Arrays.copyOf(bytes, bytes.length - in.available())));
+            } else {
+                kept.add(element);
+            }
+        }
+        if (cut.adjustment != 0) {
+            kept.add(new COSFloat(cut.adjustment));
+        }
+        return kept;
+    }
+
+    /**
+     * Extraction des lignes de texte avec leurs positions. Chaque glyphe est rattaché à
+     * l'opérateur d'affichage (Tj, TJ) qui l'a produit, pour pouvoir le retirer du flux.
+     */
+    private static class SlotCollector extends PDFTextStripper {
+
+        private final List<LineSlot> slots = new ArrayList<>();
+        private final List<TextPosition> line = new ArrayList<>();
+        private final List<LineSlot> pageSlots = new ArrayList<>();
+        private float pageMaxRight;
+
+        // Glyphes à retirer du flux de contenu, par page
+        private final Map<Integer, List<TextCut>> cuts = new HashMap<>();
+        // Raison pour laquelle le modèle ne peut pas être incrusté
+        private String unsupported;
+
+        private final Map<COSDictionary, COSName> fontNames = new IdentityHashMap<>();
+        private final Map<COSName, PDFont> pageFonts = new LinkedHashMap<>();
+        private final Map<TextPosition, GlyphRef> glyphs = new IdentityHashMap<>();
+        private int operatorIndex;
+        private int nesting;
+        private ShowText currentShow;
+        private GlyphRef currentGlyph;
+
+        SlotCollector() throws IOException {
+            super();
+        }
+
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            pageSlots.clear();
+            pageMaxRight = 0;
+            fontNames.clear();
+            pageFonts.clear();
+            glyphs.clear();
+            operatorIndex = -1;
+            PDResources resources = page.getResources();
+            if (resources != null) {
+                for (COSName name : resources.getFontNames()) {
+                    PDFont font = resources.getFont(name);
+                    if (font != null) {
+                        fontNames.put(font.getCOSObject(), name);
+                        pageFonts.put(name, font);
+                    }
+                }
+            }
+            super.startPage(page);
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+            // Les opérateurs imbriqués (', ", contenu d'un XObject) ne sont pas numérotés
+            if (nesting > 0) {
+                super.processOperator(operator, operands);
+                return;
+            }
+            operatorIndex++;
+            String name = operator.getName();
+            currentShow = "Tj".equals(name) || "TJ".equals(name) ? newShow() : null;
+            nesting++;
+            try {
+                super.processOperator(operator, operands);
+            } finally {
+                nesting--;
+                currentShow = null;
+            }
+        }
+
+        private ShowText newShow() {
+            PDTextState state = getGraphicsState().getTextState();
+            PDFont font = state.getFont();
+            COSName name = font != null ? fontNames.get(font.getCOSObject()) : null;
+            if (name == null || font.isVertical() || font instanceof PDType3Font) {
+                return null;
+            }
+            return new ShowText(operatorIndex, font, name,
+                    state.getFontSize() * state.getHorizontalScaling() / 100f);
+        }
+
+        @Override
+        protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, String unicode,
+                                 Vector displacement) throws IOException {
+            if (nesting == 1 && currentShow != null) {
+                PDTextState state = getGraphicsState().getTextState();
+                float wordSpacing = code == 32 && !(font instanceof PDType0Font) ? state.getWordSpacing() : 0;
+                float advance = (displacement.getX() * state.getFontSize() + state.getCharacterSpacing() + wordSpacing)
+                        * state.getHorizontalScaling() / 100f;
+                currentGlyph = currentShow.add(advance);
+            } else {
+                currentGlyph = null;
+            }
+            super.showGlyph(textRenderingMatrix, font, code, unicode, displacement);
+        }
+
+        @Override
+        protected void applyTextAdjustment(float tx, float ty) throws IOException {
+            if (nesting == 1 && currentShow != null) {
+                currentShow.advances.add(tx);
+            }
+            super.applyTextAdjustment(tx, ty);
+        }
+
+        @Override
+        protected void processTextPosition(TextPosition text) {
+            if (currentGlyph != null) {
+                glyphs.put(text, currentGlyph);
+            }
+            super.processTextPosition(text);
+        }
+
+        @Override
+        protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+            line.addAll(textPositions);
+            for (TextPosition position : textPositions) {
+                pageMaxRight = Math.max(pageMaxRight, position.getXDirAdj() + position.getWidthDirAdj());
+            }
+            super.writeString(text, textPositions);
+        }
+
+        @Override
+        protected void writeWordSeparator() throws IOException {
+            // Espace entre deux mots : pas de TextPosition, marqué par null
+            line.add(null);
+            super.writeWordSeparator();
+        }
+
+        @Override
+        protected void writeLineSeparator() throws IOException {
+            flushLine();
+            super.writeLineSeparator();
+        }
+
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            flushLine();
+            // Sans voisin à droite, la colonne de texte est bornée par le texte le plus à droite de la page
+            for (LineSlot slot : pageSlots) {
+                if (Float.isNaN(slot.maxRight)) {
+                    slot.maxRight = Math.max(pageMaxRight, slot.getX() + slot.getWidth());
+                }
+            }
+            slots.addAll(pageSlots);
+            super.endPage(page);
+        }
+
+        /**
+         * Découpe la ligne en blocs séparés par de grands écarts horizontaux (cellules de tableau,
+         * tabulations) et relève les blocs contenant des placeholders
+         */
+        private void flushLine() {
+            List<List<TextPosition>> blocks = new ArrayList<>();
+            List<TextPosition> block = new ArrayList<>();
+            TextPosition previous = null;
+            for (TextPosition position : line) {
+                if (position != null && previous != null) {
+                    float gap = position.getXDirAdj() - (previous.getXDirAdj() + previous.getWidthDirAdj());
+                    if (gap > previous.getFontSizeInPt() * 1.5f) {
+                        trimTrailingSeparators(block);
+                        blocks.add(block);
+                        block = new ArrayList<>();
+                    }
+                }
+                if (position != null || !block.isEmpty()) {
+                    block.add(position);
+                }
+                if (position != null) {
+                    previous = position;
+                }
+            }
+            trimTrailingSeparators(block);
+            if (!block.isEmpty()) {
+                blocks.add(block);
+            }
+            line.clear();
+
+            for (int i = 0; i < blocks.size(); i++) {
+                float rightLimit = Float.NaN;
+                if (i + 1 < blocks.size()) {
+                    TextPosition next = blocks.get(i + 1).get(0);
+                    rightLimit = next.getXDirAdj() - next.getFontSizeInPt() * 0.5f;
+                }
+                flushBlock(blocks.get(i), rightLimit);
+            }
+        }
+
+        private void trimTrailingSeparators(List<TextPosition> block) {
+            while (!block.isEmpty() && block.get(block.size() - 1) == null) {
+                block.remove(block.size() - 1);
+            }
+        }
+
+        private void flushBlock(List<TextPosition> positions, float rightLimit) {
+            if (positions.isEmpty() || unsupported != null) {
+                return;
+            }
+
+            // Texte du bloc, chaque caractère étant rattaché à sa position
+            StringBuilder text = new StringBuilder();
+            List<TextPosition> owners = new ArrayList<>();
+            TextPosition previous = positions.get(0);
+            for (TextPosition position : positions) {
+                if (position == null) {
+                    text.append(' ');
+                    owners.add(previous);
+                    continue;
+                }
+                String unicode = position.getUnicode();
+                for (int i = 0; i < unicode.length(); i++) {
+                    text.append(unicode.charAt(i));
+                    owners.add(position);
+                }
+                previous = position;
+            }
+
+            Matcher matcher = VARIABLE_PATTERN.matcher(text);
+            if (!matcher.find() || SIGNATURE_PLACEHOLDER.equals(matcher.group())) {
+                return;
+            }
+
+            int tailStart = matcher.start();
+            List<TextCut> blockCuts = cutsFor(owners.subList(tailStart, owners.size()));
+            if (blockCuts == null) {
+                return;
+            }
+
+            TextPosition first = owners.get(tailStart);
+            TextPosition last = owners.get(owners.size() - 1);
+
+            List<Piece> pieces = new ArrayList<>();
+            int current = tailStart;
+            matcher.reset();
+            while (matcher.find()) {
+                if (matcher.start() < tailStart) {
+                    continue;
+                }
+                addStaticPieces(pieces, text, owners, current, matcher.start());
+                COSName font = fontOf(owners.get(matcher.start()));
+                if (PlaceholderSubstitution.BOLD_VARIABLES.contains(matcher.group())) {
+                    font = boldVariant(font);
+                    if (font == null) {
+                        unsupported = "police grasse introuvable pour " + matcher.group();
+                        return;
+                    }
+                }
+                pieces.add(new Piece(matcher.group(), matcher.group(), font.getName()));
+                current = matcher.end();
+            }
+            addStaticPieces(pieces, text, owners, current, text.length());
+
+            float x = first.getXDirAdj();
+            LineSlot slot = new LineSlot(
+                    getCurrentPageNo() - 1,
+                    x,
+                    first.getPageHeight() - first.getYDirAdj(),
+                    last.getXDirAdj() + last.getWidthDirAdj() - x,
+                    first.getFontSizeInPt(),
+                    pieces
+            );
+            slot.maxRight = rightLimit;
+            pageSlots.add(slot);
+            cuts.computeIfAbsent(getCurrentPageNo() - 1, p -> new ArrayList<>()).addAll(blockCuts);
+        }
+
+        /**
+         * Opérateurs à tronquer pour retirer la fin de ligne. Chaque opérateur touché doit
+         * afficher ses derniers glyphes dans la fin de ligne et aucun ailleurs ; sinon le
+         * modèle n'est pas incrusté.
+         */
+        private List<TextCut> cutsFor(List<TextPosition> tail) {
+            Map<ShowText, BitSet> shown = new LinkedHashMap<>();
+            for (TextPosition position : tail) {
+                GlyphRef glyph = glyphs.get(position);
+                if (glyph == null) {
+                    unsupported = "texte à remplacer hors du flux de contenu de la page";
+                    return null;
+                }
+                shown.computeIfAbsent(glyph.show, s -> new BitSet()).set(glyph.index);
+            }
+
+            List<TextCut> result = new ArrayList<>();
+            for (Map.Entry<ShowText, BitSet> entry : shown.entrySet()) {
+                ShowText show = entry.getKey();
+                BitSet indexes = entry.getValue();
+                int from = indexes.nextSetBit(0);
+                if (indexes.cardinality() != show.glyphEvents.size() - from) {
+                    unsupported = "opérateur de texte partagé entre la fin de ligne et un autre texte";
+                    return null;
+                }
+                result.add(new TextCut(show.operator, from, show.font, show.adjustmentFrom(from)));
+            }
+            return result;
+        }
+
+        /**
+         * Découpe le texte statique en morceaux de même police
+         */
+        private void addStaticPieces(List<Piece> pieces, CharSequence text, List<TextPosition> owners, int from, int to) {
+            int start = from;
+            while (start < to) {
+                COSName font = fontOf(owners.get(start));
+                int end = start + 1;
+                while (end < to && fontOf(owners.get(end)).equals(font)) {
+                    end++;
+                }
+                pieces.add(new Piece(text.subSequence(start, end).toString(), null, font.getName()));
+                start = end;
+            }
+        }
+
+        private COSName fontOf(TextPosition position) {
+            return glyphs.get(position).show.fontName;
+        }
+
+        /**
+         * Police grasse de la même famille parmi les polices de la page
+         */
+        private COSName boldVariant(COSName name) {
+            PDFont font = pageFonts.get(name);
+            if (isBold(font)) {
+                return name;
+            }
+            for (Map.Entry<COSName, PDFont> entry : pageFonts.entrySet()) {
+                PDFont candidate = entry.getValue();
+                if (isBold(candidate) && isItalic(candidate) == isItalic(font)
+                        && family(candidate).equals(family(font))) {
+                    return entry.getKey();
+                }
+            }
+            return null;
+        }
+
+        private static boolean isBold(PDFont font) {
+            return baseName(font).contains("bold");
+        }
+
+        private static boolean isItalic(PDFont font) {
+            String name = baseName(font);
+            return name.contains("italic") || name.contains("oblique");
+        }
+
+        /**
+         * Famille d'une police : nom sans préfixe de sous-ensemble (ABCDEF+) ni style
+         */
+        private static String family(PDFont font) {
+            String name = baseName(font);
+            int style = name.indexOf('-') >= 0 ? name.indexOf('-') : name.indexOf(',');
+            String family = style >= 0 ? name.substring(0, style) : name;
+            return family.replaceFirst("(psmt|mt)$", "");
+        }
+
+        private static String baseName(PDFont font) {
+            String name = font.getName() != null ? font.getName().toLowerCase(Locale.ROOT) : "";
+            int subset = name.indexOf('+');
+            return subset == 6 ? name.substring(subset + 1) : name;
+        }
+    }
+
+    /**
+     * Opérateur Tj ou TJ : déplacements successifs (glyphes et ajustements TJ) en espace texte
+     */
+    private static final class ShowText {
+        private final int operator;
+        private final PDFont font;
+        private final COSName fontName;
+        // Taille de police multipliée par l'échelle horizontale
+        private final float scale;
+        private final List<Float> advances = new ArrayList<>();
+        // Indice dans advances du déplacement de chaque glyphe
+        private final List<Integer> glyphEvents = new ArrayList<>();
+
+        private ShowText(int operator, PDFont font, COSName fontName, float scale) {
+            this.operator = operator;
+            this.font = font;
+            this.fontName = fontName;
+            this.scale = scale;
+        }
+
+        private GlyphRef add(float advance) {
+            glyphEvents.add(advances.size());
+            advances.add(advance);
+            return new GlyphRef(this, glyphEvents.size() - 1);
+        }
+
+        /**
+         * Ajustement TJ équivalent au déplacement retiré à partir du glyphe donné
+         */
+        private float adjustmentFrom(int glyph) {
+            if (scale == 0) {
+                return 0;
+            }
+            int firstEvent = glyph == 0 ? 0 : glyphEvents.get(glyph - 1) + 1;
+            float removed = 0;
+            for (int i = firstEvent; i < advances.size(); i++) {
+                removed += advances.get(i);
+            }
+            return -removed * 1000f / scale;
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class GlyphRef {
+        private final ShowText show;
+        private final int index;
+    }
+
+    /**
+     * Troncature d'un opérateur d'affichage à partir d'un glyphe
+     */
+    @AllArgsConstructor
+    private static final class TextCut {
+        private final int operator;
+        private final int fromGlyph;
+        private final PDFont font;
+        private final float adjustment;
+    }
+
+    /**
+     * PDF de base d'un lot et lignes à remplir
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class OverlayTemplate {
+        private final byte[] basePdf;
+        private final List<LineSlot> slots;
+    }
+
+    /**
+     * Fin de ligne à redessiner, à partir du premier placeholder de la ligne
+     */
+    @Getter
+    public static class LineSlot {
+        private final int page;
+        private final float x;
+        private final float baseline;
+        private final float width;
+        private final float fontSize;
+        private final List<Piece> pieces;
+        private float maxRight;
+
+        LineSlot(int page, float x, float baseline, float width, float fontSize, List<Piece> pieces) {
+            this.page = page;
+            this.x = x;
+            this.baseline = baseline;
+            this.width = width;
+            this.fontSize = fontSize;
+            this.pieces = pieces;
+            this.maxRight = Float.NaN;
+        }
+    }
+
+    /**
+     * Morceau de ligne : texte statique (key == null) ou placeholder, avec le nom de la police
+     * du modèle dans les ressources de la page
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Piece {
+        private final String text;
+        private final String key;
+        private final String font;
+    }
+}
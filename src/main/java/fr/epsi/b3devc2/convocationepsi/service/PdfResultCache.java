@@ -0,0 +1,247 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.PdfCacheStatsDto;
+import fr.epsi.b3devc2.convocationepsi.dto.RenderMode;
+import fr.epsi.b3devc2.convocationepsi.util.HashUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Cache disque des PDF générés, adressé par contenu : la clé est l'empreinte du modèle, des
+ * variables résolues du candidat, de la signature et du mode de rendu. Un même candidat
+ * régénéré sans changement, y compris dans une autre session, n'est donc pas reconverti.
+ * Le cache est borné en octets et évince les entrées les moins récemment utilisées.
+ */
+@Component
+@Slf4j
+public class PdfResultCache {
+
+    // À incrémenter lorsque le rendu change, pour invalider les entrées existantes
+    private static final String KEY_VERSION = "1";
+    private static final String EXTENSION = ".pdf";
+
+    // Taille de chaque entrée dans l'ordre d'accès (LRU), protégées par le verrou de la map
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Value("${convocation.pdf.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${convocation.pdf.cache.dir:data/pdf-cache}")
+    private Path cacheDir;
+
+    @Value("${convocation.pdf.cache.max-bytes:1073741824}")
+    private long maxBytes;
+
+    /**
+     * Reconstruit l'index à partir des fichiers présents, du plus ancien au plus récent
+     */
+    @PostConstruct
+    void loadIndex() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(cacheDir);
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(cacheDir, 2)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+        // Les fichiers temporaires d'une écriture interrompue sont supprimés
+        files.stream().filter(path -> !path.getFileName().toString().endsWith(EXTENSION))
+                .forEach(PdfResultCache::delete);
+        files = files.stream().filter(path -> path.getFileName().toString().endsWith(EXTENSION))
+                .sorted(Comparator.comparingLong(PdfResultCache::lastModified))
+                .toList();
+        synchronized (entries) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long size = sizeOf(file);
+                entries.put(name.substring(0, name.length() - EXTENSION.length()), size);
+                totalBytes += size;
+            }
+        }
+        evictOverBudget();
+        log.info("Cache PDF: {} entrée(s), {} octets dans {}", entries.size(), totalBytes, cacheDir);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Calcule la clé d'un PDF : les variables sont triées pour ne pas dépendre de l'ordre de la map
+     */
+    public static String key(String templateSha256, RenderMode mode, Map<String, String> variables,
+                             String signatureSha256) {
+        MessageDigest digest = HashUtils.newSha256();
+        update(digest, KEY_VERSION);
+        update(digest, templateSha256);
+        update(digest, mode.name());
+        update(digest, signatureSha256 != null ? signatureSha256 : "");
+        for (Map.Entry<String, String> entry : new TreeMap<>(variables).entrySet()) {
+            update(digest, entry.getKey());
+            update(digest, entry.getValue() != null ? entry.getValue() : "");
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Retourne le PDF en cache pour cette clé, ou null
+     */
+    public byte[] get(String key) {
+        synchronized (entries) {
+            if (entries.get(key) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        try {
+            byte[] pdf = Files.readAllBytes(pathOf(key));
+            hits.incrementAndGet();
+            return pdf;
+        } catch (IOException e) {
+            // Fichier supprimé hors de l'application : l'entrée est oubliée
+            log.warn("Entrée du cache PDF {} illisible: {}", key, e.getMessage());
+            forget(key);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Enregistre un PDF ; l'écriture passe par un fichier temporaire renommé atomiquement
+     */
+    public void put(String key, byte[] pdf) {
+        if (pdf.length > maxBytes) {
+            return;
+        }
+        synchronized (entries) {
+            if (entries.containsKey(key)) {
+                return;
+            }
+        }
+        Path target = pathOf(key);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), key, ".tmp");
+            try {
+                Files.write(temp, pdf);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            log.warn("Impossible d'écrire l'entrée {} du cache PDF: {}", key, e.getMessage());
+            return;
+        }
+        synchronized (entries) {
+            Long previous = entries.put(key, (long) pdf.length);
+            totalBytes += pdf.length - (previous != null ? previous : 0);
+        }
+        stores.incrementAndGet();
+        evictOverBudget();
+    }
+
+    /**
+     * Vide le cache
+     */
+    public void clear() {
+        List<String> keys;
+        synchronized (entries) {
+            keys = new ArrayList<>(entries.keySet());
+            entries.clear();
+            totalBytes = 0;
+        }
+        keys.forEach(key -> delete(pathOf(key)));
+        log.info("Cache PDF vidé ({} entrée(s))", keys.size());
+    }
+
+    public PdfCacheStatsDto getStats() {
+        synchronized (entries) {
+            return new PdfCacheStatsDto(enabled, entries.size(), totalBytes, maxBytes,
+                    hits.get(), misses.get(), stores.get(), evictions.get());
+        }
+    }
+
+    /**
+     * Supprime les entrées les moins récemment utilisées tant que le budget est dépassé
+     */
+    private void evictOverBudget() {
+        List<String> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                it.remove();
+                totalBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+            }
+        }
+        if (!evicted.isEmpty()) {
+            evictions.addAndGet(evicted.size());
+            evicted.forEach(key -> delete(pathOf(key)));
+            log.debug("{} entrée(s) évincée(s) du cache PDF (budget de {} octets)", evicted.size(), maxBytes);
+        }
+    }
+
+    private void forget(String key) {
+        synchronized (entries) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+    }
+
+    /**
+     * Les fichiers sont répartis dans des sous-répertoires selon les deux premiers caractères de la clé
+     */
+    private Path pathOf(String key) {
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key + EXTENSION);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Impossible de supprimer {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Recherche en une seule passe de tous les placeholders {{NOM}} connus dans un texte.
+ * Les clés sont compilées dans un trie ; chaque occurrence de "{{" sert d'ancre et le trie
+ * est parcouru à partir de celle-ci, ce qui donne au plus une correspondance par ancre
+ * puisqu'aucune clé n'est préfixe d'une autre.
+ */
+final class PlaceholderMatcher {
+
+    private static final int ALPHABET = 128;
+
+    private final Node root = new Node();
+    private final Set<String> keys;
+
+    PlaceholderMatcher(Collection<String> keys) {
+        this.keys = Set.copyOf(keys);
+        for (String key : this.keys) {
+            insert(key);
+        }
+    }
+
+    Set<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Retourne les correspondances, dans l'ordre du texte et sans chevauchement
+     */
+    List<Match> findAll(String text) {
+        List<Match> matches = new ArrayList<>();
+        int anchor = text.indexOf("{{");
+        while (anchor >= 0) {
+            String key = matchAt(text, anchor);
+            if (key != null) {
+                matches.add(new Match(key, anchor, anchor + key.length()));
+                anchor = text.indexOf("{{", anchor + key.length());
+            } else {
+                anchor = text.indexOf("{{", anchor + 1);
+            }
+        }
+        return matches;
+    }
+
+    private String matchAt(String text, int start) {
+        Node node = root;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= ALPHABET || node.next[c] == null) {
+                return null;
+            }
+            node = node.next[c];
+            if (node.key != null) {
+                return node.key;
+            }
+        }
+        return null;
+    }
+
+    private void insert(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c >= ALPHABET) {
+                throw new IllegalArgumentException("Caractère non supporté dans le placeholder " + key);
+            }
+            if (node.next[c] == null) {
+                node.next[c] = new Node();
+            }
+            node = node.next[c];
+        }
+        node.key = key;
+    }
+
+    private static final class Node {
+        final Node[] next = new Node[ALPHABET];
+        String key;
+    }
+
+    /**
+     * Occurrence d'un placeholder : clé et position [start, end) dans le texte d'origine
+     */
+    static final class Match {
+        final String key;
+        final int start;
+        final int end;
+
+        Match(String key, int start, int end) {
+            this.key = key;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remplacement des placeholders dans le texte d'un paragraphe, commun aux modes
+ * de remplissage XWPF et streaming
+ */
+@Slf4j
+final class PlaceholderSubstitution {
+
+    // Variables qui doivent être en gras
+    static final Set<String> BOLD_VARIABLES = Set.of(
+            "{{HORAIRE}}",
+            "{{SALLE}}",
+            "{{ADRESSE}}"
+    );
+
+    // Les clés des variables sont identiques d'un candidat à l'autre : le matcher est recompilé
+    // uniquement si l'ensemble des clés change
+    private static volatile PlaceholderMatcher cachedMatcher;
+
+    private PlaceholderSubstitution() {
+    }
+
+    /**
+     * Remplace les variables dans le texte et découpe le résultat en segments gras / normaux.
+     * Retourne null si aucune variable n'a été remplacée.
+     */
+    static List<TextSegment> substitute(String originalText, Map<String, String> variables, boolean defaultBold) {
+        // Rejet immédiat des paragraphes sans placeholder
+        if (originalText.indexOf("{{") < 0) {
+            return null;
+        }
+
+        List<PlaceholderMatcher.Match> matches = matcherFor(variables).findAll(originalText);
+        if (matches.isEmpty()) {
+            return null;
+        }
+
+        log.debug("Texte paragraphe AVANT: '{}'", originalText);
+
+        List<TextSegment> segments = new ArrayList<>();
+        StringBuilder pending = new StringBuilder();
+        int currentPos = 0;
+
+        for (PlaceholderMatcher.Match match : matches) {
+            String value = variables.get(match.key);
+            log.debug("REMPLACEMENT: '{}' -> '{}'", match.key, value);
+
+            pending.append(originalText, currentPos, match.start);
+            currentPos = match.end;
+
+            // Une variable doit être en gras si :
+            // 1. Elle était déjà en gras dans le template (defaultBold = true)
+            // 2. OU elle est dans la liste des variables qui doivent être en gras
+            boolean bold = defaultBold || BOLD_VARIABLES.contains(match.key);
+            if (bold && !value.isEmpty()) {
+                flush(segments, pending, defaultBold);
+                segments.add(new TextSegment(value, true));
+            } else {
+                pending.append(value);
+            }
+        }
+
+        pending.append(originalText, currentPos, originalText.length());
+        flush(segments, pending, defaultBold);
+
+        if (segments.isEmpty()) {
+            segments.add(new TextSegment("", defaultBold));
+        }
+        return segments;
+    }
+
+    private static void flush(List<TextSegment> segments, StringBuilder pending, boolean bold) {
+        if (pending.length() > 0) {
+            segments.add(new TextSegment(pending.toString(), bold));
+            pending.setLength(0);
+        }
+    }
+
+    private static PlaceholderMatcher matcherFor(Map<String, String> variables) {
+        PlaceholderMatcher matcher = cachedMatcher;
+        if (matcher == null || !matcher.getKeys().equals(variables.keySet())) {
+            matcher = new PlaceholderMatcher(variables.keySet());
+            cachedMatcher = matcher;
+        }
+        return matcher;
+    }
+
+    /**
+     * Classe pour représenter un segment de texte avec son formatage
+     */
+    static final class TextSegment {
+        final String text;
+        final boolean isBold;
+
+        TextSegment(String text, boolean isBold) {
+            this.text = text;
+            this.isBold = isBold;
+        }
+    }
+}
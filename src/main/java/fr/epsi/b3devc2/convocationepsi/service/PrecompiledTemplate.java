@@ -0,0 +1,227 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Modèle de convocation analysé une seule fois : octets du .docx, parties décompressées et
+ * compressées telles qu'archivées, et emplacement de chaque paragraphe contenant un placeholder {{...}}
+ */
+@Getter
+public class PrecompiledTemplate {
+
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\{\\{[A-Z_]+\\}\\}");
+    private static final Pattern DRAWING_ID = Pattern.compile("<(?:\\w+:)?docPr\\b[^>]*?\\sid=\"(\\d+)\"");
+
+    /**
+     * Zone du document dans laquelle se trouve un paragraphe
+     */
+    public enum Zone {
+        BODY, TABLE, HEADER, FOOTER
+    }
+
+    /**
+     * Paragraphe contenant au moins un placeholder, repéré par son rang dans le parcours du document
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PlaceholderLocation {
+        private final Zone zone;
+        private final int ordinal;
+        private final Set<String> placeholders;
+    }
+
+    /**
+     * Partie du package telle qu'elle figure dans l'archive : données compressées, méthode,
+     * CRC et taille décompressée, recopiées sans recompression
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class RawPart {
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final byte[] data;
+    }
+
+    private final String sha256;
+    private final byte[] bytes;
+    private final Map<String, byte[]> parts;
+    private final Map<String, RawPart> rawParts;
+    private final List<PlaceholderLocation> locations;
+    private final Set<String> placeholders;
+    // Plus grand identifiant de dessin (wp:docPr) du modèle, les dessins ajoutés sont numérotés au-delà
+    private final long maxDrawingId;
+
+    private PrecompiledTemplate(String sha256, byte[] bytes, Map<String, byte[]> parts,
+                                Map<String, RawPart> rawParts, List<PlaceholderLocation> locations) {
+        this.sha256 = sha256;
+        this.bytes = bytes;
+        this.parts = Collections.unmodifiableMap(parts);
+        this.rawParts = Collections.unmodifiableMap(rawParts);
+        this.locations = List.copyOf(locations);
+
+        Set<String> all = new LinkedHashSet<>();
+        locations.forEach(location -> all.addAll(location.getPlaceholders()));
+        this.placeholders = Collections.unmodifiableSet(all);
+        this.maxDrawingId = findMaxDrawingId(parts);
+    }
+
+    /**
+     * Analyse le modèle et repère les paragraphes contenant des placeholders
+     */
+    public static PrecompiledTemplate compile(String sha256, byte[] bytes) throws IOException {
+        List<PlaceholderLocation> locations = new ArrayList<>();
+
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(bytes))) {
+            List<LocatedParagraph> paragraphs = collectParagraphs(document);
+            for (int i = 0; i < paragraphs.size(); i++) {
+                String text = paragraphs.get(i).getParagraph().getText();
+                if (text == null || !text.contains("{{")) {
+                    continue;
+                }
+
+                Set<String> found = new LinkedHashSet<>();
+                Matcher matcher = VARIABLE_PATTERN.matcher(text);
+                while (matcher.find()) {
+                    found.add(matcher.group());
+                }
+                if (!found.isEmpty()) {
+                    locations.add(new PlaceholderLocation(paragraphs.get(i).getZone(), i, Set.copyOf(found)));
+                }
+            }
+        }
+
+        return new PrecompiledTemplate(sha256, bytes, readParts(bytes), readRawParts(bytes), locations);
+    }
+
+    /**
+     * Décompresse les parties du package dans leur ordre d'origine
+     */
+    private static Map<String, byte[]> readParts(byte[] bytes) throws IOException {
+        Map<String, byte[]> parts = new LinkedHashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    parts.put(entry.getName(), zis.readAllBytes());
+                }
+                zis.closeEntry();
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Lit les données compressées de chaque partie depuis le répertoire central de l'archive
+     */
+    private static Map<String, RawPart> readRawParts(byte[] bytes) throws IOException {
+        Map<String, RawPart> rawParts = new LinkedHashMap<>();
+        try (ZipFile zip = ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(bytes)).get()) {
+            for (ZipArchiveEntry entry : Collections.list(zip.getEntriesInPhysicalOrder())) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                try (InputStream in = zip.getRawInputStream(entry)) {
+                    rawParts.put(entry.getName(),
+                            new RawPart(entry.getMethod(), entry.getCrc(), entry.getSize(), in.readAllBytes()));
+                }
+            }
+        }
+        return rawParts;
+    }
+
+    private static long findMaxDrawingId(Map<String, byte[]> parts) {
+        long max = 0;
+        for (Map.Entry<String, byte[]> part : parts.entrySet()) {
+            if (part.getKey().startsWith("word/") && part.getKey().endsWith(".xml")) {
+                Matcher matcher = DRAWING_ID.matcher(new String(part.getValue(), StandardCharsets.UTF_8));
+                while (matcher.find()) {
+                    max = Math.max(max, Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Ouvre une nouvelle instance modifiable du document
+     */
+    public XWPFDocument open() throws IOException {
+        return new XWPFDocument(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Retourne le premier emplacement contenant le placeholder donné
+     */
+    public Optional<PlaceholderLocation> findFirst(String placeholder) {
+        return locations.stream()
+                .filter(location -> location.getPlaceholders().contains(placeholder))
+                .findFirst();
+    }
+
+    /**
+     * Liste les paragraphes du document dans un ordre stable :
+     * corps, tableaux du corps, en-têtes puis pieds de page
+     */
+    public static List<LocatedParagraph> collectParagraphs(XWPFDocument document) {
+        List<LocatedParagraph> result = new ArrayList<>();
+
+        document.getParagraphs().forEach(p -> result.add(new LocatedParagraph(Zone.BODY, p)));
+        for (XWPFTable table : document.getTables()) {
+            collectTableParagraphs(table, Zone.TABLE, result);
+        }
+
+        for (XWPFHeader header : document.getHeaderList()) {
+            header.getParagraphs().forEach(p -> result.add(new LocatedParagraph(Zone.HEADER, p)));
+            for (XWPFTable table : header.getTables()) {
+                collectTableParagraphs(table, Zone.HEADER, result);
+            }
+        }
+
+        for (XWPFFooter footer : document.getFooterList()) {
+            footer.getParagraphs().forEach(p -> result.add(new LocatedParagraph(Zone.FOOTER, p)));
+            for (XWPFTable table : footer.getTables()) {
+                collectTableParagraphs(table, Zone.FOOTER, result);
+            }
+        }
+
+        return result;
+    }
+
+    private static void collectTableParagraphs(XWPFTable table, Zone zone, List<LocatedParagraph> result) {
+        for (XWPFTableRow row : table.getRows()) {
+            for (XWPFTableCell cell : row.getTableCells()) {
+                cell.getParagraphs().forEach(p -> result.add(new LocatedParagraph(zone, p)));
+                // Gérer les tableaux imbriqués
+                for (XWPFTable nestedTable : cell.getTables()) {
+                    collectTableParagraphs(nestedTable, zone, result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Paragraphe accompagné de sa zone
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class LocatedParagraph {
+        private final Zone zone;
+        private final XWPFParagraph paragraph;
+    }
+}
@@ -0,0 +1,26 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Signature décodée, redimensionnée et réencodée en PNG une seule fois pour tout le lot
+ */
+@Getter
+@AllArgsConstructor
+public class PreparedSignature {
+    private final byte[] pngBytes;
+    private final String sha256;
+    private final int width;
+    private final int height;
+
+    /**
+     * Ouvre un flux sur l'image partagée
+     */
+    public InputStream openStream() {
+        return new ByteArrayInputStream(pngBytes);
+    }
+}
@@ -0,0 +1,77 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.util.HashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Prépare l'image de signature pour l'encadré de 260 x 70 points des convocations
+ */
+@Service
+@Slf4j
+public class SignatureImageService {
+
+    static final int BOX_WIDTH_PT = 260;
+    static final int BOX_HEIGHT_PT = 70;
+
+    @Value("${convocation.signature.dpi:150}")
+    private int dpi;
+
+    /**
+     * Décode la signature, la réduit à la résolution de l'encadré et la réencode en PNG.
+     * Retourne null si aucune signature n'a été fournie.
+     */
+    public PreparedSignature prepare(MultipartFile signatureImage) throws IOException {
+        if (signatureImage == null || signatureImage.isEmpty()) {
+            return null;
+        }
+
+        byte[] original = signatureImage.getBytes();
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(original));
+        if (source == null) {
+            throw new IllegalArgumentException("Format d'image de signature non supporté");
+        }
+
+        int targetWidth = Math.round(BOX_WIDTH_PT * dpi / 72f);
+        int targetHeight = Math.round(BOX_HEIGHT_PT * dpi / 72f);
+
+        // L'image est étirée dans l'encadré au rendu : au-delà de sa résolution, les pixels sont perdus
+        BufferedImage scaled = source;
+        if (source.getWidth() > targetWidth || source.getHeight() > targetHeight) {
+            scaled = resize(source, Math.min(source.getWidth(), targetWidth), Math.min(source.getHeight(), targetHeight));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(scaled, "png", out);
+        byte[] png = out.toByteArray();
+
+        log.info("Signature préparée: {}x{} px ({} bytes) -> {}x{} px ({} bytes)",
+                source.getWidth(), source.getHeight(), original.length,
+                scaled.getWidth(), scaled.getHeight(), png.length);
+
+        return new PreparedSignature(png, HashUtils.sha256Hex(png), scaled.getWidth(), scaled.getHeight());
+    }
+
+    private BufferedImage resize(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+}
@@ -0,0 +1,611 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.*;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Remplissage du modèle en flux : les parties word/document.xml, en-têtes et pieds de page
+ * passent par un couple lecteur/écrivain StAX, paragraphe par paragraphe ; toutes les autres
+ * parties du package sont recopiées telles quelles, sans être recompressées.
+ */
+@Component
+@Slf4j
+public class StreamingDocxFiller {
+
+    static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    private static final Pattern FILLABLE_PART = Pattern.compile("word/(document|header\\d*|footer\\d*)\\.xml");
+    private static final Pattern BODY_START = Pattern.compile("<(?:(\\w+):)?body\\b[^>]*>");
+    private static final String DOCUMENT_PART = "word/document.xml";
+
+    private static final String SIGNATURE_PLACEHOLDER = "{{SIGN}}";
+    private static final String SIGNATURE_REL_ID = "rIdConvocationSign";
+    private static final String SIGNATURE_MEDIA = "media/convocation_signature.png";
+
+    // 260 x 70 points, comme le mode XWPF
+    private static final long SIGNATURE_CX = SignatureImageService.BOX_WIDTH_PT * 12700L;
+    private static final long SIGNATURE_CY = SignatureImageService.BOX_HEIGHT_PT * 12700L;
+
+    private static final String SIGNATURE_RUN_XML =
+            "<w:r xmlns:w=\"" + W_NS + "\"><w:drawing>"
+                    + "<wp:inline distT=\"0\" distB=\"0\" distL=\"0\" distR=\"0\""
+                    + " xmlns:wp=\"http://schemas.openxmlformats.org/drawingml/2006/wordprocessingDrawing\">"
+                    + "<wp:extent cx=\"" + SIGNATURE_CX + "\" cy=\"" + SIGNATURE_CY + "\"/>"
+                    + "<wp:docPr id=\"%d\" name=\"Signature\"/>"
+                    + "<a:graphic xmlns:a=\"http://schemas.openxmlformats.org/drawingml/2006/main\">"
+                    + "<a:graphicData uri=\"http://schemas.openxmlformats.org/drawingml/2006/picture\">"
+                    + "<pic:pic xmlns:pic=\"http://schemas.openxmlformats.org/drawingml/2006/picture\">"
+                    + "<pic:nvPicPr><pic:cNvPr id=\"0\" name=\"signature.png\"/><pic:cNvPicPr/></pic:nvPicPr>"
+                    + "<pic:blipFill><a:blip r:embed=\"" + SIGNATURE_REL_ID + "\""
+                    + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"/>"
+                    + "<a:stretch><a:fillRect/></a:stretch></pic:blipFill>"
+                    + "<pic:spPr><a:xfrm><a:off x=\"0\" y=\"0\"/>"
+                    + "<a:ext cx=\"" + SIGNATURE_CX + "\" cy=\"" + SIGNATURE_CY + "\"/></a:xfrm>"
+                    + "<a:prstGeom prst=\"rect\"><a:avLst/></a:prstGeom></pic:spPr>"
+                    + "</pic:pic></a:graphicData></a:graphic></wp:inline></w:drawing></w:r>";
+
+    private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    private final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+
+    public StreamingDocxFiller() {
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Produit le .docx rempli pour un jeu de variables, avec la signature PNG si fournie
+     */
+    public byte[] fill(PrecompiledTemplate template, Map<String, String> variables, byte[] signaturePng)
+            throws IOException {
+        Map<String, byte[]> rewritten = new HashMap<>();
+        Set<String> partsWithSignature = new LinkedHashSet<>();
+        boolean[] signaturePending = {signaturePng != null && signaturePng.length > 0};
+        long signatureId = template.getMaxDrawingId() + 1;
+
+        // Réécrire les parties contenant des placeholders
+        for (Map.Entry<String, byte[]> part : template.getParts().entrySet()) {
+            if (FILLABLE_PART.matcher(part.getKey()).matches() && containsPlaceholder(part.getValue())) {
+                boolean pendingBefore = signaturePending[0];
+                rewritten.put(part.getKey(), rewritePart(part.getValue(), variables, signaturePending, signatureId));
+                if (pendingBefore && !signaturePending[0]) {
+                    partsWithSignature.add(part.getKey());
+                }
+            }
+        }
+
+        if (signaturePng != null && signaturePending[0]) {
+            log.warn("Placeholder de signature '{}' non trouvé dans le document", SIGNATURE_PLACEHOLDER);
+        }
+        return writePackage(template, rewritten, partsWithSignature, signaturePng);
+    }
+
+    /**
+     * Produit un seul .docx contenant une section par jeu de variables, chaque section
+     * commençant sur une nouvelle page avec la mise en page du modèle. Seul le corps du
+     * document est rempli : les en-têtes et pieds de page sont communs à toutes les sections.
+     * Le document n'est destiné qu'à la conversion PDF (les identifiants de dessin et de
+     * signets du modèle sont répétés d'une section à l'autre).
+     */
+    public byte[] fillCombined(PrecompiledTemplate template, List<Map<String, String>> variablesList,
+                               byte[] signaturePng) throws IOException {
+        byte[] documentXml = template.getParts().get(DOCUMENT_PART);
+        if (documentXml == null) {
+            throw new IOException("Partie " + DOCUMENT_PART + " absente du modèle");
+        }
+        boolean fillable = containsPlaceholder(documentXml);
+        boolean withSignature = signaturePng != null && signaturePng.length > 0;
+        boolean signatureInserted = false;
+
+        StringBuilder body = new StringBuilder(documentXml.length * variablesList.size());
+        String head = null;
+        String tail = null;
+
+        for (int i = 0; i < variablesList.size(); i++) {
+            // Chaque section reçoit sa propre signature, avec son propre identifiant de dessin
+            boolean[] signaturePending = {withSignature};
+            byte[] filled = fillable
+                    ? rewritePart(documentXml, variablesList.get(i), signaturePending, template.getMaxDrawingId() + 1 + i)
+                    : documentXml;
+            signatureInserted |= withSignature && !signaturePending[0];
+
+            String xml = new String(filled, StandardCharsets.UTF_8);
+            Matcher bodyStart = BODY_START.matcher(xml);
+            if (!bodyStart.find()) {
+                throw new IOException("Élément w:body introuvable dans " + DOCUMENT_PART);
+            }
+            String prefix = bodyStart.group(1) != null ? bodyStart.group(1) + ":" : "";
+            int contentStart = bodyStart.end();
+            int contentEnd = xml.lastIndexOf("</" + prefix + "body>");
+            // La dernière propriété de section du corps porte la mise en page du modèle
+            int sectionStart = xml.lastIndexOf("<" + prefix + "sectPr", contentEnd);
+            if (contentEnd < 0 || sectionStart < contentStart) {
+                throw new IOException("Propriétés de section introuvables dans " + DOCUMENT_PART);
+            }
+
+            if (head == null) {
+                head = xml.substring(0, contentStart);
+                tail = xml.substring(contentEnd);
+            }
+            if (i < variablesList.size() - 1) {
+                // Saut de section : la propriété de section est portée par un paragraphe de fin
+                body.append(xml, contentStart, sectionStart)
+                        .append('<').append(prefix).append("p><").append(prefix).append("pPr>")
+                        .append(xml, sectionStart, contentEnd)
+                        .append("</").append(prefix).append("pPr></").append(prefix).append("p>");
+            } else {
+                body.append(xml, contentStart, contentEnd);
+            }
+        }
+
+        Map<String, byte[]> rewritten = new HashMap<>();
+        rewritten.put(DOCUMENT_PART, (head + body + tail).getBytes(StandardCharsets.UTF_8));
+        Set<String> partsWithSignature = signatureInserted ? Set.of(DOCUMENT_PART) : Set.of();
+        return writePackage(template, rewritten, partsWithSignature, signaturePng);
+    }
+
+    /**
+     * Écrit le package : les parties inchangées du modèle sont recopiées compressées, seules les
+     * parties réécrites, les relations et l'image de signature sont compressées ici
+     */
+    private byte[] writePackage(PrecompiledTemplate template, Map<String, byte[]> rewritten,
+                                Set<String> partsWithSignature, byte[] signaturePng) throws IOException {
+        // Déclarer l'image de signature pour les parties qui l'utilisent
+        for (String partName : partsWithSignature) {
+            String relsName = relsNameFor(partName);
+            byte[] rels = template.getParts().get(relsName);
+            rewritten.put(relsName, addSignatureRelationship(rels));
+        }
+        if (!partsWithSignature.isEmpty()) {
+            rewritten.put("[Content_Types].xml", ensurePngContentType(template.getParts().get("[Content_Types].xml")));
+        }
+
+        int extra = rewritten.values().stream().mapToInt(part -> part.length).sum();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(template.getBytes().length + extra);
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(out)) {
+            Set<String> written = new HashSet<>();
+            for (Map.Entry<String, byte[]> part : template.getParts().entrySet()) {
+                PrecompiledTemplate.RawPart raw = template.getRawParts().get(part.getKey());
+                byte[] data = rewritten.getOrDefault(part.getKey(), part.getValue());
+                // Une partie réécrite à l'identique (même tableau) est elle aussi recopiée
+                if (data == part.getValue() && raw != null) {
+                    copyEntry(zos, part.getKey(), raw);
+                } else {
+                    writeEntry(zos, part.getKey(), data);
+                }
+                written.add(part.getKey());
+            }
+            // Parties créées (relations absentes du modèle, image de signature)
+            for (Map.Entry<String, byte[]> part : rewritten.entrySet()) {
+                if (!written.contains(part.getKey())) {
+                    writeEntry(zos, part.getKey(), part.getValue());
+                }
+            }
+            if (!partsWithSignature.isEmpty()) {
+                writeEntry(zos, "word/" + SIGNATURE_MEDIA, signaturePng);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Réécrit une partie XML en ne bufferisant qu'un paragraphe de premier niveau à la fois
+     */
+    private byte[] rewritePart(byte[] xml, Map<String, String> variables, boolean[] signaturePending,
+                               long signatureId) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(xml.length + 512);
+        XMLEventReader reader = null;
+        XMLEventWriter writer = null;
+        try {
+            reader = inputFactory.createXMLEventReader(new ByteArrayInputStream(xml));
+            writer = outputFactory.createXMLEventWriter(out, "UTF-8");
+
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement() && isW(event.asStartElement().getName(), "p")) {
+                    writeParagraph(readElement(event, reader), writer, variables, signaturePending, signatureId);
+                } else {
+                    writer.add(event);
+                }
+            }
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("Erreur lors de la réécriture XML: " + e.getMessage(), e);
+        } finally {
+            closeQuietly(reader, writer);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Lit un élément complet (balise ouvrante incluse) jusqu'à sa balise fermante
+     */
+    private List<XMLEvent> readElement(XMLEvent start, XMLEventReader reader) throws XMLStreamException {
+        List<XMLEvent> events = new ArrayList<>();
+        events.add(start);
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Écrit un paragraphe : inchangé s'il ne contient pas de placeholder, sinon chaque suite de runs
+     * adjacents contenant un placeholder est fusionnée puis recréée à sa place avec le formatage
+     * de son premier run. Les autres enfants (liens, champs, signets) restent entre les suites,
+     * dans l'ordre d'origine ; un placeholder coupé par l'un d'eux n'est pas remplacé.
+     */
+    private void writeParagraph(List<XMLEvent> paragraph, XMLEventWriter writer, Map<String, String> variables,
+                                boolean[] signaturePending, long signatureId) throws XMLStreamException {
+        List<List<XMLEvent>> children = splitChildren(paragraph);
+        List<int[]> groups = findRunGroups(children);
+
+        // Contenu de remplacement de chaque suite de runs, null si elle reste inchangée
+        List<List<XMLEvent>> replacements = new ArrayList<>(groups.size());
+        boolean changed = false;
+        for (int[] group : groups) {
+            List<XMLEvent> replacement = rewriteRunGroup(children.subList(group[0], group[1]), variables,
+                    signaturePending, signatureId);
+            replacements.add(replacement);
+            changed |= replacement != null;
+        }
+        if (!changed) {
+            addAll(writer, paragraph);
+            return;
+        }
+
+        writer.add(paragraph.get(0));
+        int next = 0;
+        for (int g = 0; g < groups.size(); g++) {
+            int[] group = groups.get(g);
+            for (int i = next; i < group[0]; i++) {
+                addAll(writer, children.get(i));
+            }
+            List<XMLEvent> replacement = replacements.get(g);
+            if (replacement != null) {
+                addAll(writer, replacement);
+            } else {
+                for (int i = group[0]; i < group[1]; i++) {
+                    addAll(writer, children.get(i));
+                }
+            }
+            next = group[1];
+        }
+        for (int i = next; i < children.size(); i++) {
+            addAll(writer, children.get(i));
+        }
+        writer.add(paragraph.get(paragraph.size() - 1));
+    }
+
+    /**
+     * Repère les suites de runs adjacents [début, fin[ ; les marques de correction orthographique
+     * et les blancs entre deux runs ne coupent pas une suite
+     */
+    private List<int[]> findRunGroups(List<List<XMLEvent>> children) {
+        List<int[]> groups = new ArrayList<>();
+        int i = 0;
+        while (i < children.size()) {
+            if (!isRun(children.get(i))) {
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            for (int j = i + 1; j < children.size() && (isRun(children.get(j)) || isTransparent(children.get(j))); j++) {
+                if (isRun(children.get(j))) {
+                    end = j + 1;
+                }
+            }
+            groups.add(new int[]{i, end});
+            i = end;
+        }
+        return groups;
+    }
+
+    /**
+     * Recrée une suite de runs après remplacement de ses placeholders, ou retourne null si elle
+     * n'en contient pas. La première suite contenant {{SIGN}} reçoit l'image de signature.
+     */
+    private List<XMLEvent> rewriteRunGroup(List<List<XMLEvent>> group, Map<String, String> variables,
+                                           boolean[] signaturePending, long signatureId) throws XMLStreamException {
+        StringBuilder fullText = new StringBuilder();
+        for (List<XMLEvent> child : group) {
+            if (isRun(child)) {
+                appendRunText(child, fullText);
+            }
+        }
+        String text = fullText.toString();
+        if (text.indexOf("{{") < 0) {
+            return null;
+        }
+
+        if (signaturePending[0] && text.contains(SIGNATURE_PLACEHOLDER)) {
+            signaturePending[0] = false;
+            return parseFragment(String.format(SIGNATURE_RUN_XML, signatureId));
+        }
+
+        List<XMLEvent> firstRunProperties = extractRunProperties(group.get(0));
+        List<PlaceholderSubstitution.TextSegment> segments =
+                PlaceholderSubstitution.substitute(text, variables, isBold(firstRunProperties));
+        if (segments == null) {
+            return null;
+        }
+
+        String prefix = group.get(0).get(0).asStartElement().getName().getPrefix();
+        List<XMLEvent> events = new ArrayList<>();
+        for (PlaceholderSubstitution.TextSegment segment : segments) {
+            writeRun(events, prefix, firstRunProperties, segment.text, segment.isBold);
+        }
+        return events;
+    }
+
+    /**
+     * Découpe le contenu d'un paragraphe en enfants directs (éléments ou événements texte isolés)
+     */
+    private List<List<XMLEvent>> splitChildren(List<XMLEvent> paragraph) {
+        List<List<XMLEvent>> children = new ArrayList<>();
+        List<XMLEvent> current = null;
+        int depth = 0;
+        for (int i = 1; i < paragraph.size() - 1; i++) {
+            XMLEvent event = paragraph.get(i);
+            if (depth == 0) {
+                current = new ArrayList<>();
+                children.add(current);
+            }
+            current.add(event);
+            if (event.isStartElement()) {
+                depth++;
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Concatène le texte des w:t enfants directs du run
+     */
+    private void appendRunText(List<XMLEvent> run, StringBuilder text) {
+        int depth = 0;
+        boolean inText = false;
+        for (XMLEvent event : run) {
+            if (event.isStartElement()) {
+                depth++;
+                inText = depth == 2 && isW(event.asStartElement().getName(), "t");
+            } else if (event.isEndElement()) {
+                depth--;
+                inText = false;
+            } else if (inText && event.isCharacters()) {
+                text.append(event.asCharacters().getData());
+            }
+        }
+    }
+
+    /**
+     * Extrait les enfants de w:rPr du run (sans la balise w:rPr elle-même)
+     */
+    private List<XMLEvent> extractRunProperties(List<XMLEvent> run) {
+        List<XMLEvent> properties = new ArrayList<>();
+        int depth = 0;
+        boolean inProperties = false;
+        for (XMLEvent event : run) {
+            if (event.isStartElement()) {
+                depth++;
+                if (depth == 2 && isW(event.asStartElement().getName(), "rPr")) {
+                    inProperties = true;
+                    continue;
+                }
+            } else if (event.isEndElement()) {
+                depth--;
+                if (inProperties && depth == 1) {
+                    break;
+                }
+            }
+            if (inProperties) {
+                properties.add(event);
+            }
+        }
+        return properties;
+    }
+
+    private boolean isBold(List<XMLEvent> runProperties) {
+        if (runProperties == null) {
+            return false;
+        }
+        for (XMLEvent event : runProperties) {
+            if (event.isStartElement() && isW(event.asStartElement().getName(), "b")) {
+                Attribute val = event.asStartElement().getAttributeByName(new QName(W_NS, "val"));
+                return val == null || !("0".equals(val.getValue()) || "false".equals(val.getValue()));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Produit les événements d'un run : propriétés du premier run d'origine, gras imposé selon le segment
+     */
+    private void writeRun(List<XMLEvent> events, String prefix, List<XMLEvent> runProperties,
+                          String text, boolean bold) {
+        events.add(eventFactory.createStartElement(prefix, W_NS, "r"));
+        events.add(eventFactory.createStartElement(prefix, W_NS, "rPr"));
+
+        boolean boldWritten = !bold;
+        int depth = 0;
+        boolean skipping = false;
+        if (runProperties != null) {
+            for (XMLEvent event : runProperties) {
+                if (event.isStartElement()) {
+                    String localName = event.asStartElement().getName().getLocalPart();
+                    if (depth == 0) {
+                        // w:b doit suivre w:rStyle et w:rFonts dans w:rPr
+                        if (!boldWritten && !"rStyle".equals(localName) && !"rFonts".equals(localName)) {
+                            writeBold(events, prefix);
+                            boldWritten = true;
+                        }
+                        skipping = isW(event.asStartElement().getName(), "b");
+                    }
+                    depth++;
+                } else if (event.isEndElement()) {
+                    depth--;
+                }
+                if (!skipping) {
+                    events.add(event);
+                }
+                if (depth == 0 && event.isEndElement()) {
+                    skipping = false;
+                }
+            }
+        }
+        if (!boldWritten) {
+            writeBold(events, prefix);
+        }
+        events.add(eventFactory.createEndElement(prefix, W_NS, "rPr"));
+
+        events.add(eventFactory.createStartElement(prefix, W_NS, "t",
+                List.of(eventFactory.createAttribute("xml", "http://www.w3.org/XML/1998/namespace", "space", "preserve"))
+                        .iterator(), Collections.emptyIterator()));
+        events.add(eventFactory.createCharacters(text));
+        events.add(eventFactory.createEndElement(prefix, W_NS, "t"));
+        events.add(eventFactory.createEndElement(prefix, W_NS, "r"));
+    }
+
+    private void writeBold(List<XMLEvent> events, String prefix) {
+        events.add(eventFactory.createStartElement(prefix, W_NS, "b"));
+        events.add(eventFactory.createEndElement(prefix, W_NS, "b"));
+    }
+
+    private boolean isTransparent(List<XMLEvent> child) {
+        XMLEvent first = child.get(0);
+        return first.isCharacters() && first.asCharacters().isWhiteSpace()
+                || first.isStartElement() && isW(first.asStartElement().getName(), "proofErr");
+    }
+
+    private boolean isRun(List<XMLEvent> child) {
+        return !child.isEmpty() && child.get(0).isStartElement() && isW(child.get(0).asStartElement().getName(), "r");
+    }
+
+    private static boolean isW(QName name, String localName) {
+        return W_NS.equals(name.getNamespaceURI()) && localName.equals(name.getLocalPart());
+    }
+
+    private void addAll(XMLEventWriter writer, List<XMLEvent> events) throws XMLStreamException {
+        for (XMLEvent event : events) {
+            writer.add(event);
+        }
+    }
+
+    private List<XMLEvent> parseFragment(String xml) throws XMLStreamException {
+        List<XMLEvent> events = new ArrayList<>();
+        XMLEventReader reader = inputFactory.createXMLEventReader(new StringReader(xml));
+        try {
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (!event.isStartDocument() && !event.isEndDocument()) {
+                    events.add(event);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return events;
+    }
+
+    /**
+     * Ajoute la relation vers l'image de signature au fichier .rels de la partie
+     */
+    private byte[] addSignatureRelationship(byte[] rels) {
+        String relationship = "<Relationship Id=\"" + SIGNATURE_REL_ID + "\""
+                + " Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/image\""
+                + " Target=\"" + SIGNATURE_MEDIA + "\"/>";
+        if (rels == null) {
+            return ("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + relationship + "</Relationships>").getBytes(StandardCharsets.UTF_8);
+        }
+        String content = new String(rels, StandardCharsets.UTF_8);
+        int end = content.lastIndexOf("</Relationships>");
+        return (content.substring(0, end) + relationship + content.substring(end)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Déclare le type de contenu PNG si le modèle n'en contient pas encore
+     */
+    private byte[] ensurePngContentType(byte[] contentTypes) {
+        String content = new String(contentTypes, StandardCharsets.UTF_8);
+        if (content.toLowerCase(Locale.ROOT).contains("extension=\"png\"")) {
+            return contentTypes;
+        }
+        int end = content.lastIndexOf("</Types>");
+        return (content.substring(0, end) + "<Default Extension=\"png\" ContentType=\"image/png\"/>"
+                + content.substring(end)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String relsNameFor(String partName) {
+        int slash = partName.lastIndexOf('/');
+        return partName.substring(0, slash) + "/_rels/" + partName.substring(slash + 1) + ".rels";
+    }
+
+    private static boolean containsPlaceholder(byte[] xml) {
+        // Les accolades d'un placeholder peuvent être réparties sur deux runs
+        for (byte b : xml) {
+            if (b == '{') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeEntry(ZipArchiveOutputStream zos, String name, byte[] data) throws IOException {
+        zos.putArchiveEntry(new ZipArchiveEntry(name));
+        zos.write(data);
+        zos.closeArchiveEntry();
+    }
+
+    /**
+     * Recopie une partie du modèle avec ses données compressées d'origine
+     */
+    private static void copyEntry(ZipArchiveOutputStream zos, String name, PrecompiledTemplate.RawPart raw)
+            throws IOException {
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setMethod(raw.getMethod());
+        entry.setCrc(raw.getCrc());
+        entry.setSize(raw.getSize());
+        entry.setCompressedSize(raw.getData().length);
+        zos.addRawArchiveEntry(entry, new ByteArrayInputStream(raw.getData()));
+    }
+
+    private static void closeQuietly(XMLEventReader reader, XMLEventWriter writer) {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+            if (reader != null) {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            log.debug("Erreur lors de la fermeture du flux XML: {}", e.getMessage());
+        }
+    }
+}
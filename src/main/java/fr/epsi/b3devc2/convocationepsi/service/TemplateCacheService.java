@@ -0,0 +1,61 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.util.HashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU des modèles précompilés, indexé par l'empreinte SHA-256 du fichier
+ */
+@Service
+@Slf4j
+public class TemplateCacheService {
+
+    @Value("${convocation.template.cache.max-entries:16}")
+    private int maxEntries;
+
+    private final Map<String, PrecompiledTemplate> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PrecompiledTemplate> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Retourne le modèle précompilé correspondant aux octets fournis, en l'analysant si nécessaire
+     */
+    public PrecompiledTemplate getOrCompile(byte[] templateBytes) throws IOException {
+        String sha256 = HashUtils.sha256Hex(templateBytes);
+
+        synchronized (cache) {
+            PrecompiledTemplate cached = cache.get(sha256);
+            if (cached != null) {
+                log.debug("Modèle {} trouvé dans le cache", sha256);
+                return cached;
+            }
+        }
+
+        PrecompiledTemplate compiled = PrecompiledTemplate.compile(sha256, templateBytes);
+        log.info("Modèle {} précompilé: {} paragraphe(s) à remplacer, placeholders {}",
+                sha256, compiled.getLocations().size(), compiled.getPlaceholders());
+
+        synchronized (cache) {
+            PrecompiledTemplate existing = cache.putIfAbsent(sha256, compiled);
+            return existing != null ? existing : compiled;
+        }
+    }
+
+    /**
+     * Vide le cache des modèles
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+}
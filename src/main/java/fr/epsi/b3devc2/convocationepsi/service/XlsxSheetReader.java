@@ -0,0 +1,322 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Lecture en flux (SAX) des feuilles d'un classeur xlsx : les lignes sont transmises
+ * une à une, sans construire le modèle objet du classeur. Seules les premières colonnes utiles
+ * sont conservées et la mémoire reste bornée par la table des chaînes partagées.
+ */
+final class XlsxSheetReader {
+
+    /**
+     * Traitement d'une ligne ; le tableau de cellules est réutilisé d'une ligne à l'autre
+     */
+    @FunctionalInterface
+    interface RowHandler {
+        void row(int rowIndex, SheetCell[] cells);
+
+        /**
+         * Fin de la feuille
+         */
+        default void end() {
+        }
+    }
+
+    /**
+     * Valeur d'une cellule telle qu'enregistrée dans le fichier (résultat en cache pour une formule)
+     */
+    static final class SheetCell {
+        enum Type { STRING, NUMERIC, BOOLEAN, ERROR, BLANK }
+
+        static final SheetCell BLANK = new SheetCell(Type.BLANK, false, "", 0, false, false);
+
+        final Type type;
+        final boolean formula;
+        final String text;
+        final double number;
+        final boolean dateFormatted;
+        private final boolean date1904;
+
+        private SheetCell(Type type, boolean formula, String text, double number,
+                          boolean dateFormatted, boolean date1904) {
+            this.type = type;
+            this.formula = formula;
+            this.text = text;
+            this.number = number;
+            this.dateFormatted = dateFormatted;
+            this.date1904 = date1904;
+        }
+
+        LocalDateTime localDateTime() {
+            return DateUtil.getLocalDateTime(number, date1904);
+        }
+    }
+
+    private XlsxSheetReader() {
+    }
+
+    /**
+     * Lit la première feuille du fichier et transmet chaque ligne (colonnes 0 à columns-1)
+     */
+    static void read(File file, int columns, RowHandler handler) throws IOException {
+        boolean[] first = {true};
+        readSheets(file, columns, sheetName -> {
+            if (!first[0]) {
+                return null;
+            }
+            first[0] = false;
+            return handler;
+        });
+    }
+
+    /**
+     * Lit les feuilles du fichier dans l'ordre du classeur ; pour chaque feuille, la fabrique
+     * reçoit son nom et retourne le traitement de ses lignes, ou null pour arrêter la lecture.
+     * Les chaînes partagées et les styles sont chargés une seule fois pour toutes les feuilles.
+     */
+    static void readSheets(File file, int columns, Function<String, RowHandler> handlers) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+            boolean date1904 = isDate1904(reader);
+
+            XSSFReader.SheetIterator sheets = reader.getSheetIterator();
+            if (!sheets.hasNext()) {
+                throw new IllegalArgumentException("Le fichier Excel ne contient aucune feuille");
+            }
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    RowHandler handler = handlers.apply(sheets.getSheetName());
+                    if (handler == null) {
+                        return;
+                    }
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new SheetHandler(strings, styles, date1904, columns, handler));
+                    parser.parse(new InputSource(sheet));
+                    handler.end();
+                }
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Fichier Excel illisible: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isDate1904(XSSFReader reader) throws IOException, OpenXML4JException,
+            SAXException, ParserConfigurationException {
+        boolean[] date1904 = new boolean[1];
+        try (InputStream workbook = reader.getWorkbookData()) {
+            XMLReader parser = XMLHelper.newXMLReader();
+            parser.setContentHandler(new DefaultHandler() {
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    if ("workbookPr".equals(localName)) {
+                        String value = attributes.getValue("date1904");
+                        date1904[0] = "1".equals(value) || "true".equals(value);
+                    }
+                }
+            });
+            parser.parse(new InputSource(workbook));
+        }
+        return date1904[0];
+    }
+
+    /**
+     * Parcours SAX de sheetN.xml : &lt;row r&gt; / &lt;c r t s&gt; / &lt;f&gt;, &lt;v&gt; ou &lt;is&gt;&lt;t&gt;
+     */
+    private static final class SheetHandler extends DefaultHandler {
+
+        private final ReadOnlySharedStringsTable strings;
+        private final StylesTable styles;
+        private final boolean date1904;
+        private final RowHandler handler;
+        private final SheetCell[] cells;
+        // Un format de date est détecté une seule fois par style
+        private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+
+        private int rowIndex = -1;
+        private int nextColumn;
+        private int column;
+        private String cellType;
+        private int styleIndex;
+        private boolean formula;
+        private boolean inValue;
+        private boolean inInlineString;
+        private boolean inPhonetic;
+        private boolean hasValue;
+        private final StringBuilder value = new StringBuilder();
+
+        SheetHandler(ReadOnlySharedStringsTable strings, StylesTable styles, boolean date1904,
+                     int columns, RowHandler handler) {
+            this.strings = strings;
+            this.styles = styles;
+            this.date1904 = date1904;
+            this.handler = handler;
+            this.cells = new SheetCell[columns];
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row" -> {
+                    String r = attributes.getValue("r");
+                    rowIndex = r != null ? Integer.parseInt(r) - 1 : rowIndex + 1;
+                    nextColumn = 0;
+                    Arrays.fill(cells, SheetCell.BLANK);
+                }
+                case "c" -> {
+                    String ref = attributes.getValue("r");
+                    column = ref != null ? columnIndex(ref) : nextColumn;
+                    nextColumn = column + 1;
+                    cellType = attributes.getValue("t");
+                    String s = attributes.getValue("s");
+                    styleIndex = s != null ? Integer.parseInt(s) : 0;
+                    formula = false;
+                    hasValue = false;
+                    value.setLength(0);
+                }
+                case "f" -> formula = true;
+                case "v" -> {
+                    inValue = true;
+                    hasValue = true;
+                }
+                case "is" -> {
+                    inInlineString = true;
+                    hasValue = true;
+                }
+                case "rPh" -> inPhonetic = true;
+                case "t" -> inValue = inInlineString && !inPhonetic;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) {
+                value.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v", "t" -> inValue = false;
+                case "is" -> inInlineString = false;
+                case "rPh" -> inPhonetic = false;
+                case "c" -> {
+                    if (column < cells.length) {
+                        cells[column] = toCell();
+                    }
+                }
+                case "row" -> handler.row(rowIndex, cells);
+                default -> {
+                }
+            }
+        }
+
+        private SheetCell toCell() {
+            if (!hasValue) {
+                return SheetCell.BLANK;
+            }
+            String raw = value.toString();
+            String type = cellType != null ? cellType : "n";
+            if (raw.isBlank() && !"inlineStr".equals(type) && !"str".equals(type)) {
+                // <v/> vide : cellule sans valeur
+                return SheetCell.BLANK;
+            }
+            return switch (type) {
+                case "s" -> new SheetCell(SheetCell.Type.STRING, formula,
+                        strings.getItemAt(Integer.parseInt(raw.trim())).getString(), 0, false, date1904);
+                case "inlineStr", "str" -> new SheetCell(SheetCell.Type.STRING, formula, raw, 0, false, date1904);
+                case "d" -> isoDate(raw);
+                case "b" -> new SheetCell(SheetCell.Type.BOOLEAN, formula, "1".equals(raw.trim()) ? "true" : "false",
+                        0, false, date1904);
+                case "e" -> new SheetCell(SheetCell.Type.ERROR, formula, raw, 0, false, date1904);
+                default -> {
+                    double number = Double.parseDouble(raw.trim());
+                    boolean dateFormatted = isDateStyle(styleIndex) && DateUtil.isValidExcelDate(number);
+                    yield new SheetCell(SheetCell.Type.NUMERIC, formula, raw, number, dateFormatted, date1904);
+                }
+            };
+        }
+
+        /**
+         * Cellule de type "d" (date ISO 8601) : convertie en numéro de série, comme une cellule
+         * numérique au format date. Une valeur non reconnue est conservée comme texte.
+         */
+        private SheetCell isoDate(String raw) {
+            String iso = raw.trim();
+            double number = -1;
+            try {
+                if (iso.startsWith("T") || iso.indexOf('-') < 0) {
+                    // Heure seule : fraction de journée
+                    LocalTime time = LocalTime.parse(iso.startsWith("T") ? iso.substring(1) : iso);
+                    number = time.toSecondOfDay() / 86_400d;
+                } else if (iso.indexOf('T') > 0) {
+                    number = DateUtil.getExcelDate(LocalDateTime.parse(iso), date1904);
+                } else {
+                    number = DateUtil.getExcelDate(LocalDate.parse(iso).atStartOfDay(), date1904);
+                }
+            } catch (DateTimeParseException e) {
+                // Valeur conservée comme texte
+            }
+            if (number < 0) {
+                return new SheetCell(SheetCell.Type.STRING, formula, raw, 0, false, date1904);
+            }
+            return new SheetCell(SheetCell.Type.NUMERIC, formula, raw, number, true, date1904);
+        }
+
+        private boolean isDateStyle(int index) {
+            return dateStyles.computeIfAbsent(index, i -> {
+                if (styles == null || i >= styles.getNumCellStyles()) {
+                    return false;
+                }
+                XSSFCellStyle style = styles.getStyleAt(i);
+                return style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+            });
+        }
+
+        /**
+         * Index de colonne (base 0) d'une référence de cellule comme "AB12"
+         */
+        private static int columnIndex(String ref) {
+            int result = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                result = result * 26 + (c - 'A' + 1);
+            }
+            return result - 1;
+        }
+    }
+}
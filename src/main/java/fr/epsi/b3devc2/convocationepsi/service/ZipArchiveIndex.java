@@ -0,0 +1,187 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Index du répertoire central d'une archive ZIP : nom de chaque entrée vers la position de
+ * son en-tête local. Une entrée est ensuite lue directement à sa position, sans parcourir
+ * le reste de l'archive. Les archives ZIP64 ne sont pas prises en charge.
+ */
+public class ZipArchiveIndex {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int LOC_SIGNATURE = 0x04034b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int CEN_SIZE = 46;
+    private static final int LOC_SIZE = 30;
+    private static final int MAX_COMMENT = 0xFFFF;
+
+    @Getter
+    private final Path file;
+    @Getter
+    private final long size;
+    @Getter
+    private final long lastModified;
+    private final Map<String, Entry> entries;
+
+    private ZipArchiveIndex(Path file, long size, long lastModified, Map<String, Entry> entries) {
+        this.file = file;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.entries = entries;
+    }
+
+    /**
+     * Lit le répertoire central de l'archive (fin de fichier uniquement)
+     */
+    public static ZipArchiveIndex build(Path file, long lastModified) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            // Fin du répertoire central, éventuellement suivie d'un commentaire
+            int tailLength = (int) Math.min(size, EOCD_SIZE + MAX_COMMENT);
+            ByteBuffer tail = read(channel, size - tailLength, tailLength);
+            int eocd = -1;
+            for (int i = tailLength - EOCD_SIZE; i >= 0; i--) {
+                if (tail.getInt(i) == EOCD_SIGNATURE) {
+                    eocd = i;
+                    break;
+                }
+            }
+            if (eocd < 0) {
+                throw new ZipException("Fin du répertoire central introuvable: " + file);
+            }
+
+            int count = Short.toUnsignedInt(tail.getShort(eocd + 10));
+            long cenSize = Integer.toUnsignedLong(tail.getInt(eocd + 12));
+            long cenOffset = Integer.toUnsignedLong(tail.getInt(eocd + 16));
+            if (count == 0xFFFF || cenOffset == 0xFFFFFFFFL || cenSize > Integer.MAX_VALUE) {
+                throw new ZipException("Archive ZIP64 non prise en charge: " + file);
+            }
+
+            ByteBuffer cen = read(channel, cenOffset, (int) cenSize);
+            Map<String, Entry> entries = new HashMap<>(count * 2);
+            int pos = 0;
+            for (int i = 0; i < count; i++) {
+                if (cen.getInt(pos) != CEN_SIGNATURE) {
+                    throw new ZipException("Répertoire central invalide: " + file);
+                }
+                int method = Short.toUnsignedInt(cen.getShort(pos + 10));
+                long compressedSize = Integer.toUnsignedLong(cen.getInt(pos + 20));
+                long uncompressedSize = Integer.toUnsignedLong(cen.getInt(pos + 24));
+                int nameLength = Short.toUnsignedInt(cen.getShort(pos + 28));
+                int extraLength = Short.toUnsignedInt(cen.getShort(pos + 30));
+                int commentLength = Short.toUnsignedInt(cen.getShort(pos + 32));
+                long localOffset = Integer.toUnsignedLong(cen.getInt(pos + 42));
+
+                byte[] name = new byte[nameLength];
+                cen.get(pos + CEN_SIZE, name);
+                entries.put(new String(name, StandardCharsets.UTF_8),
+                        new Entry(method, compressedSize, uncompressedSize, localOffset));
+                pos += CEN_SIZE + nameLength + extraLength + commentLength;
+            }
+            return new ZipArchiveIndex(file, size, lastModified, entries);
+        }
+    }
+
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * Lit le contenu d'une entrée, ou null si elle n'existe pas
+     */
+    public byte[] read(String name) throws IOException {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer local = read(channel, entry.localOffset, LOC_SIZE);
+            if (local.getInt(0) != LOC_SIGNATURE) {
+                throw new ZipException("En-tête local invalide pour " + name);
+            }
+            // La longueur du champ extra local peut différer de celle du répertoire central
+            long dataOffset = entry.localOffset + LOC_SIZE
+                    + Short.toUnsignedInt(local.getShort(26)) + Short.toUnsignedInt(local.getShort(28));
+            byte[] data = new byte[(int) entry.compressedSize];
+            read(channel, dataOffset, data.length).get(data);
+
+            if (entry.method == 0) {
+                return data;
+            }
+            return inflate(name, data, (int) entry.uncompressedSize);
+        }
+    }
+
+    private static byte[] inflate(String name, byte[] data, int uncompressedSize) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            byte[] result = new byte[uncompressedSize];
+            int length = 0;
+            while (length < uncompressedSize && !inflater.finished()) {
+                int n = inflater.inflate(result, length, uncompressedSize - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != uncompressedSize) {
+                throw new ZipException("Entrée tronquée: " + name);
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new ZipException("Entrée corrompue " + name + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ZipException("Fin de fichier inattendue");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Position et tailles d'une entrée, relevées dans le répertoire central
+     */
+    private static final class Entry {
+        final int method;
+        final long compressedSize;
+        final long uncompressedSize;
+        final long localOffset;
+
+        Entry(int method, long compressedSize, long uncompressedSize, long localOffset) {
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.uncompressedSize = uncompressedSize;
+            this.localOffset = localOffset;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package fr.epsi.b3devc2.convocationepsi.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
@@ -8,7 +9,10 @@ import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.zip.ZipEntry;
@@ -19,6 +23,17 @@ import java.util.zip.ZipOutputStream;
 @Slf4j
 public class ZipService {
 
+    @Value("${convocation.zip.index-cache.max-entries:64}")
+    private int maxIndexes;
+
+    // Index des archives récemment lues, invalidés si le fichier change
+    private final Map<Path, ZipArchiveIndex> indexes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, ZipArchiveIndex> eldest) {
+            return size() > maxIndexes;
+        }
+    };
+
     /**
      * Crée une archive ZIP contenant tous les fichiers de convocation
      */
@@ -55,6 +70,43 @@ public class ZipService {
         }
     }
 
+    /**
+     * Ouvre une archive ZIP écrite au fil de l'eau dans le fichier donné
+     */
+    public ZipSpoolWriter openSpoolArchive(Path file) throws IOException {
+        log.info("Création d'une archive ZIP dans {}", file);
+        return new ZipSpoolWriter(file);
+    }
+
+    /**
+     * Extrait une seule entrée d'une archive stockée sur disque, par lecture directe à sa
+     * position d'après l'index du répertoire central. Retourne null si l'entrée n'existe pas.
+     */
+    public byte[] extractEntry(Path archive, String entryName) throws IOException {
+        return getIndex(archive).read(entryName);
+    }
+
+    /**
+     * Retourne l'index de l'archive, construit à la première lecture puis conservé
+     */
+    public ZipArchiveIndex getIndex(Path archive) throws IOException {
+        long size = Files.size(archive);
+        long lastModified = Files.getLastModifiedTime(archive).toMillis();
+        synchronized (indexes) {
+            ZipArchiveIndex index = indexes.get(archive);
+            if (index != null && index.getSize() == size && index.getLastModified() == lastModified) {
+                return index;
+            }
+        }
+
+        ZipArchiveIndex index = ZipArchiveIndex.build(archive, lastModified);
+        log.debug("Index construit pour {} ({} entrées)", archive, index.getNames().size());
+        synchronized (indexes) {
+            indexes.put(archive, index);
+        }
+        return index;
+    }
+
     public Map<CandidatDto, byte[]> extractFilesFromZip(byte[] zipBytes, List<CandidatDto> candidats) throws IOException {
         Map<CandidatDto, byte[]> result = new HashMap<>();
 
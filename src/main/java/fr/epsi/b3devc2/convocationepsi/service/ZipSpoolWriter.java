@@ -0,0 +1,106 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Archive ZIP écrite au fil de l'eau dans un fichier de spool : chaque fichier est ajouté
+ * dès qu'il est produit, sans conserver l'ensemble de l'archive en mémoire
+ */
+@Slf4j
+public class ZipSpoolWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final ZipOutputStream zos;
+    private final Set<String> names = new HashSet<>();
+    private final CRC32 crc = new CRC32();
+    private int entries;
+    private boolean finished;
+
+    ZipSpoolWriter(Path file) throws IOException {
+        this.file = file;
+        this.zos = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+    }
+
+    /**
+     * Ajoute un fichier sans compression (les PDF sont déjà compressés).
+     * Un nom déjà présent reçoit un suffixe numérique.
+     *
+     * @return le nom effectivement utilisé dans l'archive
+     */
+    public String addStored(String fileName, byte[] data) throws IOException {
+        String name = uniqueName(fileName);
+
+        crc.reset();
+        crc.update(data);
+        ZipEntry zipEntry = new ZipEntry(name);
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(data.length);
+        zipEntry.setCompressedSize(data.length);
+        zipEntry.setCrc(crc.getValue());
+
+        zos.putNextEntry(zipEntry);
+        zos.write(data);
+        zos.closeEntry();
+        entries++;
+
+        log.debug("Fichier ajouté au ZIP: {}", name);
+        return name;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Termine l'archive et retourne le chemin du fichier de spool
+     */
+    public Path finish() throws IOException {
+        zos.close();
+        finished = true;
+        log.info("Archive ZIP créée avec succès, {} fichiers, taille: {} bytes", entries, Files.size(file));
+        return file;
+    }
+
+    /**
+     * Ferme le flux ; une archive non terminée est supprimée
+     */
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            return;
+        }
+        try {
+            zos.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private String uniqueName(String fileName) {
+        if (names.add(fileName)) {
+            return fileName;
+        }
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        String extension = dot > 0 ? fileName.substring(dot) : "";
+        for (int i = 2; ; i++) {
+            String candidate = base + "_" + i + extension;
+            if (names.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package fr.epsi.b3devc2.convocationepsi.storage;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.StorageStatsDto;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Stockage des sessions sur disque, qui survit aux redémarrages. Chaque session possède un
+ * répertoire (candidats en JSON, archive zip) et un index global liste les sessions connues.
+ * Seul l'index est chargé au démarrage : les candidats et l'archive sont relus à la demande,
+ * les listes de candidats étant gardées en cache par référence souple.
+ * Les sessions inactives depuis plus que la durée de vie sont supprimées avec leur répertoire.
+ */
+@Component
+@ConditionalOnProperty(name = "convocation.storage.type", havingValue = "file")
+@Slf4j
+public class FileSessionStorage implements SessionStorage {
+
+    private static final String INDEX_FILE = "index.json";
+    private static final String CANDIDATS_FILE = "candidats.json";
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${convocation.storage.dir:data/sessions}")
+    private Path rootDir;
+
+    @Value("${convocation.storage.file.ttl:PT4H}")
+    private Duration ttl;
+
+    private final Map<String, SessionEntry> index = new ConcurrentHashMap<>();
+    private final Map<String, SoftReference<List<CandidatDto>>> candidatsCache = new ConcurrentHashMap<>();
+
+    // Accès aux candidats servis par le cache ou relus sur disque
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictionsByTtl = new AtomicLong();
+
+    public FileSessionStorage(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void loadIndex() throws IOException {
+        Files.createDirectories(rootDir);
+        // Fichiers temporaires laissés par une écriture interrompue
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(rootDir, INDEX_FILE + ".*.tmp")) {
+            leftovers.forEach(FileSessionStorage::deleteQuietly);
+        }
+        Path indexFile = rootDir.resolve(INDEX_FILE);
+        if (Files.exists(indexFile)) {
+            Map<String, SessionEntry> entries = objectMapper.readValue(indexFile.toFile(),
+                    new TypeReference<Map<String, SessionEntry>>() {
+                    });
+            // Les sessions dont le répertoire a disparu sont ignorées
+            entries.forEach((sessionId, entry) -> {
+                if (Files.isDirectory(sessionDir(sessionId))) {
+                    index.put(sessionId, entry);
+                }
+            });
+        }
+        log.info("Stockage des sessions sur disque: {} ({} session(s) existante(s))", rootDir, index.size());
+    }
+
+    @Override
+    public String generateSessionId() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Override
+    public void storeCandidats(String sessionId, List<CandidatDto> candidats) {
+        log.info("Stockage de {} candidats pour la session {}", candidats.size(), sessionId);
+        try {
+            Path dir = Files.createDirectories(sessionDir(sessionId));
+            writeAtomically(dir.resolve(CANDIDATS_FILE), objectMapper.writeValueAsBytes(candidats));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'enregistrer les candidats de la session " + sessionId, e);
+        }
+        candidatsCache.put(sessionId, new SoftReference<>(candidats));
+        updateIndex(sessionId, entry -> entry.setCandidatsCount(candidats.size()));
+    }
+
+    @Override
+    public List<CandidatDto> getCandidats(String sessionId) {
+        if (access(sessionId) == null) {
+            misses.incrementAndGet();
+            log.warn("Aucun candidat trouvé pour la session {}", sessionId);
+            return null;
+        }
+        SoftReference<List<CandidatDto>> cached = candidatsCache.get(sessionId);
+        List<CandidatDto> candidats = cached != null ? cached.get() : null;
+        if (candidats != null) {
+            hits.incrementAndGet();
+            return candidats;
+        }
+        misses.incrementAndGet();
+
+        Path file = sessionDir(sessionId).resolve(CANDIDATS_FILE);
+        if (!Files.exists(file)) {
+            log.warn("Aucun candidat trouvé pour la session {}", sessionId);
+            return null;
+        }
+        try {
+            candidats = objectMapper.readValue(file.toFile(), new TypeReference<List<CandidatDto>>() {
+            });
+        } catch (IOException e) {
+            log.error("Impossible de relire les candidats de la session {}: {}", sessionId, e.getMessage());
+            return null;
+        }
+        candidatsCache.put(sessionId, new SoftReference<>(candidats));
+        return candidats;
+    }
+
+    @Override
+    public Path createArchiveFile(String sessionId) throws IOException {
+        Path dir = Files.createDirectories(sessionDir(sessionId));
+        return Files.createTempFile(dir, "convocations_", ".zip");
+    }
+
+    @Override
+    public void storeArchive(String sessionId, Path archive) {
+        log.info("Stockage du fichier zip pour la session {}", sessionId);
+        Path dir = sessionDir(sessionId);
+        Path stored = archive;
+        try {
+            // Une archive écrite ailleurs est rapatriée dans le répertoire de la session
+            if (!archive.toAbsolutePath().getParent().equals(dir.toAbsolutePath())) {
+                Files.createDirectories(dir);
+                stored = Files.move(archive, Files.createTempFile(dir, "convocations_", ".zip"),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Impossible d'enregistrer l'archive de la session " + sessionId, e);
+        }
+
+        String fileName = stored.getFileName().toString();
+        String[] previous = new String[1];
+        updateIndex(sessionId, entry -> {
+            previous[0] = entry.getArchive();
+            entry.setArchive(fileName);
+        });
+        if (previous[0] != null && !previous[0].equals(fileName)) {
+            deleteQuietly(dir.resolve(previous[0]));
+        }
+    }
+
+    @Override
+    public Path getArchive(String sessionId) {
+        SessionEntry entry = access(sessionId);
+        Path archive = entry != null && entry.getArchive() != null
+                ? sessionDir(sessionId).resolve(entry.getArchive()) : null;
+        if (archive == null || !Files.exists(archive)) {
+            log.warn("Aucun fichier trouvé pour la session {}", sessionId);
+            return null;
+        }
+        return archive;
+    }
+
+    @Override
+    public byte[] getFile(String sessionId) {
+        Path archive = getArchive(sessionId);
+        if (archive == null) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(archive);
+        } catch (IOException e) {
+            log.error("Impossible de lire l'archive de la session {}: {}", sessionId, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void clearSession(String sessionId) {
+        log.info("Suppression des données de la session {}", sessionId);
+        synchronized (index) {
+            index.remove(sessionId);
+            saveIndex();
+        }
+        deleteSessionFiles(sessionId);
+    }
+
+    /**
+     * Supprime le répertoire d'une session déjà retirée de l'index
+     */
+    private void deleteSessionFiles(String sessionId) {
+        candidatsCache.remove(sessionId);
+        try {
+            deleteRecursively(sessionDir(sessionId));
+        } catch (IOException e) {
+            log.warn("Impossible de supprimer le répertoire de la session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean sessionExists(String sessionId) {
+        SessionEntry entry = index.get(sessionId);
+        return entry != null && entry.getCandidatsCount() != null && !isExpired(entry, LocalDateTime.now());
+    }
+
+    @Override
+    public int getCandidatsCount(String sessionId) {
+        SessionEntry entry = index.get(sessionId);
+        return entry != null && entry.getCandidatsCount() != null ? entry.getCandidatsCount() : 0;
+    }
+
+    @Override
+    public void cleanup() {
+        log.info("Nettoyage du stockage sur disque");
+        for (String sessionId : new ArrayList<>(index.keySet())) {
+            clearSession(sessionId);
+        }
+    }
+
+    /**
+     * Suppression périodique des sessions expirées et de leur répertoire
+     */
+    @Scheduled(fixedDelayString = "${convocation.storage.file.sweep-interval-ms:60000}")
+    public void sweepExpiredSessions() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> expired = new ArrayList<>();
+        synchronized (index) {
+            index.forEach((sessionId, entry) -> {
+                if (isExpired(entry, now)) {
+                    expired.add(sessionId);
+                }
+            });
+            if (expired.isEmpty()) {
+                return;
+            }
+            expired.forEach(index::remove);
+            saveIndex();
+        }
+        expired.forEach(this::deleteSessionFiles);
+        evictionsByTtl.addAndGet(expired.size());
+        log.info("{} session(s) expirée(s) supprimée(s) du disque", expired.size());
+    }
+
+    @Override
+    public StorageStatsDto getStats() {
+        return new StorageStatsDto("file", index.size(), 0, 0, 0, 0, hits.get(), misses.get(), 0, evictionsByTtl.get());
+    }
+
+    /**
+     * Entrée d'index d'une session, marquée comme utilisée ; une session expirée est supprimée.
+     * La date d'accès n'est persistée qu'à la prochaine écriture de l'index.
+     */
+    private SessionEntry access(String sessionId) {
+        SessionEntry entry = index.get(sessionId);
+        if (entry == null) {
+            return null;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (isExpired(entry, now)) {
+            boolean removed;
+            synchronized (index) {
+                removed = index.remove(sessionId, entry);
+                if (removed) {
+                    saveIndex();
+                }
+            }
+            if (removed) {
+                evictionsByTtl.incrementAndGet();
+                deleteSessionFiles(sessionId);
+            }
+            return null;
+        }
+        entry.setUpdatedAt(now);
+        return entry;
+    }
+
+    private boolean isExpired(SessionEntry entry, LocalDateTime now) {
+        return entry.getUpdatedAt() != null && entry.getUpdatedAt().plus(ttl).isBefore(now);
+    }
+
+    /**
+     * Modifie l'entrée d'index d'une session (créée si besoin) puis réécrit l'index
+     */
+    private void updateIndex(String sessionId, Consumer<SessionEntry> update) {
+        synchronized (index) {
+            SessionEntry entry = index.computeIfAbsent(sessionId, id -> new SessionEntry(LocalDateTime.now(), null, null));
+            update.accept(entry);
+            entry.setUpdatedAt(LocalDateTime.now());
+            saveIndex();
+        }
+    }
+
+    private void saveIndex() {
+        try {
+            writeAtomically(rootDir.resolve(INDEX_FILE), objectMapper.writeValueAsBytes(new TreeMap<>(index)));
+        } catch (IOException e) {
+            log.error("Impossible d'écrire l'index des sessions: {}", e.getMessage());
+        }
+    }
+
+    private Path sessionDir(String sessionId) {
+        return rootDir.resolve(safeId(sessionId));
+    }
+
+    /**
+     * Les identifiants viennent de l'URL : ils ne doivent pas permettre de sortir du répertoire racine
+     */
+    private static String safeId(String id) {
+        if (id == null || !id.matches("[A-Za-z0-9-]+")) {
+            throw new IllegalArgumentException("Identifiant invalide");
+        }
+        return id;
+    }
+
+    /**
+     * Écrit un fichier temporaire propre à chaque écriture puis le renomme, pour ne jamais
+     * laisser de fichier tronqué ni mélanger deux écritures concurrentes
+     */
+    private static void writeAtomically(Path target, byte[] data) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+        try {
+            Files.write(tmp, data);
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Impossible de supprimer {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Entrée de l'index : métadonnées d'une session et nom de son archive
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class SessionEntry {
+        private LocalDateTime updatedAt;
+        private Integer candidatsCount;
+        private String archive;
+    }
+}
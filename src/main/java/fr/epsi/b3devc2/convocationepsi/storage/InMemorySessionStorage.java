@@ -1,25 +1,68 @@
 package fr.epsi.b3devc2.convocationepsi.storage;
 
 import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.StorageStatsDto;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+/**
+ * Stockage des sessions en mémoire, borné : les candidats sont pesés en octets contre le budget
+ * mémoire et les archives de spool contre un budget disque distinct. Les sessions inactives depuis
+ * plus que la durée de vie sont supprimées et, au-delà de l'un des budgets, les sessions les moins
+ * récemment utilisées sont évincées.
+ */
 @Component
+@ConditionalOnProperty(name = "convocation.storage.type", havingValue = "memory", matchIfMissing = true)
 @Slf4j
-public class InMemorySessionStorage {
+public class InMemorySessionStorage implements SessionStorage {
 
-    private final Map<String, List<CandidatDto>> candidatsStorage = new ConcurrentHashMap<>();
-    private final Map<String, byte[]> filesStorage = new ConcurrentHashMap<>();
-    private final Map<String, Map<CandidatDto, byte[]>> individualFilesStorage = new ConcurrentHashMap<>();
+    // Estimation de l'empreinte mémoire d'un candidat (objet et chaînes)
+    private static final long CANDIDAT_WEIGHT = 512;
+
+    // Sessions dans l'ordre d'accès (LRU), protégées par le verrou de la map
+    private final LinkedHashMap<String, SessionEntry> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight;
+    private long totalDiskBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictionsBySize = new AtomicLong();
+    private final AtomicLong evictionsByTtl = new AtomicLong();
+
+    @Value("${convocation.storage.spool-dir:${java.io.tmpdir}/convocations}")
+    private Path spoolDir;
+
+    @Value("${convocation.storage.memory.max-bytes:536870912}")
+    private long maxBytes;
+
+    @Value("${convocation.storage.memory.max-disk-bytes:4294967296}")
+    private long maxDiskBytes;
+
+    @Value("${convocation.storage.memory.ttl:PT4H}")
+    private Duration ttl;
+
+    @PostConstruct
+    void initSpoolDir() throws IOException {
+        Files.createDirectories(spoolDir);
+        log.info("Répertoire de spool des archives: {}", spoolDir);
+    }
 
     /**
      * Génère un nouvel ID de session
      */
+    @Override
     public String generateSessionId() {
         return UUID.randomUUID().toString();
     }
@@ -27,16 +70,19 @@ public class InMemorySessionStorage {
     /**
      * Stocke la liste des candidats pour une session
      */
+    @Override
     public void storeCandidats(String sessionId, List<CandidatDto> candidats) {
         log.info("Stockage de {} candidats pour la session {}", candidats.size(), sessionId);
-        candidatsStorage.put(sessionId, candidats);
+        update(sessionId, entry -> entry.candidats = candidats);
     }
 
     /**
      * Récupère la liste des candidats pour une session
      */
+    @Override
     public List<CandidatDto> getCandidats(String sessionId) {
-        List<CandidatDto> candidats = candidatsStorage.get(sessionId);
+        SessionEntry entry = access(sessionId);
+        List<CandidatDto> candidats = entry != null ? entry.candidats : null;
         if (candidats == null) {
             log.warn("Aucun candidat trouvé pour la session {}", sessionId);
         }
@@ -44,63 +90,263 @@ public class InMemorySessionStorage {
     }
 
     /**
-     * Stocke un fichier zip généré
+     * Crée un fichier de spool vide destiné à recevoir l'archive d'une session
+     */
+    @Override
+    public Path createArchiveFile(String sessionId) throws IOException {
+        return Files.createTempFile(spoolDir, "convocations_" + sessionId + "_", ".zip");
+    }
+
+    /**
+     * Stocke par référence l'archive zip générée ; l'archive précédente de la session est supprimée
      */
-    public void storeFile(String sessionId, byte[] fileData) {
+    @Override
+    public void storeArchive(String sessionId, Path archive) {
         log.info("Stockage du fichier zip pour la session {}", sessionId);
-        filesStorage.put(sessionId, fileData);
+        long archiveSize = sizeOf(archive);
+        Path[] previous = new Path[1];
+        update(sessionId, entry -> {
+            previous[0] = entry.archive;
+            entry.archive = archive;
+            entry.archiveSize = archiveSize;
+        });
+        if (previous[0] != null && !previous[0].equals(archive)) {
+            deleteArchive(previous[0]);
+        }
     }
 
     /**
-     * Récupère un fichier zip
+     * Récupère le chemin de l'archive zip d'une session
      */
-    public byte[] getFile(String sessionId) {
-        byte[] fileData = filesStorage.get(sessionId);
-        if (fileData == null) {
+    @Override
+    public Path getArchive(String sessionId) {
+        SessionEntry entry = access(sessionId);
+        Path archive = entry != null ? entry.archive : null;
+        if (archive == null || !Files.exists(archive)) {
             log.warn("Aucun fichier trouvé pour la session {}", sessionId);
+            return null;
         }
-        return fileData;
-    }
-    // Nouveau : stocke les fichiers individuels
-    public void storeIndividualFiles(String sessionId, Map<CandidatDto, byte[]> files) {
-        individualFilesStorage.put(sessionId, files);
+        return archive;
     }
 
-    // Nouveau : récupère les fichiers individuels
-    public Map<CandidatDto, byte[]> getIndividualFiles(String sessionId) {
-        return individualFilesStorage.get(sessionId);
+    /**
+     * Récupère un fichier zip
+     */
+    @Override
+    public byte[] getFile(String sessionId) {
+        Path archive = getArchive(sessionId);
+        if (archive == null) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(archive);
+        } catch (IOException e) {
+            log.error("Impossible de lire l'archive de la session {}: {}", sessionId, e.getMessage());
+            return null;
+        }
     }
 
     /**
      * Supprime les données d'une session
      */
+    @Override
     public void clearSession(String sessionId) {
         log.info("Suppression des données de la session {}", sessionId);
-        candidatsStorage.remove(sessionId);
-        filesStorage.remove(sessionId);
+        SessionEntry removed;
+        synchronized (sessions) {
+            removed = sessions.remove(sessionId);
+            if (removed != null) {
+                forget(removed);
+            }
+        }
+        release(removed);
     }
 
     /**
      * Vérifie si une session existe
      */
+    @Override
     public boolean sessionExists(String sessionId) {
-        return candidatsStorage.containsKey(sessionId);
+        synchronized (sessions) {
+            SessionEntry entry = sessions.get(sessionId);
+            return entry != null && entry.candidats != null && !isExpired(entry, System.nanoTime());
+        }
     }
 
     /**
      * Récupère le nombre de candidats pour une session
      */
+    @Override
     public int getCandidatsCount(String sessionId) {
-        List<CandidatDto> candidats = candidatsStorage.get(sessionId);
-        return candidats != null ? candidats.size() : 0;
+        synchronized (sessions) {
+            SessionEntry entry = sessions.get(sessionId);
+            return entry != null && entry.candidats != null ? entry.candidats.size() : 0;
+        }
     }
 
     /**
-     * Nettoyage périodique des sessions anciennes (optionnel)
+     * Nettoyage complet du stockage en mémoire
      */
+    @Override
     public void cleanup() {
         log.info("Nettoyage du stockage en mémoire");
-        candidatsStorage.clear();
-        filesStorage.clear();
+        List<SessionEntry> removed;
+        synchronized (sessions) {
+            removed = new ArrayList<>(sessions.values());
+            sessions.clear();
+            totalWeight = 0;
+            totalDiskBytes = 0;
+        }
+        removed.forEach(this::release);
+    }
+
+    /**
+     * Suppression périodique des sessions expirées
+     */
+    @Scheduled(fixedDelayString = "${convocation.storage.memory.sweep-interval-ms:60000}")
+    public void sweepExpiredSessions() {
+        long now = System.nanoTime();
+        List<SessionEntry> expired = new ArrayList<>();
+        synchronized (sessions) {
+            Iterator<Map.Entry<String, SessionEntry>> it = sessions.entrySet().iterator();
+            while (it.hasNext()) {
+                SessionEntry entry = it.next().getValue();
+                if (isExpired(entry, now)) {
+                    it.remove();
+                    forget(entry);
+                    expired.add(entry);
+                }
+            }
+        }
+        if (!expired.isEmpty()) {
+            evictionsByTtl.addAndGet(expired.size());
+            expired.forEach(this::release);
+            log.info("{} session(s) expirée(s) supprimée(s), {}", expired.size(), getStats());
+        }
+    }
+
+    @Override
+    public StorageStatsDto getStats() {
+        synchronized (sessions) {
+            return new StorageStatsDto("memory", sessions.size(), totalWeight, maxBytes, totalDiskBytes, maxDiskBytes,
+                    hits.get(), misses.get(), evictionsBySize.get(), evictionsByTtl.get());
+        }
+    }
+
+    /**
+     * Lit une session en la marquant comme récemment utilisée ; une session expirée est supprimée
+     */
+    private SessionEntry access(String sessionId) {
+        SessionEntry expired = null;
+        try {
+            synchronized (sessions) {
+                SessionEntry entry = sessions.get(sessionId);
+                long now = System.nanoTime();
+                if (entry != null && isExpired(entry, now)) {
+                    sessions.remove(sessionId);
+                    forget(entry);
+                    expired = entry;
+                    entry = null;
+                }
+                if (entry == null) {
+                    misses.incrementAndGet();
+                    return null;
+                }
+                hits.incrementAndGet();
+                entry.lastAccess = now;
+                return entry;
+            }
+        } finally {
+            if (expired != null) {
+                evictionsByTtl.incrementAndGet();
+                release(expired);
+            }
+        }
+    }
+
+    /**
+     * Modifie une session (créée si besoin), recalcule son poids puis évince les sessions
+     * les moins récemment utilisées tant que le budget mémoire ou le budget disque est dépassé
+     */
+    private void update(String sessionId, Consumer<SessionEntry> change) {
+        List<SessionEntry> evicted = new ArrayList<>();
+        synchronized (sessions) {
+            SessionEntry entry = sessions.computeIfAbsent(sessionId, id -> new SessionEntry());
+            forget(entry);
+            change.accept(entry);
+            entry.lastAccess = System.nanoTime();
+            entry.weight = entry.computeWeight();
+            totalWeight += entry.weight;
+            totalDiskBytes += entry.archiveSize;
+
+            Iterator<Map.Entry<String, SessionEntry>> it = sessions.entrySet().iterator();
+            while ((totalWeight > maxBytes || totalDiskBytes > maxDiskBytes) && it.hasNext()) {
+                Map.Entry<String, SessionEntry> eldest = it.next();
+                // La session en cours d'écriture n'est jamais évincée
+                if (eldest.getKey().equals(sessionId)) {
+                    continue;
+                }
+                it.remove();
+                forget(eldest.getValue());
+                evicted.add(eldest.getValue());
+                log.info("Session {} évincée (budget de {} octets en mémoire ou {} octets sur disque dépassé)",
+                        eldest.getKey(), maxBytes, maxDiskBytes);
+            }
+        }
+        evictionsBySize.addAndGet(evicted.size());
+        evicted.forEach(this::release);
+    }
+
+    /**
+     * Retire le poids d'une session des totaux, sous le verrou de la map
+     */
+    private void forget(SessionEntry entry) {
+        totalWeight -= entry.weight;
+        totalDiskBytes -= entry.archiveSize;
+    }
+
+    private boolean isExpired(SessionEntry entry, long now) {
+        return now - entry.lastAccess > ttl.toNanos();
+    }
+
+    /**
+     * Libère les ressources d'une session retirée du cache (archive de spool)
+     */
+    private void release(SessionEntry entry) {
+        if (entry != null && entry.archive != null) {
+            deleteArchive(entry.archive);
+        }
+    }
+
+    private void deleteArchive(Path archive) {
+        try {
+            Files.deleteIfExists(archive);
+        } catch (IOException e) {
+            log.warn("Impossible de supprimer l'archive {}: {}", archive, e.getMessage());
+        }
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Données d'une session, leur poids en mémoire et la taille de l'archive sur disque
+     */
+    private static final class SessionEntry {
+        List<CandidatDto> candidats;
+        Path archive;
+        long archiveSize;
+        long lastAccess;
+        long weight;
+
+        // Seuls les candidats résident en mémoire, l'archive est un fichier de spool
+        long computeWeight() {
+            return candidats != null ? candidats.size() * CANDIDAT_WEIGHT : 0;
+        }
     }
-}
\ No newline at end of file
+}
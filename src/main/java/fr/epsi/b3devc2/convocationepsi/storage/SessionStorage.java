@@ -0,0 +1,76 @@
+package fr.epsi.b3devc2.convocationepsi.storage;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.StorageStatsDto;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Stockage des données d'une session : candidats importés et archive générée. La convocation
+ * d'un candidat est lue dans l'archive, sous le nom d'entrée enregistré avec le candidat.
+ * L'implémentation est choisie par la propriété convocation.storage.type (memory ou file).
+ */
+public interface SessionStorage {
+
+    /**
+     * Génère un nouvel ID de session
+     */
+    String generateSessionId();
+
+    /**
+     * Stocke la liste des candidats pour une session
+     */
+    void storeCandidats(String sessionId, List<CandidatDto> candidats);
+
+    /**
+     * Récupère la liste des candidats pour une session, ou null
+     */
+    List<CandidatDto> getCandidats(String sessionId);
+
+    /**
+     * Crée un fichier vide destiné à recevoir l'archive d'une session
+     */
+    Path createArchiveFile(String sessionId) throws IOException;
+
+    /**
+     * Stocke par référence l'archive zip générée ; l'archive précédente de la session est supprimée
+     */
+    void storeArchive(String sessionId, Path archive);
+
+    /**
+     * Récupère le chemin de l'archive zip d'une session, ou null
+     */
+    Path getArchive(String sessionId);
+
+    /**
+     * Récupère le contenu de l'archive zip d'une session, ou null
+     */
+    byte[] getFile(String sessionId);
+
+    /**
+     * Supprime les données d'une session
+     */
+    void clearSession(String sessionId);
+
+    /**
+     * Vérifie si une session existe
+     */
+    boolean sessionExists(String sessionId);
+
+    /**
+     * Récupère le nombre de candidats pour une session
+     */
+    int getCandidatsCount(String sessionId);
+
+    /**
+     * Supprime toutes les sessions
+     */
+    void cleanup();
+
+    /**
+     * Statistiques d'utilisation du stockage
+     */
+    StorageStatsDto getStats();
+}
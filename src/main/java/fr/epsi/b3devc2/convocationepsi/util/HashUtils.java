@@ -0,0 +1,47 @@
+package fr.epsi.b3devc2.convocationepsi.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Calcul d'empreintes SHA-256 utilisées comme clés de cache
+ */
+public final class HashUtils {
+
+    private HashUtils() {
+    }
+
+    /**
+     * Crée un nouveau digest SHA-256
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    /**
+     * Retourne l'empreinte SHA-256 hexadécimale d'un tableau d'octets
+     */
+    public static String sha256Hex(byte[] data) {
+        return HexFormat.of().formatHex(newSha256().digest(data));
+    }
+
+    /**
+     * Retourne l'empreinte SHA-256 hexadécimale d'un flux, lu jusqu'à la fin sans être conservé en mémoire
+     */
+    public static String sha256Hex(InputStream in) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
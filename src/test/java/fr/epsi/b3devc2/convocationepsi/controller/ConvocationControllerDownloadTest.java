@@ -0,0 +1,77 @@
+package fr.epsi.b3devc2.convocationepsi.controller;
+
+import fr.epsi.b3devc2.convocationepsi.config.IfRangeFilter;
+import fr.epsi.b3devc2.convocationepsi.service.ConvocationService;
+import fr.epsi.b3devc2.convocationepsi.service.DocumentGeneratorService;
+import fr.epsi.b3devc2.convocationepsi.service.EmailOutboxService;
+import fr.epsi.b3devc2.convocationepsi.service.GenerationJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ConvocationControllerDownloadTest {
+
+    private final ConvocationService convocationService = mock(ConvocationService.class);
+    private MockMvc mockMvc;
+    private byte[] archive;
+    private String etag;
+
+    @BeforeEach
+    void setUp(@TempDir Path dir) throws Exception {
+        archive = new byte[1000];
+        Arrays.fill(archive, (byte) 'a');
+        archive[0] = 'P';
+        Path file = Files.write(dir.resolve("s1.zip"), archive);
+        when(convocationService.getGeneratedArchive("s1")).thenReturn(file);
+
+        ConvocationController controller = new ConvocationController(convocationService,
+                mock(EmailOutboxService.class), mock(GenerationJobService.class), mock(DocumentGeneratorService.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).addFilters(new IfRangeFilter()).build();
+
+        etag = mockMvc.perform(get("/api/download/s1"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(archive))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    @Test
+    void servesRangeWhenIfRangeMatches() throws Exception {
+        mockMvc.perform(get("/api/download/s1")
+                        .header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, etag))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-9/1000"))
+                .andExpect(content().bytes(Arrays.copyOf(archive, 10)));
+    }
+
+    @Test
+    void servesFullArchiveWhenIfRangeIsStale() throws Exception {
+        mockMvc.perform(get("/api/download/s1")
+                        .header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, "\"archive-precedente\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(content().bytes(archive));
+    }
+
+    @Test
+    void answersNotModifiedWhenEtagMatches() throws Exception {
+        mockMvc.perform(get("/api/download/s1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+}
@@ -0,0 +1,204 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import jakarta.mail.Message;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Envoi groupé contre un serveur SMTP minimal lancé dans le processus de test
+ */
+class BulkMailSenderTest {
+
+    private SmtpStub smtp;
+    private JavaMailSenderImpl mailSender;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtp = new SmtpStub();
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtp.getPort());
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.connectiontimeout", "5000");
+        properties.setProperty("mail.smtp.timeout", "5000");
+        mailSender.setJavaMailProperties(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        smtp.close();
+    }
+
+    @Test
+    void sendsAllMessagesOverPooledConnections() {
+        BulkMailSender sender = new BulkMailSender(mailSender, limiter(Duration.ofSeconds(30)), 2);
+        List<String> recipients = List.of("a@example.org", "b@example.org", "c@example.org",
+                "d@example.org", "e@example.org", "f@example.org");
+
+        BulkMailSender.BulkMailReport<String> report = sender.send(recipients, this::message);
+        sender.shutdown();
+
+        assertThat(report.getSent()).isEqualTo(6);
+        assertThat(report.getDeliveries()).extracting(BulkMailSender.Delivery::getItem)
+                .containsExactlyElementsOf(recipients);
+        assertThat(smtp.recipients).containsExactlyInAnyOrderElementsOf(recipients);
+        assertThat(smtp.messages).allMatch(data -> data.contains("Subject: Convocation"));
+        // Les connexions sont réutilisées d'un message à l'autre
+        assertThat(smtp.connections.get()).isBetween(1, 2);
+    }
+
+    @Test
+    void keepsConnectionWhenRecipientIsRejected() {
+        BulkMailSender sender = new BulkMailSender(mailSender, limiter(Duration.ofSeconds(30)), 1);
+
+        BulkMailSender.BulkMailReport<String> report = sender.send(
+                List.of("a@example.org", "refuse@example.org", "b@example.org"), this::message);
+        sender.shutdown();
+
+        assertThat(report.getDeliveries()).extracting(BulkMailSender.Delivery::isSuccess)
+                .containsExactly(true, false, true);
+        assertThat(report.getDeliveries().get(1).getError()).isInstanceOf(SendFailedException.class);
+        assertThat(smtp.recipients).containsExactly("a@example.org", "b@example.org");
+        assertThat(smtp.connections.get()).isEqualTo(1);
+    }
+
+    @Test
+    void slowsDownWhenServerReportsThrottling() {
+        MailRateLimiter limiter = limiter(Duration.ofMillis(200));
+        BulkMailSender sender = new BulkMailSender(mailSender, limiter, 1);
+
+        BulkMailSender.BulkMailReport<String> report = sender.send(
+                List.of("occupe@example.org", "a@example.org"), this::message);
+        sender.shutdown();
+
+        assertThat(report.getDeliveries()).extracting(BulkMailSender.Delivery::isSuccess)
+                .containsExactly(false, true);
+        assertThat(limiter.getStats().getThrottled()).isEqualTo(1);
+        // Le message suivant a attendu la fin de la suspension
+        assertThat(report.getElapsedMs()).isGreaterThanOrEqualTo(200);
+    }
+
+    private MimeMessage message(String recipient) throws Exception {
+        MimeMessage message = new MimeMessage(mailSender.getSession());
+        message.setFrom(new InternetAddress("pedagogie@example.org"));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress(recipient));
+        message.setSubject("Convocation", "UTF-8");
+        message.setText("Bonjour,", "UTF-8");
+        return message;
+    }
+
+    private static MailRateLimiter limiter(Duration throttlePause) {
+        return new MailRateLimiter(6000, 10000, 1, throttlePause, Duration.ofSeconds(5));
+    }
+
+    /**
+     * Serveur SMTP minimal : accepte tous les messages, refuse les destinataires "refuse@"
+     * (550) et répond par une limitation temporaire (451) aux destinataires "occupe@"
+     */
+    private static final class SmtpStub implements Closeable {
+
+        private final ServerSocket server;
+        private final List<String> recipients = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger connections = new AtomicInteger();
+
+        SmtpStub() throws IOException {
+            server = new ServerSocket(0);
+            Thread acceptor = new Thread(this::acceptLoop, "smtp-stub");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int getPort() {
+            return server.getLocalPort();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+
+        private void acceptLoop() {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    connections.incrementAndGet();
+                    Thread session = new Thread(() -> serve(socket), "smtp-stub-session");
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                 Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+                reply(out, "220 localhost ESMTP");
+                List<String> pending = new ArrayList<>();
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.toUpperCase();
+                    if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+                        reply(out, "250 localhost");
+                    } else if (command.startsWith("MAIL FROM")) {
+                        pending.clear();
+                        reply(out, "250 OK");
+                    } else if (command.startsWith("RCPT TO")) {
+                        String address = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+                        if (address.startsWith("refuse@")) {
+                            reply(out, "550 5.1.1 Destinataire inconnu");
+                        } else if (address.startsWith("occupe@")) {
+                            reply(out, "451 4.7.500 Server busy");
+                        } else {
+                            pending.add(address);
+                            reply(out, "250 OK");
+                        }
+                    } else if (command.equals("DATA")) {
+                        reply(out, "354 Fin par <CRLF>.<CRLF>");
+                        StringBuilder data = new StringBuilder();
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            data.append(line.startsWith("..") ? line.substring(1) : line).append('\n');
+                        }
+                        messages.add(data.toString());
+                        recipients.addAll(pending);
+                        reply(out, "250 OK");
+                    } else if (command.equals("QUIT")) {
+                        reply(out, "221 Bye");
+                        return;
+                    } else {
+                        // RSET, NOOP...
+                        reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException e) {
+                // Connexion fermée par le client
+            }
+        }
+
+        private static void reply(Writer out, String line) throws IOException {
+            out.write(line + "\r\n");
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.ReimportResponseDto;
+import fr.epsi.b3devc2.convocationepsi.repository.*;
+import fr.epsi.b3devc2.convocationepsi.storage.SessionStorage;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConvocationServiceReimportTest {
+
+    private final ExcelParserService excelService = mock(ExcelParserService.class);
+    private final SessionStorage sessionStorage = mock(SessionStorage.class);
+    private final EmailOutboxService emailOutboxService = mock(EmailOutboxService.class);
+    private final ConvocationService service = new ConvocationService(excelService,
+            mock(DocumentGeneratorService.class), mock(ZipService.class), mock(GenerationEngine.class),
+            mock(TemplateCacheService.class), mock(SignatureImageService.class), mock(DocxToPdfConverter.class),
+            mock(PdfOverlayRenderer.class), mock(ConvocationArtifactService.class), mock(CombinedPdfRenderer.class),
+            mock(PdfResultCache.class), mock(ImportCacheService.class), emailOutboxService, sessionStorage,
+            mock(VilleRepository.class), mock(TypeExamenRepository.class), mock(CertificationRepository.class),
+            mock(AdresseRepository.class), mock(DureeEpreuveRepository.class));
+
+    @Test
+    void classifiesCandidatsAndKeepsIds() throws IOException {
+        CandidatDto unchanged = candidat("id-a", "a@example.org", "B101", "Convocation_A.pdf");
+        CandidatDto moved = candidat("id-b", "b@example.org", "B102", "Convocation_B.pdf");
+        CandidatDto leaving = candidat("id-c", "c@example.org", "B103", "Convocation_C.pdf");
+        when(sessionStorage.getCandidats("s1")).thenReturn(List.of(unchanged, moved, leaving));
+        // Email en casse différente : même candidat
+        when(excelService.readCandidatsFromExcel(any())).thenReturn(List.of(
+                candidat(null, "B@Example.org", "B202", null),
+                candidat(null, "d@example.org", "B104", null),
+                candidat(null, "a@example.org", "B101", null)));
+
+        ReimportResponseDto response = service.reimportCandidats("s1", file());
+
+        assertThat(response.getErrors()).isEmpty();
+        assertThat(response.getAdded()).isEqualTo(1);
+        assertThat(response.getModified()).isEqualTo(1);
+        assertThat(response.getRemoved()).isEqualTo(1);
+        assertThat(response.getUnchanged()).isEqualTo(1);
+
+        List<CandidatDto> merged = response.getCandidats();
+        assertThat(merged).extracting(CandidatDto::getSalle).containsExactly("B202", "B104", "B101");
+        // Le candidat modifié garde son identifiant mais perd sa convocation, l'inchangé garde la sienne
+        assertThat(merged.get(0).getId()).isEqualTo("id-b");
+        assertThat(merged.get(0).getFichierConvocation()).isNull();
+        assertThat(merged.get(1).getId()).isNotNull().isNotIn("id-a", "id-b", "id-c");
+        assertThat(merged.get(2)).isSameAs(unchanged);
+        assertThat(response.getChangedIds()).containsExactly("id-b", merged.get(1).getId());
+        verify(sessionStorage).storeCandidats("s1", merged);
+    }
+
+    @Test
+    void resetsOutboxOfChangedCandidats() throws IOException {
+        when(sessionStorage.getCandidats("s1")).thenReturn(List.of(
+                candidat("id-a", "a@example.org", "B101", "Convocation_A.pdf"),
+                candidat("id-b", "b@example.org", "B102", "Convocation_B.pdf")));
+        when(excelService.readCandidatsFromExcel(any())).thenReturn(List.of(
+                candidat(null, "a@example.org", "B101", null),
+                candidat(null, "b@example.org", "B999", null),
+                candidat(null, "e@example.org", "B105", null)));
+
+        ReimportResponseDto response = service.reimportCandidats("s1", file());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> ids = ArgumentCaptor.forClass(List.class);
+        verify(emailOutboxService).resetCandidats(eq("s1"), ids.capture());
+        assertThat(ids.getValue()).containsExactlyElementsOf(response.getChangedIds()).hasSize(2).contains("id-b");
+    }
+
+    @Test
+    void leavesSessionUntouchedWhenFileIsInvalid() throws IOException {
+        when(sessionStorage.getCandidats("s1")).thenReturn(List.of(candidat("id-a", "a@example.org", "B101", null)));
+
+        ReimportResponseDto response = service.reimportCandidats("s1",
+                new MockMultipartFile("file", "candidats.csv", "text/csv", new byte[]{1}));
+
+        assertThat(response.getErrors()).singleElement().asString().contains(".xlsx");
+        verify(sessionStorage, never()).storeCandidats(any(), anyList());
+        verify(emailOutboxService, never()).resetCandidats(any(), anyList());
+    }
+
+    private static CandidatDto candidat(String id, String email, String salle, String fichier) {
+        return new CandidatDto(id, "B3 DEV", "Madame", "DUPONT", "Jeanne", email,
+                LocalDate.of(2025, 9, 15), LocalTime.of(9, 30), salle, "12", fichier);
+    }
+
+    private static MockMultipartFile file() {
+        return new MockMultipartFile("file", "candidats.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", new byte[]{1});
+    }
+}
@@ -0,0 +1,132 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.GenerateConvocationRequestDto;
+import fr.epsi.b3devc2.convocationepsi.dto.RenderMode;
+import fr.epsi.b3devc2.convocationepsi.repository.*;
+import fr.epsi.b3devc2.convocationepsi.storage.SessionStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Génération d'un lot dont une partie des convocations figure déjà dans le cache PDF
+ */
+class ConvocationServiceRenderTest {
+
+    private static final String TEMPLATE_SHA256 = "modele";
+
+    private final DocumentGeneratorService wordService = mock(DocumentGeneratorService.class);
+    private final ZipService zipService = mock(ZipService.class);
+    private final DocxToPdfConverter pdfConverter = mock(DocxToPdfConverter.class);
+    private final PdfResultCache pdfCache = mock(PdfResultCache.class);
+    private final SessionStorage sessionStorage = mock(SessionStorage.class);
+    private final GenerationEngine generationEngine = new GenerationEngine();
+    private final ConvocationService service = new ConvocationService(mock(ExcelParserService.class),
+            wordService, zipService, generationEngine, mock(TemplateCacheService.class),
+            mock(SignatureImageService.class), pdfConverter, mock(PdfOverlayRenderer.class),
+            mock(ConvocationArtifactService.class), mock(CombinedPdfRenderer.class), pdfCache,
+            mock(ImportCacheService.class), mock(EmailOutboxService.class), sessionStorage,
+            mock(VilleRepository.class), mock(TypeExamenRepository.class), mock(CertificationRepository.class),
+            mock(AdresseRepository.class), mock(DureeEpreuveRepository.class));
+
+    private final List<String> written = Collections.synchronizedList(new ArrayList<>());
+    private final Set<String> cacheReaders = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(generationEngine, "configuredThreads", 4);
+        ReflectionTestUtils.setField(generationEngine, "windowFactor", 2);
+        generationEngine.init();
+
+        ZipSpoolWriter zip = mock(ZipSpoolWriter.class);
+        when(zip.addStored(anyString(), any())).thenAnswer(invocation -> {
+            written.add(new String(invocation.<byte[]>getArgument(1), StandardCharsets.UTF_8));
+            return invocation.getArgument(0);
+        });
+        when(zip.getEntries()).thenAnswer(invocation -> written.size());
+        when(zip.finish()).thenReturn(Path.of("archive.zip"));
+        when(zipService.openSpoolArchive(any())).thenReturn(zip);
+
+        when(wordService.createVariableMapping(any(), any()))
+                .thenAnswer(invocation -> Map.of("nom", invocation.<CandidatDto>getArgument(0).getNom()));
+        when(wordService.generateFileName(any(), anyString()))
+                .thenAnswer(invocation -> invocation.<CandidatDto>getArgument(0).getNom() + ".pdf");
+        when(wordService.generateConvocationForCandidat(any(), any()))
+                .thenAnswer(invocation -> invocation.<CandidatDto>getArgument(0).getNom().getBytes(StandardCharsets.UTF_8));
+        // Conversion lente : les convocations en cache seraient prêtes bien avant les autres
+        when(pdfConverter.convertDocxToPdf(any())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return invocation.getArgument(0);
+        });
+        when(pdfCache.isEnabled()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        generationEngine.shutdown();
+    }
+
+    @Test
+    void keepsInputOrderWithCachedConvocations() {
+        List<CandidatDto> candidats = List.of(candidat("A"), candidat("B"), candidat("C"),
+                candidat("D"), candidat("E"), candidat("F"));
+        Set<String> cached = Set.of(key("B"), key("D"), key("F"));
+        when(pdfCache.get(anyString())).thenAnswer(invocation -> {
+            cacheReaders.add(Thread.currentThread().getName());
+            String key = invocation.getArgument(0);
+            return cached.contains(key) ? ("cache-" + key).getBytes(StandardCharsets.UTF_8) : null;
+        });
+
+        service.generate(batch(candidats), null);
+
+        assertThat(written).containsExactly("A", "cache-" + key("B"), "C", "cache-" + key("D"), "E", "cache-" + key("F"));
+        // Le cache est lu par les workers, pas par le thread appelant
+        assertThat(cacheReaders).allMatch(name -> name.startsWith("convocation-worker-"));
+        verify(pdfCache).put(key("A"), "A".getBytes(StandardCharsets.UTF_8));
+        verify(pdfCache, never()).put(key("B"), "B".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String key(String nom) {
+        return PdfResultCache.key(TEMPLATE_SHA256, RenderMode.PER_DOCUMENT, Map.of("nom", nom), null);
+    }
+
+    private static ConvocationBatch batch(List<CandidatDto> candidats) {
+        PrecompiledTemplate template = mock(PrecompiledTemplate.class);
+        when(template.getSha256()).thenReturn(TEMPLATE_SHA256);
+        GenerateConvocationRequestDto request = new GenerateConvocationRequestDto();
+        request.setSessionId("s1");
+        return ConvocationBatch.builder()
+                .request(request)
+                .candidats(candidats)
+                .sessionCandidats(candidats)
+                .template(template)
+                .renderMode(RenderMode.PER_DOCUMENT)
+                .build();
+    }
+
+    private static CandidatDto candidat(String nom) {
+        return new CandidatDto("id-" + nom, "B3 DEV", "Madame", nom, "Jeanne", nom.toLowerCase() + "@example.org",
+                LocalDate.of(2025, 9, 15), LocalTime.of(9, 30), "B101", "12", null);
+    }
+}
@@ -0,0 +1,210 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.DeliveryReportDto;
+import fr.epsi.b3devc2.convocationepsi.dto.SendEmailRequestDto;
+import fr.epsi.b3devc2.convocationepsi.model.EmailOutbox;
+import fr.epsi.b3devc2.convocationepsi.model.EmailStatus;
+import fr.epsi.b3devc2.convocationepsi.repository.EmailOutboxRepository;
+import fr.epsi.b3devc2.convocationepsi.storage.SessionStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailOutboxServiceTest {
+
+    private final EmailOutboxRepository repository = mock(EmailOutboxRepository.class);
+    private final BulkMailSender bulkMailSender = mock(BulkMailSender.class);
+    private final SessionStorage sessionStorage = mock(SessionStorage.class);
+    private final List<EmailOutbox> records = new ArrayList<>();
+    private EmailOutboxService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new EmailOutboxService(repository, mock(EmailService.class), bulkMailSender,
+                mock(MailRateLimiter.class), mock(ConvocationArtifactService.class), sessionStorage);
+        ReflectionTestUtils.setField(service, "maxAttempts", 4);
+        ReflectionTestUtils.setField(service, "initialBackoff", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(service, "maxBackoff", Duration.ofMinutes(3));
+        service.init();
+
+        // File persistante simulée en mémoire
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<EmailOutbox> saved = invocation.getArgument(0);
+            saved.stream().filter(record -> !records.contains(record)).forEach(records::add);
+            return saved;
+        });
+        doAnswer(invocation -> {
+            invocation.<Iterable<EmailOutbox>>getArgument(0).forEach(records::remove);
+            return null;
+        }).when(repository).deleteAll(anyIterable());
+        when(repository.findBySessionIdOrderByIdAsc("s1")).thenAnswer(invocation -> List.copyOf(records));
+        when(repository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(any(), any()))
+                .thenAnswer(invocation -> records.stream()
+                        .filter(record -> record.getStatus() == invocation.getArgument(0))
+                        .filter(record -> !record.getNextAttemptAt().isAfter(invocation.getArgument(1)))
+                        .toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void retriesWithDoublingBackoffUntilMaxAttempts() {
+        EmailOutbox record = queued();
+        failWith(new RuntimeException("Connexion refusée"));
+
+        List<Long> delays = new ArrayList<>();
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            service.processDue();
+            assertThat(record.getStatus()).isEqualTo(EmailStatus.QUEUED);
+            assertThat(record.getAttempts()).isEqualTo(attempt);
+            delays.add(LocalDateTime.now().until(record.getNextAttemptAt(), ChronoUnit.SECONDS) + 1);
+            record.setNextAttemptAt(LocalDateTime.now());
+        }
+        service.processDue();
+
+        // 1 min, 2 min, puis plafonné à 3 min
+        assertThat(delays).containsExactly(60L, 120L, 180L);
+        assertThat(record.getStatus()).isEqualTo(EmailStatus.FAILED);
+        assertThat(record.getAttempts()).isEqualTo(4);
+        assertThat(record.getLastError()).isEqualTo("Connexion refusée");
+    }
+
+    @Test
+    void postponesWithoutCountingAttemptWhenQuotaIsExceeded() {
+        EmailOutbox record = queued();
+        Instant retryAt = Instant.now().plus(Duration.ofMinutes(10));
+        failWith(new MailQuotaExceededException(retryAt));
+
+        service.processDue();
+
+        assertThat(record.getStatus()).isEqualTo(EmailStatus.QUEUED);
+        assertThat(record.getAttempts()).isZero();
+        assertThat(record.getNextAttemptAt()).isEqualTo(LocalDateTime.ofInstant(retryAt, ZoneId.systemDefault()));
+    }
+
+    @Test
+    void marksSentOnSuccess() {
+        EmailOutbox record = queued();
+        when(bulkMailSender.send(anyList(), any())).thenAnswer(invocation -> report(
+                invocation.<List<EmailOutbox>>getArgument(0).stream()
+                        .map(item -> BulkMailSender.Delivery.success(item, 12))
+                        .toList()));
+
+        service.processDue();
+
+        assertThat(record.getStatus()).isEqualTo(EmailStatus.SENT);
+        assertThat(record.getAttempts()).isEqualTo(1);
+        assertThat(record.getSentAt()).isNotNull();
+    }
+
+    @Test
+    void sendSessionOnlyEnqueuesAndDrainsInBackground() throws Exception {
+        CandidatDto candidat = new CandidatDto();
+        candidat.setId("c1");
+        candidat.setNom("DUPONT");
+        candidat.setEmail("dupont@example.org");
+        when(sessionStorage.getCandidats("s1")).thenReturn(List.of(candidat));
+        when(sessionStorage.getArchive("s1")).thenReturn(Path.of("s1.zip"));
+        CountDownLatch release = new CountDownLatch(1);
+        when(bulkMailSender.send(anyList(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return report(List.of());
+        });
+
+        SendEmailRequestDto request = new SendEmailRequestDto();
+        request.setSessionId("s1");
+        DeliveryReportDto report = service.sendSession(request);
+
+        // La requête rend la main pendant que l'envoi est en cours
+        assertThat(report.getReportUrl()).isEqualTo("/api/deliveries/s1");
+        assertThat(report.getTotal()).isEqualTo(1);
+        verify(bulkMailSender, timeout(5000)).send(anyList(), any());
+        assertThat(records.get(0).getStatus()).isEqualTo(EmailStatus.SENDING);
+        release.countDown();
+        // Mise en file, passage en cours puis enregistrement du résultat
+        verify(repository, timeout(5000).times(3)).saveAll(anyList());
+    }
+
+    @Test
+    void resetsChangedCandidatsSoTheyAreSentAgain() {
+        EmailOutbox sent = queued("c1");
+        sent.setStatus(EmailStatus.SENT);
+        EmailOutbox kept = queued("c2");
+        kept.setStatus(EmailStatus.SENT);
+        EmailOutbox sending = queued("c3");
+        sending.setStatus(EmailStatus.SENDING);
+
+        service.resetCandidats("s1", List.of("c1", "c3", "inconnu"));
+
+        // L'email en cours d'envoi n'est pas touché
+        assertThat(records).containsExactly(kept, sending);
+
+        CandidatDto candidat = new CandidatDto();
+        candidat.setId("c1");
+        candidat.setEmail("dupont@example.org");
+        when(sessionStorage.getCandidats("s1")).thenReturn(List.of(candidat));
+        when(sessionStorage.getArchive("s1")).thenReturn(Path.of("s1.zip"));
+        when(bulkMailSender.send(anyList(), any())).thenAnswer(invocation -> report(List.of()));
+        SendEmailRequestDto request = new SendEmailRequestDto();
+        request.setSessionId("s1");
+        service.sendSession(request);
+
+        // Un nouvel envoi de la session remet le candidat en file
+        assertThat(records).filteredOn(record -> record.getCandidatId().equals("c1")).singleElement()
+                .isNotSameAs(sent)
+                .extracting(EmailOutbox::getStatus).isIn(EmailStatus.QUEUED, EmailStatus.SENDING);
+    }
+
+    private EmailOutbox queued() {
+        return queued("c1");
+    }
+
+    private EmailOutbox queued(String candidatId) {
+        EmailOutbox record = new EmailOutbox();
+        record.setSessionId("s1");
+        record.setCandidatId(candidatId);
+        record.setRecipient("dupont@example.org");
+        record.setStatus(EmailStatus.QUEUED);
+        record.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        records.add(record);
+        return record;
+    }
+
+    private void failWith(Exception error) {
+        when(bulkMailSender.send(anyList(), any())).thenAnswer(invocation -> report(
+                invocation.<List<EmailOutbox>>getArgument(0).stream()
+                        .map(item -> BulkMailSender.Delivery.failure(item, 5, error))
+                        .toList()));
+    }
+
+    private static BulkMailSender.BulkMailReport<EmailOutbox> report(List<BulkMailSender.Delivery<EmailOutbox>> deliveries) {
+        return new BulkMailSender.BulkMailReport<>(deliveries, 5);
+    }
+}
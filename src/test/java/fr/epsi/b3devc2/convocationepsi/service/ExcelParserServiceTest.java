@@ -0,0 +1,135 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExcelParserServiceTest {
+
+    private final ExcelParserService parser = new ExcelParserService();
+
+    @Test
+    void mapsReorderedAndRenamedHeaders() throws IOException {
+        byte[] xlsx = workbook(new String[]{"Courriel", "Prénom", "NOM", "Salle", "Date de passage", "Horaire", "Classe"},
+                sheet -> {
+                    Row row = sheet.createRow(1);
+                    row.createCell(0).setCellValue("dupont@example.org");
+                    row.createCell(1).setCellValue("Jeanne");
+                    row.createCell(2).setCellValue("DUPONT");
+                    row.createCell(3).setCellValue("B204");
+                    row.createCell(4).setCellValue(LocalDateTime.of(2025, 6, 12, 0, 0));
+                    row.getCell(4).setCellStyle(dateStyle(sheet, "dd/mm/yyyy"));
+                    row.createCell(5).setCellValue(LocalDateTime.of(1900, 1, 1, 14, 30));
+                    row.getCell(5).setCellStyle(dateStyle(sheet, "hh:mm"));
+                    row.createCell(6).setCellValue("B3 DEV");
+                });
+
+        List<CandidatDto> candidats = parser.readCandidatsFromExcel(file(xlsx));
+
+        assertThat(candidats).hasSize(1);
+        CandidatDto candidat = candidats.get(0);
+        assertThat(candidat.getNom()).isEqualTo("DUPONT");
+        assertThat(candidat.getPrenom()).isEqualTo("Jeanne");
+        assertThat(candidat.getEmail()).isEqualTo("dupont@example.org");
+        assertThat(candidat.getSalle()).isEqualTo("B204");
+        assertThat(candidat.getGroupe()).isEqualTo("B3 DEV");
+        assertThat(candidat.getDatePassage()).isEqualTo(LocalDate.of(2025, 6, 12));
+        assertThat(candidat.getHeurePassage()).isEqualTo(LocalTime.of(14, 30));
+    }
+
+    @Test
+    void keepsDefaultsForEmptyCellsAndSkipsEmptyRows() throws IOException {
+        byte[] xlsx = workbook(new String[]{"Groupe", "Civilité", "Nom", "Prénom", "Email", "Date", "Heure", "Salle", "Numéro Jury"},
+                sheet -> {
+                    Row row = sheet.createRow(1);
+                    row.createCell(2).setCellValue("MARTIN");
+                    row.createCell(3).setCellValue("Paul");
+                    row.createCell(4).setCellValue("martin@example.org");
+                    row.createCell(5).setCellValue("12/06/2025");
+                    // Ligne vide au milieu de la feuille
+                    sheet.createRow(2).createCell(7).setCellValue("");
+                    Row last = sheet.createRow(3);
+                    last.createCell(2).setCellValue("DURAND");
+                    last.createCell(3).setCellValue("Lea");
+                    last.createCell(4).setCellValue("durand@example.org");
+                    last.createCell(8).setCellValue(3);
+                });
+
+        List<CandidatDto> candidats = parser.readCandidatsFromExcel(file(xlsx));
+
+        assertThat(candidats).extracting(CandidatDto::getNom).containsExactly("MARTIN", "DURAND");
+        assertThat(candidats.get(0).getDatePassage()).isEqualTo(LocalDate.of(2025, 6, 12));
+        assertThat(candidats.get(0).getHeurePassage()).isEqualTo(LocalTime.of(9, 0));
+        assertThat(candidats.get(0).getSalle()).isEmpty();
+        assertThat(candidats.get(1).getNumeroJury()).isEqualTo("3");
+    }
+
+    @Test
+    void rejectsRowWithoutRequiredField() throws IOException {
+        byte[] xlsx = workbook(new String[]{"Nom", "Prénom", "Email"}, sheet -> {
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue("DUPONT");
+            row.createCell(2).setCellValue("dupont@example.org");
+        });
+
+        assertThatThrownBy(() -> parser.readCandidatsFromExcel(file(xlsx)))
+                .hasMessageContaining("Erreur ligne 2")
+                .hasMessageContaining("prénom");
+    }
+
+    @Test
+    void rejectsSheetWithoutHeaderRow() throws IOException {
+        byte[] xlsx;
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Row row = workbook.createSheet("Candidats").createRow(1);
+            row.createCell(0).setCellValue("B3 DEV");
+            workbook.write(out);
+            xlsx = out.toByteArray();
+        }
+
+        assertThatThrownBy(() -> parser.readCandidatsFromExcel(file(xlsx)))
+                .hasMessageContaining("L'en-tête du fichier Excel est manquant");
+    }
+
+    private interface SheetFiller {
+        void fill(Sheet sheet);
+    }
+
+    private static byte[] workbook(String[] headers, SheetFiller filler) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Candidats");
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < headers.length; i++) {
+                header.createCell(i).setCellValue(headers[i]);
+            }
+            filler.fill(sheet);
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static CellStyle dateStyle(Sheet sheet, String format) {
+        CellStyle style = sheet.getWorkbook().createCellStyle();
+        style.setDataFormat(sheet.getWorkbook().getCreationHelper().createDataFormat().getFormat(format));
+        return style;
+    }
+
+    private static MockMultipartFile file(byte[] xlsx) {
+        return new MockMultipartFile("file", "candidats.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", xlsx);
+    }
+}
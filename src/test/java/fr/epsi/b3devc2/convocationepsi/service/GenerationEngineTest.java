@@ -0,0 +1,111 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GenerationEngineTest {
+
+    private GenerationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new GenerationEngine();
+        ReflectionTestUtils.setField(engine, "configuredThreads", 2);
+        ReflectionTestUtils.setField(engine, "windowFactor", 2);
+        engine.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void deliversResultsInInputOrder() {
+        List<Integer> items = IntStream.range(0, 20).boxed().toList();
+
+        // Les premiers éléments sont les plus lents : ils terminent après les suivants
+        List<GenerationEngine.Outcome<Integer, String>> outcomes = engine.processAll(items, item -> {
+            Thread.sleep((20 - item) * 2L);
+            return "pdf-" + item;
+        });
+
+        assertThat(outcomes).extracting(GenerationEngine.Outcome::getItem).containsExactlyElementsOf(items);
+        assertThat(outcomes).extracting(GenerationEngine.Outcome::getResult)
+                .containsExactlyElementsOf(items.stream().map(item -> "pdf-" + item).toList());
+    }
+
+    @Test
+    void isolatesFailures() {
+        List<GenerationEngine.Outcome<Integer, Integer>> outcomes = engine.processAll(List.of(1, 2, 3, 4), item -> {
+            if (item == 2) {
+                throw new IllegalArgumentException("candidat invalide");
+            }
+            return item * 10;
+        });
+
+        assertThat(outcomes).extracting(GenerationEngine.Outcome::isSuccess).containsExactly(true, false, true, true);
+        assertThat(outcomes.get(1).getError()).isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("candidat invalide");
+        assertThat(outcomes).extracting(GenerationEngine.Outcome::getResult).containsExactly(10, null, 30, 40);
+    }
+
+    @Test
+    void cancelsTasksInFlightWhenConsumerFails() throws InterruptedException {
+        // Fenêtre de 4 tâches : l'élément 0 termine, les deux suivants occupent les workers et le quatrième attend
+        CountDownLatch running = new CountDownLatch(2);
+        CountDownLatch interrupted = new CountDownLatch(2);
+        AtomicInteger started = new AtomicInteger();
+        List<Integer> items = IntStream.range(0, 10).boxed().toList();
+
+        assertThatThrownBy(() -> engine.process(items, item -> {
+            started.incrementAndGet();
+            if (item == 0) {
+                return item;
+            }
+            running.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return item;
+        }, outcome -> {
+            awaitQuietly(running);
+            throw new IllegalStateException("écriture de l'archive impossible");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        // Les tâches encore en file ont été annulées avant d'avoir démarré
+        Thread.sleep(100);
+        assertThat(started.get()).isEqualTo(3);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void processesEmptyList() {
+        List<GenerationEngine.Outcome<Integer, Integer>> outcomes = engine.processAll(new ArrayList<>(), item -> item);
+
+        assertThat(outcomes).isEmpty();
+    }
+}
@@ -0,0 +1,80 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.GenerateConvocationRequestDto;
+import fr.epsi.b3devc2.convocationepsi.dto.GenerateResponseDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GenerationJobServiceTest {
+
+    private final ConvocationService convocationService = mock(ConvocationService.class);
+    private GenerationJobService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new GenerationJobService(convocationService);
+        ReflectionTestUtils.setField(service, "maxConcurrentJobs", 1);
+        ReflectionTestUtils.setField(service, "retentionMinutes", 60L);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void rejectsConcurrentSubmissionWhileFirstIsBeingPrepared() throws Exception {
+        CountDownLatch preparing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(convocationService.prepareBatch(any())).thenAnswer(invocation -> {
+            preparing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return ConvocationBatch.builder().candidats(List.of()).build();
+        });
+        when(convocationService.generate(any(), any()))
+                .thenReturn(new GenerateResponseDto("s1", 0, null, "0 convocation(s) générée(s)", List.of()));
+
+        CompletableFuture<?> first = CompletableFuture.runAsync(() -> service.submit(request()));
+        assertThat(preparing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(service.isRunning("s1")).isTrue();
+        assertThatThrownBy(() -> service.submit(request()))
+                .isInstanceOf(IllegalStateException.class);
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        verify(convocationService, times(1)).prepareBatch(any());
+    }
+
+    @Test
+    void releasesSessionWhenPreparationFails() {
+        when(convocationService.prepareBatch(any())).thenThrow(new IllegalArgumentException("Modèle introuvable"));
+
+        assertThatThrownBy(() -> service.submit(request())).hasMessage("Modèle introuvable");
+
+        assertThat(service.isRunning("s1")).isFalse();
+        assertThatThrownBy(() -> service.submit(request())).hasMessage("Modèle introuvable");
+    }
+
+    private static GenerateConvocationRequestDto request() {
+        GenerateConvocationRequestDto request = new GenerateConvocationRequestDto();
+        request.setSessionId("s1");
+        return request;
+    }
+}
@@ -0,0 +1,118 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImportCacheServiceTest {
+
+    private final ImportCacheService cache = new ImportCacheService();
+    private final AtomicInteger parses = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "maxEntries", 32);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(10));
+    }
+
+    @Test
+    void returnedCandidatsDoNotLeakIntoLaterHits() throws Exception {
+        List<CandidatDto> read = new ArrayList<>(List.of(candidat("DUPONT")));
+
+        ImportCacheService.ParsedImport first = cache.getOrParse("sha", () -> parse(read));
+        first.getCandidats().get(0).setId("id-session-1");
+        first.getCandidats().get(0).setSalle("B999");
+        first.getCandidats().add(candidat("MARTIN"));
+        // Le parseur modifie sa propre liste après coup
+        read.get(0).setNom("MODIFIE");
+
+        ImportCacheService.ParsedImport second = cache.getOrParse("sha", () -> parse(read));
+
+        assertThat(parses.get()).isEqualTo(1);
+        assertThat(second.getCandidats()).singleElement().satisfies(candidat -> {
+            assertThat(candidat.getId()).isNull();
+            assertThat(candidat.getSalle()).isEqualTo("B101");
+            assertThat(candidat.getNom()).isEqualTo("DUPONT");
+        });
+        assertThat(second.getCandidats().get(0)).isNotSameAs(first.getCandidats().get(0));
+    }
+
+    @Test
+    void parsesConcurrentImportsOfSameFileOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ImportCacheService.ParsedImport>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> cache.getOrParse("sha", () -> {
+                    started.countDown();
+                    assertThat(release.await(5, TimeUnit.SECONDS)).isTrue();
+                    return parse(List.of(candidat("DUPONT")));
+                })));
+            }
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            // Laisse les autres imports rejoindre l'analyse en cours
+            Thread.sleep(100);
+            release.countDown();
+
+            List<CandidatDto> returned = new ArrayList<>();
+            for (Future<ImportCacheService.ParsedImport> result : results) {
+                returned.add(result.get(5, TimeUnit.SECONDS).getCandidats().get(0));
+            }
+            assertThat(parses.get()).isEqualTo(1);
+            assertThat(returned).extracting(CandidatDto::getNom).containsOnly("DUPONT");
+            // Chaque import reçoit ses propres objets
+            Set<CandidatDto> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+            distinct.addAll(returned);
+            assertThat(distinct).hasSize(4);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedParseIsNotCached() throws Exception {
+        try {
+            cache.getOrParse("sha", () -> {
+                parses.incrementAndGet();
+                throw new IllegalArgumentException("Aucun candidat trouvé dans le fichier");
+            });
+        } catch (IllegalArgumentException expected) {
+            // attendu
+        }
+
+        ImportCacheService.ParsedImport parsed = cache.getOrParse("sha", () -> parse(List.of(candidat("DUPONT"))));
+
+        assertThat(parses.get()).isEqualTo(2);
+        assertThat(parsed.getCandidats()).hasSize(1);
+    }
+
+    private ImportCacheService.ParsedImport parse(List<CandidatDto> candidats) {
+        parses.incrementAndGet();
+        return new ImportCacheService.ParsedImport(candidats, List.of());
+    }
+
+    private static CandidatDto candidat(String nom) {
+        return new CandidatDto(null, "B3 DEV", "Madame", nom, "Jeanne", nom.toLowerCase() + "@example.org",
+                LocalDate.of(2025, 9, 15), LocalTime.of(9, 30), "B101", "12", null);
+    }
+}
@@ -0,0 +1,96 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.MailThrottleStatsDto;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class MailRateLimiterTest {
+
+    private static final SendFailedException BUSY = new SendFailedException("451 4.7.500 Server busy");
+
+    @Test
+    void refusesWhenMinuteBucketIsEmpty() throws InterruptedException {
+        MailRateLimiter limiter = new MailRateLimiter(3, 100, 1, Duration.ofSeconds(30), Duration.ZERO);
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire();
+        }
+
+        Instant before = Instant.now();
+        assertThatThrownBy(limiter::acquire)
+                .isInstanceOfSatisfying(MailQuotaExceededException.class, e ->
+                        // Un jeton toutes les 20 s à 3 messages par minute
+                        assertThat(Duration.between(before, e.getRetryAt()).toSeconds()).isBetween(18L, 20L));
+        assertThat(limiter.getStats().getAvailableThisMinute()).isZero();
+        assertThat(limiter.getStats().getAvailableToday()).isEqualTo(97);
+    }
+
+    @Test
+    void refusesWhenDayBucketIsEmpty() throws InterruptedException {
+        MailRateLimiter limiter = new MailRateLimiter(60, 2, 1, Duration.ofSeconds(30), Duration.ofSeconds(1));
+        limiter.acquire();
+        limiter.acquire();
+
+        assertThatThrownBy(limiter::acquire)
+                .isInstanceOfSatisfying(MailQuotaExceededException.class, e ->
+                        assertThat(e.getRetryAt()).isAfter(Instant.now().plus(Duration.ofHours(11))));
+    }
+
+    @Test
+    void halvesRateAndPausesOnTransientReply() {
+        MailRateLimiter limiter = new MailRateLimiter(60, 1000, 1, Duration.ofSeconds(30), Duration.ofSeconds(1));
+
+        assertThat(limiter.onFailure(BUSY)).isTrue();
+
+        MailThrottleStatsDto stats = limiter.getStats();
+        assertThat(stats.getCurrentPerMinute()).isCloseTo(30, within(0.01));
+        assertThat(stats.getAvailableThisMinute()).isZero();
+        assertThat(stats.getThrottled()).isEqualTo(1);
+        assertThat(stats.getPausedUntil()).isBetween(Instant.now().plusSeconds(28), Instant.now().plusSeconds(30));
+        assertThatThrownBy(limiter::acquire).isInstanceOf(MailQuotaExceededException.class);
+    }
+
+    @Test
+    void neverDropsBelowMinimumRateAndRecoversOnSuccess() {
+        MailRateLimiter limiter = new MailRateLimiter(60, 1000, 10, Duration.ZERO, Duration.ofSeconds(1));
+        for (int i = 0; i < 5; i++) {
+            limiter.onFailure(BUSY);
+        }
+        assertThat(limiter.getStats().getCurrentPerMinute()).isCloseTo(10, within(0.01));
+
+        // Chaque envoi réussi rend un message par minute
+        for (int i = 0; i < 3; i++) {
+            limiter.onSuccess();
+        }
+        assertThat(limiter.getStats().getCurrentPerMinute()).isCloseTo(13, within(0.01));
+        assertThat(limiter.getStats().getSent()).isEqualTo(3);
+    }
+
+    @Test
+    void ignoresPermanentErrors() {
+        MailRateLimiter limiter = new MailRateLimiter(60, 1000, 1, Duration.ofSeconds(30), Duration.ofSeconds(1));
+
+        assertThat(limiter.onFailure(new SendFailedException("550 5.1.1 Destinataire inconnu"))).isFalse();
+
+        MailThrottleStatsDto stats = limiter.getStats();
+        assertThat(stats.getCurrentPerMinute()).isCloseTo(60, within(0.01));
+        assertThat(stats.getThrottled()).isZero();
+        assertThat(stats.getPausedUntil()).isNull();
+    }
+
+    @Test
+    void findsTransientReplyInChainedExceptions() {
+        MessagingException chained = new MessagingException("Échec de l'envoi",
+                new MessagingException("421 4.7.0 Try again later"));
+
+        assertThat(MailRateLimiter.isThrottling(chained)).isTrue();
+        assertThat(MailRateLimiter.isThrottling(new RuntimeException("Délai 450 ms dépassé"))).isFalse();
+    }
+}
@@ -0,0 +1,179 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.util.HashUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PdfOverlayRendererTest {
+
+    private final DocumentGeneratorService wordService = mock(DocumentGeneratorService.class);
+    private final DocxToPdfConverter pdfConverter = mock(DocxToPdfConverter.class);
+    private final PdfOverlayRenderer renderer = new PdfOverlayRenderer(wordService, pdfConverter);
+
+    private ConvocationBatch batch;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(renderer, "maxEntries", 8);
+        byte[] docx = docx("{{NOM}} {{PRENOM}} {{SALLE}}");
+        batch = ConvocationBatch.builder()
+                .template(PrecompiledTemplate.compile(HashUtils.sha256Hex(docx), docx))
+                .build();
+        when(wordService.generateBaseDocument(any())).thenReturn(docx);
+        when(pdfConverter.convertDocxToPdf(any())).thenReturn(basePdf());
+    }
+
+    @Test
+    void removesPlaceholdersFromBasePdf() throws Exception {
+        PdfOverlayRenderer.OverlayTemplate overlay = renderer.prepare(batch);
+
+        assertThat(overlay).isNotNull();
+        assertThat(overlay.getSlots()).hasSize(2);
+        String text = text(overlay.getBasePdf());
+        assertThat(text).contains("Convocation de", "Salle :", "Merci de vous présenter").doesNotContain("{{");
+    }
+
+    @Test
+    void redrawsValuesInTemplateFonts() throws Exception {
+        byte[] pdf = renderer.render(renderer.prepare(batch), variables("DUPONT"));
+
+        String text = text(pdf);
+        assertThat(text).contains("Convocation de DUPONT Jeanne", "Salle : B204").doesNotContain("{{");
+        Map<String, String> fonts = fontsByText(pdf);
+        assertThat(fonts.get("D")).isEqualTo("Helvetica");
+        // {{SALLE}} est une variable en gras : la variante grasse de la police du modèle est utilisée
+        assertThat(fonts.get("B")).isEqualTo("Helvetica-Bold");
+    }
+
+    @Test
+    void fallsBackWhenCharacterIsMissingFromTemplateFont() throws Exception {
+        assertThat(renderer.render(renderer.prepare(batch), variables("Łukasiewicz"))).isNull();
+    }
+
+    @Test
+    void fallsBackWhenLineWouldOverflow() throws Exception {
+        assertThat(renderer.render(renderer.prepare(batch), variables("D".repeat(80)))).isNull();
+    }
+
+    @Test
+    void doesNotCacheConversionFailure() throws Exception {
+        when(pdfConverter.convertDocxToPdf(any()))
+                .thenThrow(new IOException("Conversion interrompue"))
+                .thenReturn(basePdf());
+
+        assertThatThrownBy(() -> renderer.prepare(batch)).isInstanceOf(IOException.class);
+
+        assertThat(renderer.prepare(batch)).isNotNull();
+        verify(pdfConverter, times(2)).convertDocxToPdf(any());
+    }
+
+    @Test
+    void cachesTemplateThatCannotBeOverlaid() throws Exception {
+        // Le PDF de base ne contient pas les placeholders attendus
+        when(pdfConverter.convertDocxToPdf(any())).thenReturn(pdfWithText("Convocation"));
+
+        assertThat(renderer.prepare(batch)).isNull();
+        assertThat(renderer.prepare(batch)).isNull();
+        verify(pdfConverter, times(1)).convertDocxToPdf(any());
+    }
+
+    private static Map<String, String> variables(String nom) {
+        return Map.of("{{NOM}}", nom, "{{PRENOM}}", "Jeanne", "{{SALLE}}", "B204");
+    }
+
+    /**
+     * PDF de base tel que produit par la conversion : chaque ligne est un seul opérateur Tj
+     */
+    private static byte[] basePdf() throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                showText(content, PDType1Font.HELVETICA, 72, 700, "Convocation de {{NOM}} {{PRENOM}}");
+                showText(content, PDType1Font.HELVETICA_BOLD, 72, 680, "Salle :");
+                showText(content, PDType1Font.HELVETICA, 112, 680, "{{SALLE}}");
+                showText(content, PDType1Font.HELVETICA, 72, 650, "Merci de vous présenter à l'heure indiquée sur cette convocation.");
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] pdfWithText(String text) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                showText(content, PDType1Font.HELVETICA, 72, 700, text);
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static void showText(PDPageContentStream content, PDFont font, float x, float y, String text)
+            throws IOException {
+        content.beginText();
+        content.setFont(font, 12);
+        content.newLineAtOffset(x, y);
+        content.showText(text);
+        content.endText();
+    }
+
+    private static byte[] docx(String text) throws IOException {
+        try (XWPFDocument document = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            document.createParagraph().createRun().setText(text);
+            document.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static String text(byte[] pdf) throws IOException {
+        try (PDDocument document = PDDocument.load(pdf)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setSortByPosition(true);
+            return stripper.getText(document);
+        }
+    }
+
+    /**
+     * Police du premier caractère affiché pour chaque caractère
+     */
+    private static Map<String, String> fontsByText(byte[] pdf) throws IOException {
+        Map<String, String> fonts = new HashMap<>();
+        try (PDDocument document = PDDocument.load(pdf)) {
+            PDFTextStripper stripper = new PDFTextStripper() {
+                @Override
+                protected void writeString(String text, List<TextPosition> positions) throws IOException {
+                    positions.forEach(position -> fonts.putIfAbsent(position.getUnicode(), position.getFont().getName()));
+                    super.writeString(text, positions);
+                }
+            };
+            stripper.getText(document);
+        }
+        return fonts;
+    }
+}
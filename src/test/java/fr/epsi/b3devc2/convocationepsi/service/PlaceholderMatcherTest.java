@@ -0,0 +1,43 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PlaceholderMatcherTest {
+
+    private final PlaceholderMatcher matcher = new PlaceholderMatcher(List.of("{{NOM}}", "{{PRENOM}}", "{{SALLE}}"));
+
+    @Test
+    void findsAllKeysInTextOrder() {
+        List<PlaceholderMatcher.Match> matches = matcher.findAll("{{PRENOM}} {{NOM}}, salle {{SALLE}}{{NOM}}");
+
+        assertThat(matches).extracting(match -> match.key)
+                .containsExactly("{{PRENOM}}", "{{NOM}}", "{{SALLE}}", "{{NOM}}");
+        assertThat(matches).extracting(match -> match.start).containsExactly(0, 11, 26, 35);
+        assertThat(matches.get(3).end).isEqualTo(42);
+    }
+
+    @Test
+    void ignoresUnknownAndIncompletePlaceholders() {
+        assertThat(matcher.findAll("{{INCONNU}} {{NOM {{ }}")).isEmpty();
+        assertThat(matcher.findAll("Accents é {{nom}}")).isEmpty();
+    }
+
+    @Test
+    void retriesFromNextBraceAfterFailedAnchor() {
+        List<PlaceholderMatcher.Match> matches = matcher.findAll("{{{NOM}}}");
+
+        assertThat(matches).hasSize(1);
+        assertThat(matches.get(0).start).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsNonAsciiKeys() {
+        assertThatThrownBy(() -> new PlaceholderMatcher(List.of("{{PRÉNOM}}")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
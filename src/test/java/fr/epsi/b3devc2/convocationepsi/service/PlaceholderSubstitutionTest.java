@@ -0,0 +1,105 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.FillMode;
+import fr.epsi.b3devc2.convocationepsi.dto.GenerateConvocationRequestDto;
+import fr.epsi.b3devc2.convocationepsi.model.*;
+import fr.epsi.b3devc2.convocationepsi.util.HashUtils;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class PlaceholderSubstitutionTest {
+
+    private static final Map<String, String> VARIABLES = Map.of(
+            "{{NOM}}", "DUPONT", "{{PRENOM}}", "Jeanne", "{{SALLE}}", "B204", "{{HORAIRE}}", "");
+
+    @Test
+    void returnsNullWhenNothingIsReplaced() {
+        assertThat(PlaceholderSubstitution.substitute("Convocation", VARIABLES, false)).isNull();
+        assertThat(PlaceholderSubstitution.substitute("{{INCONNU}}", VARIABLES, false)).isNull();
+    }
+
+    @Test
+    void isolatesBoldVariablesInTheirOwnSegments() {
+        List<PlaceholderSubstitution.TextSegment> segments =
+                PlaceholderSubstitution.substitute("{{PRENOM}} {{NOM}}, salle {{SALLE}} à {{HORAIRE}}.", VARIABLES, false);
+
+        // {{HORAIRE}} est vide : pas de segment gras, le texte reste dans le segment courant
+        assertThat(segments).extracting(segment -> segment.text, segment -> segment.isBold).containsExactly(
+                tuple("Jeanne DUPONT, salle ", false),
+                tuple("B204", true),
+                tuple(" à .", false));
+    }
+
+    @Test
+    void keepsParagraphBoldWhenTemplateRunIsBold() {
+        List<PlaceholderSubstitution.TextSegment> segments =
+                PlaceholderSubstitution.substitute("{{NOM}} - {{SALLE}}", VARIABLES, true);
+
+        assertThat(segments).extracting(segment -> segment.isBold).containsOnly(true);
+        assertThat(segments).extracting(segment -> segment.text).containsExactly("DUPONT", " - ", "B204");
+    }
+
+    @ParameterizedTest
+    @EnumSource(FillMode.class)
+    void replacesPlaceholdersSplitAcrossRuns(FillMode fillMode) throws IOException {
+        byte[] docx;
+        try (XWPFDocument document = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            XWPFParagraph paragraph = document.createParagraph();
+            paragraph.createRun().setText("Bonjour {{PRE");
+            XWPFRun italic = paragraph.createRun();
+            italic.setItalic(true);
+            italic.setText("NOM}} {");
+            paragraph.createRun().setText("{NOM}}, salle {{S");
+            paragraph.createRun().setText("ALLE}}");
+            document.write(out);
+            docx = out.toByteArray();
+        }
+        DocumentGeneratorService generator = new DocumentGeneratorService(new StreamingDocxFiller());
+
+        byte[] filled = generator.generateConvocationForCandidat(candidat(), batch(docx, fillMode));
+
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(filled))) {
+            XWPFParagraph paragraph = document.getParagraphs().get(0);
+            assertThat(paragraph.getText()).isEqualTo("Bonjour Jeanne DUPONT, salle B204");
+            assertThat(paragraph.getRuns()).filteredOn(XWPFRun::isBold)
+                    .extracting(run -> run.getText(0)).containsExactly("B204");
+        }
+    }
+
+    private static CandidatDto candidat() {
+        return new CandidatDto("c1", "B3 DEV", "Madame", "DUPONT", "Jeanne", "jeanne.dupont@example.org",
+                LocalDate.of(2025, 9, 15), LocalTime.of(9, 30), "B204", "12", null);
+    }
+
+    private static ConvocationBatch batch(byte[] docx, FillMode fillMode) throws IOException {
+        GenerateConvocationRequestDto request = new GenerateConvocationRequestDto();
+        request.setDateRendu(LocalDate.of(2025, 9, 1));
+        request.setHeureRendu(LocalTime.of(18, 0));
+        return ConvocationBatch.builder()
+                .request(request)
+                .template(PrecompiledTemplate.compile(HashUtils.sha256Hex(docx), docx))
+                .ville(new Ville(1L, "Montpellier"))
+                .typeExamen(new TypeExamen(1L, "Soutenance", null))
+                .certification(new Certification(1L, "Concepteur Développeur", null))
+                .adresse(new Adresse(1L, "1 rue de l'École"))
+                .dureeEpreuve(new DureeEpreuve(1L, "45 minutes"))
+                .fillMode(fillMode)
+                .build();
+    }
+}
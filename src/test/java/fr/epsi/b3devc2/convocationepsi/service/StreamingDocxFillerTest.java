@@ -0,0 +1,219 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.FillMode;
+import fr.epsi.b3devc2.convocationepsi.dto.GenerateConvocationRequestDto;
+import fr.epsi.b3devc2.convocationepsi.model.*;
+import fr.epsi.b3devc2.convocationepsi.util.HashUtils;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamingDocxFillerTest {
+
+    private static final Pattern DRAWING_ID = Pattern.compile("docPr\\b[^>]*?\\sid=\"(\\d+)\"");
+
+    private final StreamingDocxFiller filler = new StreamingDocxFiller();
+    private final DocumentGeneratorService generator = new DocumentGeneratorService(filler);
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Convocation_B3_Template.docx", "Convocation_I1_I2_Template.docx",
+            "Convocation_Wis_Template.docx"})
+    void producesSameTextAsXwpfOnBundledTemplates(String templateName) throws IOException {
+        PrecompiledTemplate template = compile(new ClassPathResource("templates/" + templateName).getContentAsByteArray());
+        CandidatDto candidat = candidat();
+
+        byte[] xwpf = generator.generateConvocationForCandidat(candidat, batch(template, FillMode.XWPF));
+        byte[] streaming = generator.generateConvocationForCandidat(candidat, batch(template, FillMode.STREAMING));
+
+        List<String> expected = paragraphTexts(xwpf);
+        assertThat(paragraphTexts(streaming)).containsExactlyElementsOf(expected);
+        assertThat(String.join("\n", expected)).contains("DUPONT", "Jeanne", "B204").doesNotContain("{{NOM}}");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Convocation_B3_Template.docx", "Convocation_I1_I2_Template.docx",
+            "Convocation_Wis_Template.docx"})
+    void allocatesSignatureDrawingIdAboveTemplateIds(String templateName) throws IOException {
+        PrecompiledTemplate template = compile(new ClassPathResource("templates/" + templateName).getContentAsByteArray());
+
+        byte[] docx = filler.fill(template, variables(), png());
+
+        List<Long> ids = drawingIds(part(docx, "word/document.xml"));
+        ids.addAll(drawingIds(part(docx, "word/footer1.xml")));
+        assertThat(ids).doesNotHaveDuplicates().contains(template.getMaxDrawingId() + 1);
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(docx))) {
+            assertThat(document.getAllPictures()).anyMatch(picture -> picture.getFileName().contains("signature"));
+        }
+    }
+
+    @Test
+    void keepsTextAfterHyperlinkInPlace() throws IOException {
+        byte[] docx;
+        try (XWPFDocument document = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            XWPFParagraph paragraph = document.createParagraph();
+            paragraph.createRun().setText("Convocation de ");
+            paragraph.createHyperlinkRun("https://www.epsi.fr").setText("l'école");
+            paragraph.createRun().setText(" pour {{");
+            paragraph.createRun().setText("NOM}}");
+            document.write(out);
+            docx = out.toByteArray();
+        }
+
+        byte[] filled = filler.fill(compile(docx), Map.of("{{NOM}}", "DUPONT"), null);
+
+        assertThat(paragraphTexts(filled)).containsExactly("Convocation de l'école pour DUPONT");
+    }
+
+    @Test
+    void mergesPlaceholderSplitAroundProofingMark() throws IOException {
+        byte[] docx;
+        try (XWPFDocument document = new XWPFDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            XWPFParagraph paragraph = document.createParagraph();
+            paragraph.createRun().setText("Bonjour {{PRE");
+            paragraph.getCTP().addNewProofErr();
+            paragraph.createRun().setText("NOM}} !");
+            document.write(out);
+            docx = out.toByteArray();
+        }
+
+        byte[] filled = filler.fill(compile(docx), Map.of("{{PRENOM}}", "Jeanne"), null);
+
+        assertThat(paragraphTexts(filled)).containsExactly("Bonjour Jeanne !");
+    }
+
+    @Test
+    void copiesUntouchedPartsWithoutRecompressing() throws IOException {
+        PrecompiledTemplate template = compile(new ClassPathResource("templates/Convocation_B3_Template.docx")
+                .getContentAsByteArray());
+
+        byte[] docx = filler.fill(template, variables(), png());
+
+        Map<String, byte[]> raw = rawEntries(docx);
+        Map<String, byte[]> filled = parts(docx);
+        assertThat(raw).containsKey("word/media/convocation_signature.png");
+        // Les parties dont le contenu est inchangé gardent leurs données compressées d'origine
+        List<String> copied = new ArrayList<>();
+        template.getRawParts().forEach((name, part) -> {
+            if (Arrays.equals(template.getParts().get(name), filled.get(name))) {
+                assertThat(raw.get(name)).as(name).isEqualTo(part.getData());
+                copied.add(name);
+            }
+        });
+        assertThat(copied).contains("word/styles.xml", "word/theme/theme1.xml").doesNotContain("word/document.xml");
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(docx))) {
+            assertThat(document.getStyles()).isNotNull();
+        }
+    }
+
+    private static PrecompiledTemplate compile(byte[] bytes) throws IOException {
+        return PrecompiledTemplate.compile(HashUtils.sha256Hex(bytes), bytes);
+    }
+
+    private static CandidatDto candidat() {
+        return new CandidatDto("c1", "B3 DEV", "Madame", "Dupont", "Jeanne", "jeanne.dupont@example.org",
+                LocalDate.of(2025, 9, 15), LocalTime.of(9, 30), "B204", "12", null);
+    }
+
+    private static ConvocationBatch batch(PrecompiledTemplate template, FillMode fillMode) {
+        GenerateConvocationRequestDto request = new GenerateConvocationRequestDto();
+        request.setDateRendu(LocalDate.of(2025, 9, 1));
+        request.setHeureRendu(LocalTime.of(18, 0));
+        request.setLienDrive("https://drive.example.org/depot");
+        return ConvocationBatch.builder()
+                .request(request)
+                .template(template)
+                .ville(new Ville(1L, "Montpellier"))
+                .typeExamen(new TypeExamen(1L, "Soutenance", null))
+                .certification(new Certification(1L, "Concepteur Développeur", null))
+                .adresse(new Adresse(1L, "1 rue de l'École"))
+                .dureeEpreuve(new DureeEpreuve(1L, "45 minutes"))
+                .fillMode(fillMode)
+                .build();
+    }
+
+    private Map<String, String> variables() {
+        return generator.createVariableMapping(candidat(), batch(null, FillMode.STREAMING));
+    }
+
+    private static List<String> paragraphTexts(byte[] docx) throws IOException {
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(docx))) {
+            return PrecompiledTemplate.collectParagraphs(document).stream()
+                    .map(located -> located.getParagraph().getText())
+                    .toList();
+        }
+    }
+
+    private static List<Long> drawingIds(String xml) {
+        List<Long> ids = new ArrayList<>();
+        Matcher matcher = DRAWING_ID.matcher(xml);
+        while (matcher.find()) {
+            ids.add(Long.parseLong(matcher.group(1)));
+        }
+        return ids;
+    }
+
+    private static Map<String, byte[]> rawEntries(byte[] docx) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipFile zip = ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(docx)).get()) {
+            for (ZipArchiveEntry entry : Collections.list(zip.getEntries())) {
+                try (InputStream in = zip.getRawInputStream(entry)) {
+                    entries.put(entry.getName(), in.readAllBytes());
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static Map<String, byte[]> parts(byte[] docx) throws IOException {
+        Map<String, byte[]> parts = new HashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(docx))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                parts.put(entry.getName(), zis.readAllBytes());
+            }
+        }
+        return parts;
+    }
+
+    private static String part(byte[] docx, String name) throws IOException {
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(docx))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                if (entry.getName().equals(name)) {
+                    return new String(zis.readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return "";
+    }
+
+    private static byte[] png() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 2, BufferedImage.TYPE_INT_ARGB), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,112 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import fr.epsi.b3devc2.convocationepsi.service.XlsxSheetReader.SheetCell;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XlsxSheetReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void treatsEmptyValueAsBlank() throws IOException {
+        List<SheetCell[]> rows = read("""
+                <row r="1"><c r="A1" t="inlineStr"><is><t>DUPONT</t></is></c><c r="B1"><v/></c>\
+                <c r="C1" s="0"><v></v></c><c r="D1"><v>42</v></c></row>""");
+
+        SheetCell[] row = rows.get(0);
+        assertThat(row[0].text).isEqualTo("DUPONT");
+        assertThat(row[1].type).isEqualTo(SheetCell.Type.BLANK);
+        assertThat(row[2].type).isEqualTo(SheetCell.Type.BLANK);
+        assertThat(row[3].number).isEqualTo(42);
+    }
+
+    @Test
+    void parsesIsoDateCells() throws IOException {
+        List<SheetCell[]> rows = read("""
+                <row r="1"><c r="A1" t="d"><v>2025-06-12</v></c><c r="B1" t="d"><v>2025-06-12T14:30:00</v></c>\
+                <c r="C1" t="d"><v>09:15:00</v></c><c r="D1" t="d"><v>bientôt</v></c></row>""");
+
+        SheetCell[] row = rows.get(0);
+        assertThat(row[0].type).isEqualTo(SheetCell.Type.NUMERIC);
+        assertThat(row[0].dateFormatted).isTrue();
+        assertThat(row[0].localDateTime()).isEqualTo(LocalDateTime.of(2025, 6, 12, 0, 0));
+        assertThat(row[1].localDateTime()).isEqualTo(LocalDateTime.of(2025, 6, 12, 14, 30));
+        assertThat(row[2].localDateTime().toLocalTime()).hasToString("09:15");
+        // Une valeur non reconnue reste du texte
+        assertThat(row[3].type).isEqualTo(SheetCell.Type.STRING);
+        assertThat(row[3].text).isEqualTo("bientôt");
+    }
+
+    @Test
+    void placesSparseCellsByReference() throws IOException {
+        List<SheetCell[]> rows = read("""
+                <row r="1"><c r="C1" t="inlineStr"><is><t>Salle</t></is></c></row>\
+                <row r="3"><c r="A3" t="b"><v>1</v></c><c r="Z3"><v>7</v></c></row>""");
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0)[0].type).isEqualTo(SheetCell.Type.BLANK);
+        assertThat(rows.get(0)[2].text).isEqualTo("Salle");
+        assertThat(rows.get(1)[0].text).isEqualTo("true");
+        // Colonnes au-delà de la limite ignorées
+        assertThat(rows.get(1)).hasSize(4);
+    }
+
+    private List<SheetCell[]> read(String sheetRows) throws IOException {
+        Path file = dir.resolve("candidats.xlsx");
+        try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+            entry(zip, "[Content_Types].xml", """
+                    <?xml version="1.0" encoding="UTF-8"?>
+                    <Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">
+                    <Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>
+                    <Default Extension="xml" ContentType="application/xml"/>
+                    <Override PartName="/xl/workbook.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml"/>
+                    <Override PartName="/xl/worksheets/sheet1.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml"/>
+                    </Types>""");
+            entry(zip, "_rels/.rels", """
+                    <?xml version="1.0" encoding="UTF-8"?>
+                    <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">
+                    <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument" Target="xl/workbook.xml"/>
+                    </Relationships>""");
+            entry(zip, "xl/workbook.xml", """
+                    <?xml version="1.0" encoding="UTF-8"?>
+                    <workbook xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main" \
+                    xmlns:r="http://schemas.openxmlformats.org/officeDocument/2006/relationships">
+                    <sheets><sheet name="Candidats" sheetId="1" r:id="rId1"/></sheets>
+                    </workbook>""");
+            entry(zip, "xl/_rels/workbook.xml.rels", """
+                    <?xml version="1.0" encoding="UTF-8"?>
+                    <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">
+                    <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet" Target="worksheets/sheet1.xml"/>
+                    </Relationships>""");
+            entry(zip, "xl/worksheets/sheet1.xml", """
+                    <?xml version="1.0" encoding="UTF-8"?>
+                    <worksheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main"><sheetData>"""
+                    + sheetRows + "</sheetData></worksheet>");
+        }
+
+        List<SheetCell[]> rows = new ArrayList<>();
+        XlsxSheetReader.read(file.toFile(), 4, (rowIndex, cells) -> rows.add(cells.clone()));
+        return rows;
+    }
+
+    private static void entry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,82 @@
+package fr.epsi.b3devc2.convocationepsi.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ZipArchiveIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsEntriesWrittenBySpoolWriter() throws IOException {
+        byte[] first = randomBytes(1, 70_000);
+        byte[] second = randomBytes(2, 10);
+        Path archive;
+        String duplicate;
+        try (ZipSpoolWriter zip = new ZipSpoolWriter(dir.resolve("session.zip"))) {
+            assertThat(zip.addStored("Convocation_DUPONT_Élodie.pdf", first)).isEqualTo("Convocation_DUPONT_Élodie.pdf");
+            duplicate = zip.addStored("Convocation_DUPONT_Élodie.pdf", second);
+            zip.addStored("vide.pdf", new byte[0]);
+            archive = zip.finish();
+        }
+
+        ZipArchiveIndex index = ZipArchiveIndex.build(archive, Files.getLastModifiedTime(archive).toMillis());
+
+        assertThat(duplicate).isEqualTo("Convocation_DUPONT_Élodie_2.pdf");
+        assertThat(index.getNames()).containsExactlyInAnyOrder("Convocation_DUPONT_Élodie.pdf", duplicate, "vide.pdf");
+        assertThat(index.read("Convocation_DUPONT_Élodie.pdf")).isEqualTo(first);
+        assertThat(index.read(duplicate)).isEqualTo(second);
+        assertThat(index.read("vide.pdf")).isEmpty();
+        assertThat(index.read("absent.pdf")).isNull();
+        // L'archive reste lisible par un lecteur ZIP standard
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            assertThat(zipFile.size()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void readsDeflatedEntriesAndArchiveComment() throws IOException {
+        byte[] text = "Convocation ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        Path archive = dir.resolve("deflated.zip");
+        try (OutputStream out = Files.newOutputStream(archive); ZipOutputStream zos = new ZipOutputStream(out)) {
+            zos.putNextEntry(new ZipEntry("lisez-moi.txt"));
+            zos.write(text);
+            zos.closeEntry();
+            zos.setComment("archive générée");
+        }
+
+        ZipArchiveIndex index = ZipArchiveIndex.build(archive, 0);
+
+        assertThat(index.contains("lisez-moi.txt")).isTrue();
+        assertThat(index.read("lisez-moi.txt")).isEqualTo(text);
+    }
+
+    @Test
+    void deletesUnfinishedSpoolArchive() throws IOException {
+        Path file = dir.resolve("interrompue.zip");
+        try (ZipSpoolWriter zip = new ZipSpoolWriter(file)) {
+            zip.addStored("a.pdf", new byte[]{1, 2, 3});
+        }
+
+        assertThat(file).doesNotExist();
+    }
+
+    private static byte[] randomBytes(long seed, int size) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,88 @@
+package fr.epsi.b3devc2.convocationepsi.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileSessionStorageTest {
+
+    @TempDir
+    Path rootDir;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void reloadsSessionsAfterRestart() throws IOException {
+        FileSessionStorage storage = start(Duration.ofHours(1));
+        storage.storeCandidats("s1", List.of(candidat("DUPONT"), candidat("MARTIN")));
+        Path archive = Files.write(storage.createArchiveFile("s1"), new byte[]{1, 2, 3});
+        storage.storeArchive("s1", archive);
+
+        FileSessionStorage restarted = start(Duration.ofHours(1));
+
+        assertThat(restarted.sessionExists("s1")).isTrue();
+        assertThat(restarted.getCandidatsCount("s1")).isEqualTo(2);
+        assertThat(restarted.getCandidats("s1")).extracting(CandidatDto::getNom).containsExactly("DUPONT", "MARTIN");
+        assertThat(restarted.getCandidats("s1").get(0).getDatePassage()).isEqualTo(LocalDate.of(2025, 9, 15));
+        assertThat(restarted.getFile("s1")).containsExactly(1, 2, 3);
+        // Aucun fichier temporaire ne reste après les écritures atomiques
+        try (Stream<Path> files = Files.walk(rootDir)) {
+            assertThat(files.map(Path::toString)).noneMatch(name -> name.endsWith(".tmp"));
+        }
+    }
+
+    @Test
+    void removesExpiredSessions() throws Exception {
+        FileSessionStorage storage = start(Duration.ofMillis(50));
+        storage.storeCandidats("s1", List.of(candidat("DUPONT")));
+        storage.storeArchive("s1", Files.write(storage.createArchiveFile("s1"), new byte[]{1}));
+
+        Thread.sleep(100);
+        storage.sweepExpiredSessions();
+
+        assertThat(storage.sessionExists("s1")).isFalse();
+        assertThat(storage.getCandidats("s1")).isNull();
+        assertThat(rootDir.resolve("s1")).doesNotExist();
+        assertThat(storage.getStats().getEvictionsByTtl()).isEqualTo(1);
+        // L'expiration est persistée dans l'index
+        assertThat(start(Duration.ofHours(1)).sessionExists("s1")).isFalse();
+    }
+
+    @Test
+    void expiredSessionIsRemovedOnAccess() throws Exception {
+        FileSessionStorage storage = start(Duration.ofMillis(50));
+        storage.storeCandidats("s1", List.of(candidat("DUPONT")));
+
+        Thread.sleep(100);
+
+        assertThat(storage.getCandidats("s1")).isNull();
+        assertThat(rootDir.resolve("s1")).doesNotExist();
+    }
+
+    private FileSessionStorage start(Duration ttl) throws IOException {
+        FileSessionStorage storage = new FileSessionStorage(objectMapper);
+        ReflectionTestUtils.setField(storage, "rootDir", rootDir);
+        ReflectionTestUtils.setField(storage, "ttl", ttl);
+        storage.loadIndex();
+        return storage;
+    }
+
+    private static CandidatDto candidat(String nom) {
+        return new CandidatDto(null, "B3 DEV", "Madame", nom, "Jeanne", nom.toLowerCase() + "@example.org",
+                LocalDate.of(2025, 9, 15), LocalTime.of(9, 30), "B101", "12", null);
+    }
+}
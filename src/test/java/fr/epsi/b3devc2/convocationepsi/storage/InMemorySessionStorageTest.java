@@ -0,0 +1,112 @@
+package fr.epsi.b3devc2.convocationepsi.storage;
+
+import fr.epsi.b3devc2.convocationepsi.dto.CandidatDto;
+import fr.epsi.b3devc2.convocationepsi.dto.StorageStatsDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemorySessionStorageTest {
+
+    @TempDir
+    Path spoolDir;
+
+    private final InMemorySessionStorage storage = new InMemorySessionStorage();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ReflectionTestUtils.setField(storage, "spoolDir", spoolDir);
+        ReflectionTestUtils.setField(storage, "maxBytes", 1024L);
+        ReflectionTestUtils.setField(storage, "maxDiskBytes", 1000L);
+        ReflectionTestUtils.setField(storage, "ttl", Duration.ofHours(1));
+        storage.initSpoolDir();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedSessionOverMemoryBudget() {
+        storage.storeCandidats("a", List.of(candidat()));
+        storage.storeCandidats("b", List.of(candidat()));
+        // "a" redevient la plus récemment utilisée
+        storage.getCandidats("a");
+        storage.storeCandidats("c", List.of(candidat()));
+
+        assertThat(storage.sessionExists("a")).isTrue();
+        assertThat(storage.sessionExists("b")).isFalse();
+        assertThat(storage.sessionExists("c")).isTrue();
+        assertThat(storage.getStats().getEvictionsBySize()).isEqualTo(1);
+    }
+
+    @Test
+    void weighsArchivesAgainstDiskBudgetOnly() throws IOException {
+        storage.storeCandidats("a", List.of(candidat()));
+        Path first = archive("a", 600);
+        storage.storeArchive("a", first);
+
+        StorageStatsDto stats = storage.getStats();
+        assertThat(stats.getWeightBytes()).isEqualTo(512);
+        assertThat(stats.getDiskBytes()).isEqualTo(600);
+
+        // Une seconde archive dépasse le budget disque : la session la plus ancienne et son archive disparaissent
+        storage.storeCandidats("b", List.of(candidat()));
+        storage.storeArchive("b", archive("b", 600));
+
+        assertThat(storage.sessionExists("a")).isFalse();
+        assertThat(first).doesNotExist();
+        assertThat(storage.getArchive("b")).isNotNull();
+        assertThat(storage.getStats().getDiskBytes()).isEqualTo(600);
+        assertThat(storage.getStats().getWeightBytes()).isEqualTo(512);
+    }
+
+    @Test
+    void replacingArchiveUpdatesDiskUsage() throws IOException {
+        storage.storeCandidats("a", List.of(candidat()));
+        Path first = archive("a", 300);
+        storage.storeArchive("a", first);
+        storage.storeArchive("a", archive("a", 100));
+
+        assertThat(first).doesNotExist();
+        assertThat(storage.getStats().getDiskBytes()).isEqualTo(100);
+
+        storage.clearSession("a");
+        assertThat(storage.getStats().getDiskBytes()).isZero();
+        assertThat(storage.getStats().getWeightBytes()).isZero();
+    }
+
+    @Test
+    void removesExpiredSessions() throws Exception {
+        ReflectionTestUtils.setField(storage, "ttl", Duration.ofMillis(50));
+        storage.storeCandidats("a", List.of(candidat()));
+        Path archive = archive("a", 100);
+        storage.storeArchive("a", archive);
+
+        Thread.sleep(100);
+        storage.sweepExpiredSessions();
+
+        assertThat(storage.getCandidats("a")).isNull();
+        assertThat(archive).doesNotExist();
+        StorageStatsDto stats = storage.getStats();
+        assertThat(stats.getSessions()).isZero();
+        assertThat(stats.getEvictionsByTtl()).isEqualTo(1);
+        assertThat(stats.getDiskBytes()).isZero();
+    }
+
+    private Path archive(String sessionId, int size) throws IOException {
+        return Files.write(storage.createArchiveFile(sessionId), new byte[size]);
+    }
+
+    private static CandidatDto candidat() {
+        return new CandidatDto("id-a", "B3 DEV", "Madame", "DUPONT", "Jeanne", "a@example.org",
+                LocalDate.of(2025, 9, 15), LocalTime.of(9, 30), "B101", "12", null);
+    }
+}